@@ -19,30 +19,25 @@ package com.github.ksoichiro.android.observablescrollview.samples;
 import android.os.Bundle;
 import android.support.v7.widget.Toolbar;
 import android.view.View;
-import android.view.animation.AccelerateDecelerateInterpolator;
-import android.widget.FrameLayout;
 import android.widget.TextView;
 
+import com.github.ksoichiro.android.observablescrollview.FillGapHeaderLayout;
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
+import com.github.ksoichiro.android.observablescrollview.OnBoundaryCrossedListener;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 import com.github.ksoichiro.android.observablescrollview.Scrollable;
-import com.nineoldandroids.animation.ValueAnimator;
 import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
 
-public abstract class FillGapBaseActivity<S extends Scrollable> extends BaseActivity implements ObservableScrollViewCallbacks {
+public abstract class FillGapBaseActivity<S extends Scrollable> extends BaseActivity implements ObservableScrollViewCallbacks, OnBoundaryCrossedListener {
 
-    protected View mHeader;
+    protected FillGapHeaderLayout mHeader;
     protected int mFlexibleSpaceImageHeight;
     protected View mHeaderBar;
     protected int mActionBarSize;
     protected int mIntersectionHeight;
 
     private View mImageHolder;
-    private View mHeaderBackground;
-    private int mPrevScrollY;
-    private boolean mGapFilled;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,19 +54,33 @@ public abstract class FillGapBaseActivity<S extends Scrollable> extends BaseActi
         mIntersectionHeight = getResources().getDimensionPixelSize(R.dimen.intersection_height);
 
         mImageHolder = findViewById(R.id.image_holder);
-        mHeader = findViewById(R.id.header);
+        mHeader = (FillGapHeaderLayout) findViewById(R.id.header);
         mHeaderBar = findViewById(R.id.header_bar);
-        mHeaderBackground = findViewById(R.id.header_background);
 
-        S scrollable = createScrollable();
+        // The background of the header is stretched to fill the gap behind the Toolbar.
+        mHeader.setFillView(findViewById(R.id.header_background));
+        mHeader.setGapHeight(mActionBarSize);
+
+        final S scrollable = createScrollable();
 
         ((TextView) findViewById(R.id.title)).setText(getTitle());
         setTitle(null);
 
-        ScrollUtils.addOnGlobalLayoutListener((View) scrollable, new Runnable() {
+        LayoutReadyScheduler.schedule((View) scrollable, new Runnable() {
             @Override
             public void run() {
-                onScrollChanged(0, false, false);
+                // Scroll position might have been restored
+                int scrollY = scrollable.getCurrentScrollY();
+                onScrollChanged(scrollY, false, false);
+
+                // The gap should be filled when scrollY reaches this boundary.
+                // Just observe it instead of checking the position in every onScrollChanged.
+                // The listener is notified only when the boundary is crossed,
+                // so evaluate it once with the current position.
+                final int headerHeight = mHeaderBar.getHeight();
+                int boundary = mFlexibleSpaceImageHeight - headerHeight - mActionBarSize;
+                mHeader.setGapShown(scrollY < boundary, false);
+                scrollable.addOnBoundaryCrossedListener(new int[]{boundary}, FillGapBaseActivity.this);
             }
         });
     }
@@ -99,26 +108,16 @@ public abstract class FillGapBaseActivity<S extends Scrollable> extends BaseActi
 
         // Translate header
         ViewHelper.setTranslationY(mHeader, getHeaderTranslationY(scrollY));
+    }
 
+    @Override
+    public void onBoundaryCrossed(int index, ScrollState direction) {
         // Show/hide gap
-        final int headerHeight = mHeaderBar.getHeight();
-        boolean scrollUp = mPrevScrollY < scrollY;
-        if (scrollUp) {
-            if (mFlexibleSpaceImageHeight - headerHeight - mActionBarSize <= scrollY) {
-                if (!mGapFilled) {
-                    mGapFilled = true;
-                    hideGap();
-                }
-            }
+        if (direction == ScrollState.UP) {
+            mHeader.hideGap();
         } else {
-            if (scrollY <= mFlexibleSpaceImageHeight - headerHeight - mActionBarSize) {
-                if (mGapFilled) {
-                    mGapFilled = false;
-                    showGap();
-                }
-            }
+            mHeader.showGap();
         }
-        mPrevScrollY = scrollY;
     }
 
     @Override
@@ -128,30 +127,4 @@ public abstract class FillGapBaseActivity<S extends Scrollable> extends BaseActi
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
     }
-
-    private void showGap() {
-        changeHeaderBackgroundHeight(mHeaderBar.getHeight() + mActionBarSize, mHeaderBar.getHeight());
-    }
-
-    private void hideGap() {
-        changeHeaderBackgroundHeight(mHeaderBar.getHeight(), mHeaderBar.getHeight() + mActionBarSize);
-    }
-
-    private void changeHeaderBackgroundHeight(float from, float to) {
-        ViewPropertyAnimator.animate(mHeaderBackground).cancel();
-        ValueAnimator a = ValueAnimator.ofFloat(from, to);
-        a.setDuration(100);
-        a.setInterpolator(new AccelerateDecelerateInterpolator());
-        a.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float height = (float) animation.getAnimatedValue();
-                FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mHeaderBackground.getLayoutParams();
-                lp.height = (int) height;
-                lp.topMargin = (int) (mHeaderBar.getHeight() - height);
-                mHeaderBackground.requestLayout();
-            }
-        });
-        a.start();
-    }
 }
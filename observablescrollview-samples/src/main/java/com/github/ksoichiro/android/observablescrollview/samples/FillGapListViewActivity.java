@@ -16,9 +16,9 @@
 
 package com.github.ksoichiro.android.observablescrollview.samples;
 
-import android.os.Bundle;
 import android.view.View;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableListView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.nineoldandroids.view.ViewHelper;
@@ -27,24 +27,6 @@ public class FillGapListViewActivity extends FillGapBaseActivity<ObservableListV
 
     private View mListBackgroundView;
 
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        // mListBackgroundView makes ListView's background except header view.
-        mListBackgroundView = findViewById(R.id.list_background);
-        final View contentView = getWindow().getDecorView().findViewById(android.R.id.content);
-        contentView.post(new Runnable() {
-            @Override
-            public void run() {
-                // mListBackgroundView's should fill its parent vertically
-                // but the height of the content view is 0 on 'onCreate'.
-                // So we should get it with post().
-                mListBackgroundView.getLayoutParams().height = contentView.getHeight();
-            }
-        });
-    }
-
     @Override
     protected ObservableListView createScrollable() {
         ObservableListView listView = (ObservableListView) findViewById(R.id.scroll);
@@ -54,13 +36,14 @@ public class FillGapListViewActivity extends FillGapBaseActivity<ObservableListV
         // mListBackgroundView makes ListView's background except header view.
         mListBackgroundView = findViewById(R.id.list_background);
         final View contentView = getWindow().getDecorView().findViewById(android.R.id.content);
-        contentView.post(new Runnable() {
+        LayoutReadyScheduler.schedule(contentView, new Runnable() {
             @Override
             public void run() {
                 // mListBackgroundView's should fill its parent vertically
                 // but the height of the content view is 0 on 'onCreate'.
-                // So we should get it with post().
+                // So we should get it after the content view is laid out.
                 mListBackgroundView.getLayoutParams().height = contentView.getHeight();
+                mListBackgroundView.requestLayout();
             }
         });
         return listView;
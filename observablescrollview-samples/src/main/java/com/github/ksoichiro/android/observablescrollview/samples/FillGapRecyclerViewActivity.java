@@ -20,6 +20,7 @@ import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.view.View;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableRecyclerView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.nineoldandroids.view.ViewHelper;
@@ -35,13 +36,14 @@ public class FillGapRecyclerViewActivity extends FillGapBaseActivity<ObservableR
         // mListBackgroundView makes ListView's background except header view.
         mListBackgroundView = findViewById(R.id.list_background);
         final View contentView = getWindow().getDecorView().findViewById(android.R.id.content);
-        contentView.post(new Runnable() {
+        LayoutReadyScheduler.schedule(contentView, new Runnable() {
             @Override
             public void run() {
                 // mListBackgroundView's should fill its parent vertically
                 // but the height of the content view is 0 on 'onCreate'.
-                // So we should get it with post().
+                // So we should get it after the content view is laid out.
                 mListBackgroundView.getLayoutParams().height = contentView.getHeight();
+                mListBackgroundView.requestLayout();
             }
         });
     }
@@ -21,18 +21,14 @@ import android.support.v7.widget.Toolbar;
 import android.view.View;
 import android.widget.TextView;
 
+import com.github.ksoichiro.android.observablescrollview.FlexibleSpaceHeaderLayout;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
 
 public class FlexibleSpaceToolbarScrollViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
 
-    private View mFlexibleSpaceView;
-    private View mToolbarView;
-    private TextView mTitleView;
-    private int mFlexibleSpaceHeight;
+    private FlexibleSpaceHeaderLayout mHeaderLayout;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,32 +38,37 @@ public class FlexibleSpaceToolbarScrollViewActivity extends BaseActivity impleme
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
 
-        mFlexibleSpaceView = findViewById(R.id.flexible_space);
-        mTitleView = (TextView) findViewById(R.id.title);
-        mTitleView.setText(getTitle());
+        View flexibleSpaceView = findViewById(R.id.flexible_space);
+        TextView titleView = (TextView) findViewById(R.id.title);
+        titleView.setText(getTitle());
         setTitle(null);
-        mToolbarView = findViewById(R.id.toolbar);
 
-        final ObservableScrollView scrollView = (ObservableScrollView) findViewById(R.id.scroll);
+        ObservableScrollView scrollView = (ObservableScrollView) findViewById(R.id.scroll);
         scrollView.setScrollViewCallbacks(this);
 
-        mFlexibleSpaceHeight = getResources().getDimensionPixelSize(R.dimen.flexible_space_height);
-        int flexibleSpaceAndToolbarHeight = mFlexibleSpaceHeight + getActionBarSize();
+        int flexibleSpaceHeight = getResources().getDimensionPixelSize(R.dimen.flexible_space_height);
+        int actionBarSize = getActionBarSize();
+        int flexibleSpaceAndToolbarHeight = flexibleSpaceHeight + actionBarSize;
 
         findViewById(R.id.body).setPadding(0, flexibleSpaceAndToolbarHeight, 0, 0);
-        mFlexibleSpaceView.getLayoutParams().height = flexibleSpaceAndToolbarHeight;
-
-        ScrollUtils.addOnGlobalLayoutListener(mTitleView, new Runnable() {
-            @Override
-            public void run() {
-                updateFlexibleSpaceText(scrollView.getCurrentScrollY());
-            }
-        });
+        flexibleSpaceView.getLayoutParams().height = flexibleSpaceAndToolbarHeight;
+
+        // The title is scaled so that its height fits to the flexible space,
+        // and it shrinks while the whole flexible space is being collapsed.
+        // FlexibleSpaceHeaderLayout moves the views after the layout,
+        // so it's not necessary to wait for the layout here.
+        mHeaderLayout = (FlexibleSpaceHeaderLayout) findViewById(R.id.root);
+        mHeaderLayout.setFlexibleSpaceHeight(flexibleSpaceAndToolbarHeight);
+        mHeaderLayout.setToolbarHeight(actionBarSize);
+        mHeaderLayout.setToolbarSticky(true);
+        mHeaderLayout.setFlexibleSpaceView(flexibleSpaceView);
+        mHeaderLayout.setTitleView(titleView);
+        mHeaderLayout.setTitleScale((float) (flexibleSpaceHeight - actionBarSize) / actionBarSize, 1);
     }
 
     @Override
     public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        updateFlexibleSpaceText(scrollY);
+        mHeaderLayout.updateScrollPosition(scrollY);
     }
 
     @Override
@@ -77,25 +78,4 @@ public class FlexibleSpaceToolbarScrollViewActivity extends BaseActivity impleme
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
     }
-
-    private void updateFlexibleSpaceText(final int scrollY) {
-        ViewHelper.setTranslationY(mFlexibleSpaceView, -scrollY);
-        int adjustedScrollY = scrollY;
-        if (scrollY < 0) {
-            adjustedScrollY = 0;
-        } else if (mFlexibleSpaceHeight < scrollY) {
-            adjustedScrollY = mFlexibleSpaceHeight;
-        }
-        float maxScale = (float) (mFlexibleSpaceHeight - mToolbarView.getHeight()) / mToolbarView.getHeight();
-        float scale = maxScale * ((float) mFlexibleSpaceHeight - adjustedScrollY) / mFlexibleSpaceHeight;
-
-        ViewHelper.setPivotX(mTitleView, 0);
-        ViewHelper.setPivotY(mTitleView, 0);
-        ViewHelper.setScaleX(mTitleView, 1 + scale);
-        ViewHelper.setScaleY(mTitleView, 1 + scale);
-        ViewHelper.setTranslationY(mTitleView, ViewHelper.getTranslationY(mFlexibleSpaceView) + mFlexibleSpaceView.getHeight() - mTitleView.getHeight() * (1 + scale));
-        int maxTitleTranslationY = mToolbarView.getHeight() + mFlexibleSpaceHeight - (int) (mTitleView.getHeight() * (1 + scale));
-        int titleTranslationY = (int) (maxTitleTranslationY * ((float) mFlexibleSpaceHeight - adjustedScrollY) / mFlexibleSpaceHeight);
-        ViewHelper.setTranslationY(mTitleView, titleTranslationY);
-    }
 }
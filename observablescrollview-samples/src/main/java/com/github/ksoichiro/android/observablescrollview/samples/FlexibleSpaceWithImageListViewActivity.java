@@ -16,37 +16,27 @@
 
 package com.github.ksoichiro.android.observablescrollview.samples;
 
-import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v7.widget.Toolbar;
 import android.view.View;
 import android.widget.AbsListView;
 import android.widget.TextView;
 
+import com.github.ksoichiro.android.observablescrollview.FlexibleSpaceHeaderLayout;
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableListView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
 
 public class FlexibleSpaceWithImageListViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
 
     private static final float MAX_TEXT_SCALE_DELTA = 0.3f;
     private static final boolean TOOLBAR_IS_STICKY = false;
 
-    private View mToolbar;
-    private View mImageView;
-    private View mOverlayView;
+    private FlexibleSpaceHeaderLayout mHeaderLayout;
     private View mListBackgroundView;
-    private TextView mTitleView;
-    private View mFab;
-    private int mActionBarSize;
-    private int mFlexibleSpaceShowFabOffset;
     private int mFlexibleSpaceImageHeight;
-    private int mFabMargin;
-    private int mToolbarColor;
-    private boolean mFabIsShown;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,16 +46,15 @@ public class FlexibleSpaceWithImageListViewActivity extends BaseActivity impleme
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
         mFlexibleSpaceImageHeight = getResources().getDimensionPixelSize(R.dimen.flexible_space_image_height);
-        mFlexibleSpaceShowFabOffset = getResources().getDimensionPixelSize(R.dimen.flexible_space_show_fab_offset);
-        mActionBarSize = getActionBarSize();
-        mToolbarColor = getResources().getColor(R.color.primary);
-
-        mToolbar = findViewById(R.id.toolbar);
-        if (!TOOLBAR_IS_STICKY) {
-            mToolbar.setBackgroundColor(Color.TRANSPARENT);
-        }
-        mImageView = findViewById(R.id.image);
-        mOverlayView = findViewById(R.id.overlay);
+
+        // FlexibleSpaceHeaderLayout moves these views in onScrollChanged
+        mHeaderLayout = (FlexibleSpaceHeaderLayout) findViewById(R.id.root);
+        mHeaderLayout.setFlexibleSpaceHeight(mFlexibleSpaceImageHeight);
+        mHeaderLayout.setToolbarHeight(getActionBarSize());
+        mHeaderLayout.setToolbarView(findViewById(R.id.toolbar), getResources().getColor(R.color.primary));
+        mHeaderLayout.setToolbarSticky(TOOLBAR_IS_STICKY);
+        mHeaderLayout.setImageView(findViewById(R.id.image));
+        mHeaderLayout.setOverlayView(findViewById(R.id.overlay));
         ObservableListView listView = (ObservableListView) findViewById(R.id.list);
         listView.setScrollViewCallbacks(this);
 
@@ -80,88 +69,36 @@ public class FlexibleSpaceWithImageListViewActivity extends BaseActivity impleme
 
         listView.addHeaderView(paddingView);
         setDummyData(listView);
-        mTitleView = (TextView) findViewById(R.id.title);
-        mTitleView.setText(getTitle());
+        TextView titleView = (TextView) findViewById(R.id.title);
+        titleView.setText(getTitle());
         setTitle(null);
-        mFab = findViewById(R.id.fab);
-        mFabMargin = getResources().getDimensionPixelSize(R.dimen.margin_standard);
-        ViewHelper.setScaleX(mFab, 0);
-        ViewHelper.setScaleY(mFab, 0);
+        mHeaderLayout.setTitleView(titleView);
+        mHeaderLayout.setTitleScale(MAX_TEXT_SCALE_DELTA, MAX_TEXT_SCALE_DELTA);
+        mHeaderLayout.setFabView(findViewById(R.id.fab),
+                getResources().getDimensionPixelSize(R.dimen.margin_standard),
+                getResources().getDimensionPixelSize(R.dimen.flexible_space_show_fab_offset));
 
         // mListBackgroundView makes ListView's background except header view.
         mListBackgroundView = findViewById(R.id.list_background);
         final View contentView = getWindow().getDecorView().findViewById(android.R.id.content);
-        contentView.post(new Runnable() {
+        LayoutReadyScheduler.schedule(contentView, new Runnable() {
             @Override
             public void run() {
                 // mListBackgroundView's should fill its parent vertically
                 // but the height of the content view is 0 on 'onCreate'.
-                // So we should get it with post().
+                // So we should get it after the content view is laid out.
                 mListBackgroundView.getLayoutParams().height = contentView.getHeight();
+                mListBackgroundView.requestLayout();
             }
         });
     }
 
     @Override
     public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        // Translate overlay and image
-        float flexibleRange = mFlexibleSpaceImageHeight - mActionBarSize;
-        int minOverlayTransitionY = mActionBarSize - mOverlayView.getHeight();
-        ViewHelper.setTranslationY(mOverlayView, ScrollUtils.getFloat(-scrollY, minOverlayTransitionY, 0));
-        ViewHelper.setTranslationY(mImageView, ScrollUtils.getFloat(-scrollY / 2, minOverlayTransitionY, 0));
+        mHeaderLayout.updateScrollPosition(scrollY);
 
         // Translate list background
         ViewHelper.setTranslationY(mListBackgroundView, Math.max(0, -scrollY + mFlexibleSpaceImageHeight));
-
-        // Change alpha of overlay
-        ViewHelper.setAlpha(mOverlayView, ScrollUtils.getFloat((float) scrollY / flexibleRange, 0, 1));
-
-        // Scale title text
-        float scale = 1 + ScrollUtils.getFloat((flexibleRange - scrollY) / flexibleRange, 0, MAX_TEXT_SCALE_DELTA);
-        ViewHelper.setPivotX(mTitleView, 0);
-        ViewHelper.setPivotY(mTitleView, 0);
-        ViewHelper.setScaleX(mTitleView, scale);
-        ViewHelper.setScaleY(mTitleView, scale);
-
-        // Translate title text
-        int maxTitleTranslationY = (int) (mFlexibleSpaceImageHeight - mTitleView.getHeight() * scale);
-        int titleTranslationY = maxTitleTranslationY - scrollY;
-        if (TOOLBAR_IS_STICKY) {
-            titleTranslationY = Math.max(0, titleTranslationY);
-        }
-        ViewHelper.setTranslationY(mTitleView, titleTranslationY);
-
-        // Translate FAB
-        int maxFabTranslationY = mFlexibleSpaceImageHeight - mFab.getHeight() / 2;
-        float fabTranslationY = ScrollUtils.getFloat(
-                -scrollY + mFlexibleSpaceImageHeight - mFab.getHeight() / 2,
-                mActionBarSize - mFab.getHeight() / 2,
-                maxFabTranslationY);
-        ViewHelper.setTranslationX(mFab, mOverlayView.getWidth() - mFabMargin - mFab.getWidth());
-        ViewHelper.setTranslationY(mFab, fabTranslationY);
-
-        // Show/hide FAB
-        if (ViewHelper.getTranslationY(mFab) < mFlexibleSpaceShowFabOffset) {
-            hideFab();
-        } else {
-            showFab();
-        }
-
-        if (TOOLBAR_IS_STICKY) {
-            // Change alpha of toolbar background
-            if (-scrollY + mFlexibleSpaceImageHeight <= mActionBarSize) {
-                mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(1, mToolbarColor));
-            } else {
-                mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(0, mToolbarColor));
-            }
-        } else {
-            // Translate Toolbar
-            if (scrollY < mFlexibleSpaceImageHeight) {
-                ViewHelper.setTranslationY(mToolbar, 0);
-            } else {
-                ViewHelper.setTranslationY(mToolbar, -scrollY);
-            }
-        }
     }
 
     @Override
@@ -171,20 +108,4 @@ public class FlexibleSpaceWithImageListViewActivity extends BaseActivity impleme
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
     }
-
-    private void showFab() {
-        if (!mFabIsShown) {
-            ViewPropertyAnimator.animate(mFab).cancel();
-            ViewPropertyAnimator.animate(mFab).scaleX(1).scaleY(1).setDuration(200).start();
-            mFabIsShown = true;
-        }
-    }
-
-    private void hideFab() {
-        if (mFabIsShown) {
-            ViewPropertyAnimator.animate(mFab).cancel();
-            ViewPropertyAnimator.animate(mFab).scaleX(0).scaleY(0).setDuration(200).start();
-            mFabIsShown = false;
-        }
-    }
 }
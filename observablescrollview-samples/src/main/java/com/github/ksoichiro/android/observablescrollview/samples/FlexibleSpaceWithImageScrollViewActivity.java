@@ -16,36 +16,26 @@
 
 package com.github.ksoichiro.android.observablescrollview.samples;
 
-import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v7.widget.Toolbar;
 import android.view.View;
 import android.widget.TextView;
 
+import com.github.ksoichiro.android.observablescrollview.FlexibleSpaceHeaderLayout;
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
 
 public class FlexibleSpaceWithImageScrollViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
 
     private static final float MAX_TEXT_SCALE_DELTA = 0.3f;
     private static final boolean TOOLBAR_IS_STICKY = false;
 
-    private View mToolbar;
-    private View mImageView;
-    private View mOverlayView;
+    private FlexibleSpaceHeaderLayout mHeaderLayout;
     private ObservableScrollView mScrollView;
-    private TextView mTitleView;
-    private View mFab;
     private int mActionBarSize;
-    private int mFlexibleSpaceShowFabOffset;
     private int mFlexibleSpaceImageHeight;
-    private int mFabMargin;
-    private int mToolbarColor;
-    private boolean mFabIsShown;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,27 +45,36 @@ public class FlexibleSpaceWithImageScrollViewActivity extends BaseActivity imple
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
         mFlexibleSpaceImageHeight = getResources().getDimensionPixelSize(R.dimen.flexible_space_image_height);
-        mFlexibleSpaceShowFabOffset = getResources().getDimensionPixelSize(R.dimen.flexible_space_show_fab_offset);
         mActionBarSize = getActionBarSize();
-        mToolbarColor = getResources().getColor(R.color.primary);
-
-        mToolbar = findViewById(R.id.toolbar);
-        if (!TOOLBAR_IS_STICKY) {
-            mToolbar.setBackgroundColor(Color.TRANSPARENT);
-        }
-        mImageView = findViewById(R.id.image);
-        mOverlayView = findViewById(R.id.overlay);
+
+        // FlexibleSpaceHeaderLayout moves these views in onScrollChanged
+        mHeaderLayout = (FlexibleSpaceHeaderLayout) findViewById(R.id.root);
+        mHeaderLayout.setFlexibleSpaceHeight(mFlexibleSpaceImageHeight);
+        mHeaderLayout.setToolbarHeight(mActionBarSize);
+        mHeaderLayout.setToolbarView(findViewById(R.id.toolbar), getResources().getColor(R.color.primary));
+        mHeaderLayout.setToolbarSticky(TOOLBAR_IS_STICKY);
+        View imageView = findViewById(R.id.image);
+        View overlayView = findViewById(R.id.overlay);
+        mHeaderLayout.setImageView(imageView);
+        mHeaderLayout.setOverlayView(overlayView);
         mScrollView = (ObservableScrollView) findViewById(R.id.scroll);
         mScrollView.setScrollViewCallbacks(this);
-        mTitleView = (TextView) findViewById(R.id.title);
-        mTitleView.setText(getTitle());
+        TextView titleView = (TextView) findViewById(R.id.title);
+        titleView.setText(getTitle());
         setTitle(null);
-        mFab = findViewById(R.id.fab);
-        mFabMargin = getResources().getDimensionPixelSize(R.dimen.margin_standard);
-        ViewHelper.setScaleX(mFab, 0);
-        ViewHelper.setScaleY(mFab, 0);
-
-        ScrollUtils.addOnGlobalLayoutListener(mScrollView, new Runnable() {
+        mHeaderLayout.setTitleView(titleView);
+        mHeaderLayout.setTitleScale(MAX_TEXT_SCALE_DELTA, MAX_TEXT_SCALE_DELTA);
+        mHeaderLayout.setFabView(findViewById(R.id.fab),
+                getResources().getDimensionPixelSize(R.dimen.margin_standard),
+                getResources().getDimensionPixelSize(R.dimen.flexible_space_show_fab_offset));
+
+        // These views are translated, faded or scaled in every onScrollChanged,
+        // so render them into hardware layers while scrolling.
+        mScrollView.addAnimatedView(imageView);
+        mScrollView.addAnimatedView(overlayView);
+        mScrollView.addAnimatedView(titleView);
+
+        LayoutReadyScheduler.schedule(mScrollView, new Runnable() {
             @Override
             public void run() {
                 mScrollView.scrollTo(0, mFlexibleSpaceImageHeight - mActionBarSize);
@@ -96,61 +95,7 @@ public class FlexibleSpaceWithImageScrollViewActivity extends BaseActivity imple
 
     @Override
     public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        // Translate overlay and image
-        float flexibleRange = mFlexibleSpaceImageHeight - mActionBarSize;
-        int minOverlayTransitionY = mActionBarSize - mOverlayView.getHeight();
-        ViewHelper.setTranslationY(mOverlayView, ScrollUtils.getFloat(-scrollY, minOverlayTransitionY, 0));
-        ViewHelper.setTranslationY(mImageView, ScrollUtils.getFloat(-scrollY / 2, minOverlayTransitionY, 0));
-
-        // Change alpha of overlay
-        ViewHelper.setAlpha(mOverlayView, ScrollUtils.getFloat((float) scrollY / flexibleRange, 0, 1));
-
-        // Scale title text
-        float scale = 1 + ScrollUtils.getFloat((flexibleRange - scrollY) / flexibleRange, 0, MAX_TEXT_SCALE_DELTA);
-        ViewHelper.setPivotX(mTitleView, 0);
-        ViewHelper.setPivotY(mTitleView, 0);
-        ViewHelper.setScaleX(mTitleView, scale);
-        ViewHelper.setScaleY(mTitleView, scale);
-
-        // Translate title text
-        int maxTitleTranslationY = (int) (mFlexibleSpaceImageHeight - mTitleView.getHeight() * scale);
-        int titleTranslationY = maxTitleTranslationY - scrollY;
-        if (TOOLBAR_IS_STICKY) {
-            titleTranslationY = Math.max(0, titleTranslationY);
-        }
-        ViewHelper.setTranslationY(mTitleView, titleTranslationY);
-
-        // Translate FAB
-        int maxFabTranslationY = mFlexibleSpaceImageHeight - mFab.getHeight() / 2;
-        float fabTranslationY = ScrollUtils.getFloat(
-                -scrollY + mFlexibleSpaceImageHeight - mFab.getHeight() / 2,
-                mActionBarSize - mFab.getHeight() / 2,
-                maxFabTranslationY);
-        ViewHelper.setTranslationX(mFab, mOverlayView.getWidth() - mFabMargin - mFab.getWidth());
-        ViewHelper.setTranslationY(mFab, fabTranslationY);
-
-        // Show/hide FAB
-        if (ViewHelper.getTranslationY(mFab) < mFlexibleSpaceShowFabOffset) {
-            hideFab();
-        } else {
-            showFab();
-        }
-
-        if (TOOLBAR_IS_STICKY) {
-            // Change alpha of toolbar background
-            if (-scrollY + mFlexibleSpaceImageHeight <= mActionBarSize) {
-                mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(1, mToolbarColor));
-            } else {
-                mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(0, mToolbarColor));
-            }
-        } else {
-            // Translate Toolbar
-            if (scrollY < mFlexibleSpaceImageHeight) {
-                ViewHelper.setTranslationY(mToolbar, 0);
-            } else {
-                ViewHelper.setTranslationY(mToolbar, -scrollY);
-            }
-        }
+        mHeaderLayout.updateScrollPosition(scrollY);
     }
 
     @Override
@@ -160,20 +105,4 @@ public class FlexibleSpaceWithImageScrollViewActivity extends BaseActivity imple
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
     }
-
-    private void showFab() {
-        if (!mFabIsShown) {
-            ViewPropertyAnimator.animate(mFab).cancel();
-            ViewPropertyAnimator.animate(mFab).scaleX(1).scaleY(1).setDuration(200).start();
-            mFabIsShown = true;
-        }
-    }
-
-    private void hideFab() {
-        if (mFabIsShown) {
-            ViewPropertyAnimator.animate(mFab).cancel();
-            ViewPropertyAnimator.animate(mFab).scaleX(0).scaleY(0).setDuration(200).start();
-            mFabIsShown = false;
-        }
-    }
 }
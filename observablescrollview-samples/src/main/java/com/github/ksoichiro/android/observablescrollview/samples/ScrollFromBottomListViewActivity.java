@@ -22,6 +22,7 @@ import android.support.v7.widget.Toolbar;
 import android.view.LayoutInflater;
 import android.view.View;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableListView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
@@ -64,7 +65,7 @@ public class ScrollFromBottomListViewActivity extends BaseActivity implements Ob
         mListView.addHeaderView(inflater.inflate(R.layout.padding, mListView, false)); // sticky view
         setDummyData(mListView);
 
-        ScrollUtils.addOnGlobalLayoutListener(mListView, new Runnable() {
+        LayoutReadyScheduler.schedule(mListView, new Runnable() {
             @Override
             public void run() {
                 int count = mListView.getAdapter().getCount() - 1;
@@ -23,6 +23,7 @@ import android.support.v7.widget.Toolbar;
 import android.view.LayoutInflater;
 import android.view.View;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableRecyclerView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
@@ -63,7 +64,7 @@ public class ScrollFromBottomRecyclerViewActivity extends BaseActivity implement
         View headerView = LayoutInflater.from(this).inflate(R.layout.recycler_header, null);
         setDummyDataWithHeader(mRecyclerView, headerView);
 
-        ScrollUtils.addOnGlobalLayoutListener(mRecyclerView, new Runnable() {
+        LayoutReadyScheduler.schedule(mRecyclerView, new Runnable() {
             @Override
             public void run() {
                 int count = mRecyclerView.getAdapter().getItemCount() - 1;
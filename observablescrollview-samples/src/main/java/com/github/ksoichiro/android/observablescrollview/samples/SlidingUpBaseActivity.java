@@ -17,19 +17,18 @@
 package com.github.ksoichiro.android.observablescrollview.samples;
 
 import android.graphics.Color;
-import android.graphics.Rect;
 import android.os.Bundle;
 import android.support.v7.widget.Toolbar;
-import android.view.MotionEvent;
 import android.view.View;
-import android.widget.FrameLayout;
 import android.widget.TextView;
 
+import com.github.ksoichiro.android.observablescrollview.ColorRamp;
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
 import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 import com.github.ksoichiro.android.observablescrollview.Scrollable;
-import com.github.ksoichiro.android.observablescrollview.TouchInterceptionFrameLayout;
+import com.github.ksoichiro.android.observablescrollview.SlidingUpPanelLayout;
 import com.nineoldandroids.animation.ValueAnimator;
 import com.nineoldandroids.view.ViewHelper;
 import com.nineoldandroids.view.ViewPropertyAnimator;
@@ -46,21 +45,20 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
     private View mFab;
     private Toolbar mToolbar;
     private S mScrollable;
-    private TouchInterceptionFrameLayout mInterceptionLayout;
+    private SlidingUpPanelLayout mSlidingUpPanel;
     private int mActionBarSize;
     private int mIntersectionHeight;
     private int mHeaderBarHeight;
     private int mSlidingSlop;
     private int mSlidingHeaderBlueSize;
     private int mColorPrimary;
-    private float mScrollYOnDownMotion;
-    private boolean mMoved;
-    private float mInitialY;
-    private float mMovedDistanceY;
     private int mFabMargin;
     private boolean mFabIsShown;
+    private boolean mToolbarIsShown;
     private int mFlexibleSpaceImageHeight;
     private int mToolbarColor;
+    private ColorRamp mHeaderBarColorRamp;
+    private ColorRamp mTitleColorRamp;
 
     // These flags are used for changing header colors.
     private boolean mHeaderColorIsChanging;
@@ -91,6 +89,8 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
         mSlidingSlop = getResources().getDimensionPixelSize(R.dimen.sliding_slop);
         mActionBarSize = getActionBarSize();
         mColorPrimary = getResources().getColor(R.color.primary);
+        mHeaderBarColorRamp = new ColorRamp(mColorPrimary, Color.WHITE);
+        mTitleColorRamp = new ColorRamp(Color.WHITE, Color.BLACK);
         mSlidingHeaderBlueSize = getResources().getDimensionPixelSize(R.dimen.sliding_overlay_blur_size);
 
         mHeader = findViewById(R.id.header);
@@ -110,8 +110,13 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
         mFabMargin = getResources().getDimensionPixelSize(R.dimen.margin_standard);
         mFabIsShown = true;
 
-        mInterceptionLayout = (TouchInterceptionFrameLayout) findViewById(R.id.scroll_wrapper);
-        mInterceptionLayout.setScrollInterceptionListener(mInterceptionListener);
+        mSlidingUpPanel = (SlidingUpPanelLayout) findViewById(R.id.scroll_wrapper);
+        mSlidingUpPanel.setScrollable(mScrollable);
+        mSlidingUpPanel.setToggleView(mHeader);
+        mSlidingUpPanel.setSlidingSlop(mSlidingSlop);
+        // Predict the touch position of the next frame so that the panel follows the finger closely
+        mSlidingUpPanel.setTouchPrediction(16);
+        mSlidingUpPanel.setPanelSlideListener(mPanelSlideListener);
         mTitle = (TextView) findViewById(R.id.title);
         mTitle.setText(getTitle());
         mToolbarTitle = (TextView) findViewById(R.id.toolbar_title);
@@ -119,15 +124,20 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
         ViewHelper.setAlpha(mToolbarTitle, 0);
         ViewHelper.setTranslationY(mTitle, (mHeaderBarHeight - mActionBarSize) / 2);
 
-        ScrollUtils.addOnGlobalLayoutListener(mInterceptionLayout, new Runnable() {
+        LayoutReadyScheduler.schedule(mSlidingUpPanel, new Runnable() {
             @Override
             public void run() {
-                ViewHelper.setTranslationY(mInterceptionLayout, getScreenHeight() - mHeaderBarHeight);
-                ViewHelper.setTranslationY(mImageView, getScreenHeight() - mHeaderBarHeight);
+                mSlidingUpPanel.setAnchors(0, (int) getAnchorYImage(), (int) getAnchorYBottom());
+                mSlidingUpPanel.setSlideRange(-mIntersectionHeight, (int) getAnchorYBottom());
+                mSlidingUpPanel.slideTo(getAnchorYBottom());
                 if (mFab != null) {
                     ViewHelper.setTranslationX(mFab, mTitle.getWidth() - mFabMargin - mFab.getWidth());
                     ViewHelper.setTranslationY(mFab, ViewHelper.getX(mTitle) - (mFab.getHeight() / 2));
                 }
+                // Size the flexible space once for the top of the slide range,
+                // and just translate the overlay while the panel moves.
+                mHeaderFlexibleSpace.getLayoutParams().height = getHeaderFlexibleSpaceMaxHeight();
+                mHeaderFlexibleSpace.requestLayout();
                 changeHeaderBarColorAnimated(false);
                 changeHeaderOverlay();
             }
@@ -150,108 +160,26 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
     }
 
-    private TouchInterceptionFrameLayout.TouchInterceptionListener mInterceptionListener = new TouchInterceptionFrameLayout.TouchInterceptionListener() {
+    private SlidingUpPanelLayout.PanelSlideListener mPanelSlideListener = new SlidingUpPanelLayout.PanelSlideListener() {
         @Override
-        public boolean shouldInterceptTouchEvent(MotionEvent ev, boolean moving, float diffX, float diffY) {
-            final int minInterceptionLayoutY = -mIntersectionHeight;
-            return minInterceptionLayoutY < (int) ViewHelper.getY(mInterceptionLayout)
-                || (moving && mScrollable.getCurrentScrollY() - diffY < 0);
+        public void onPanelSlide(float translationY) {
+            // Animate the header only while the user is moving the panel
+            onPanelTranslationChanged(translationY, mSlidingUpPanel.getState() != SlidingUpPanelLayout.STATE_IDLE);
         }
 
         @Override
-        public void onDownMotionEvent(MotionEvent ev) {
-            mScrollYOnDownMotion = mScrollable.getCurrentScrollY();
-            mInitialY = ViewHelper.getTranslationY(mInterceptionLayout);
-        }
-
-        @Override
-        public void onMoveMotionEvent(MotionEvent ev, float diffX, float diffY) {
-            mMoved = true;
-            float translationY = ViewHelper.getTranslationY(mInterceptionLayout) - mScrollYOnDownMotion + diffY;
-            if (translationY < -mIntersectionHeight) {
-                translationY = -mIntersectionHeight;
-            } else if (getScreenHeight() - mHeaderBarHeight < translationY) {
-                translationY = getScreenHeight() - mHeaderBarHeight;
-            }
-
-            slideTo(translationY);
-
-            mMovedDistanceY = ViewHelper.getTranslationY(mInterceptionLayout) - mInitialY;
-        }
-
-        @Override
-        public void onUpOrCancelMotionEvent(MotionEvent ev) {
-            if (!mMoved) {
-                // Invoke slide animation only on header view
-                Rect outRect = new Rect();
-                mHeader.getHitRect(outRect);
-                if (outRect.contains((int) ev.getX(), (int) ev.getY())) {
-                    slideOnClick();
-                }
-            } else {
-                stickToAnchors();
-            }
-            mMoved = false;
+        public void onPanelStateChanged(int state) {
         }
     };
 
     private void slideOnClick() {
-        float translationY = ViewHelper.getTranslationY(mInterceptionLayout);
-        if (translationY == getAnchorYBottom()) {
-            slideWithAnimation(getAnchorYImage());
-        } else if (translationY == getAnchorYImage()) {
-            slideWithAnimation(getAnchorYBottom());
-        }
-    }
-
-    private void stickToAnchors() {
-        // Slide to some points automatically
-        if (0 < mMovedDistanceY) {
-            // Sliding down
-            if (mSlidingSlop < mMovedDistanceY) {
-                // Sliding down to an anchor
-                if (getAnchorYImage() < ViewHelper.getTranslationY(mInterceptionLayout)) {
-                    slideWithAnimation(getAnchorYBottom());
-                } else {
-                    slideWithAnimation(getAnchorYImage());
-                }
-            } else {
-                // Sliding up(back) to an anchor
-                if (getAnchorYImage() < ViewHelper.getTranslationY(mInterceptionLayout)) {
-                    slideWithAnimation(getAnchorYImage());
-                } else {
-                    slideWithAnimation(0);
-                }
-            }
-        } else if (mMovedDistanceY < 0) {
-            // Sliding up
-            if (mMovedDistanceY < -mSlidingSlop) {
-                // Sliding up to an anchor
-                if (getAnchorYImage() < ViewHelper.getTranslationY(mInterceptionLayout)) {
-                    slideWithAnimation(getAnchorYImage());
-                } else {
-                    slideWithAnimation(0);
-                }
-            } else {
-                // Sliding down(back) to an anchor
-                if (getAnchorYImage() < ViewHelper.getTranslationY(mInterceptionLayout)) {
-                    slideWithAnimation(getAnchorYBottom());
-                } else {
-                    slideWithAnimation(getAnchorYImage());
-                }
-            }
+        float translationY = mSlidingUpPanel.getPanelTranslationY();
+        if (translationY == getAnchorYBottom() || translationY == getAnchorYImage()) {
+            mSlidingUpPanel.toggle();
         }
     }
 
-    private void slideTo(float translationY) {
-        ViewHelper.setTranslationY(mInterceptionLayout, translationY);
-
-        if (translationY < 0) {
-            FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mInterceptionLayout.getLayoutParams();
-            lp.height = (int) -translationY + getScreenHeight();
-            mInterceptionLayout.requestLayout();
-        }
-
+    private void onPanelTranslationChanged(float translationY, boolean animated) {
         // Translate title
         float hiddenHeight = translationY < 0 ? -translationY : 0;
         ViewHelper.setTranslationY(mTitle, Math.min(mIntersectionHeight, (mHeaderBarHeight + hiddenHeight - mActionBarSize) / 2));
@@ -263,38 +191,25 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
         ViewHelper.setTranslationY(mImageView, imageTranslationY);
 
         // Show/hide FAB
-        if (ViewHelper.getTranslationY(mInterceptionLayout) < mFlexibleSpaceImageHeight) {
+        if (translationY < mFlexibleSpaceImageHeight) {
             hideFab();
         } else {
-            ViewPropertyAnimator.animate(mToolbar).scaleY(0).setDuration(200).start();
             showFab();
         }
-        if (ViewHelper.getTranslationY(mInterceptionLayout) <= mFlexibleSpaceImageHeight) {
-            ViewPropertyAnimator.animate(mToolbar).scaleY(1).setDuration(200).start();
-            mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(0, mToolbarColor));
+        // Show/hide toolbar
+        if (translationY <= mFlexibleSpaceImageHeight) {
+            showToolbar();
+        } else {
+            hideToolbar();
         }
 
         changeToolbarTitleVisibility();
-        changeHeaderBarColorAnimated(true);
+        changeHeaderBarColorAnimated(animated);
         changeHeaderOverlay();
     }
 
-    private void slideWithAnimation(float toY) {
-        float layoutTranslationY = ViewHelper.getTranslationY(mInterceptionLayout);
-        if (layoutTranslationY != toY) {
-            ValueAnimator animator = ValueAnimator.ofFloat(ViewHelper.getTranslationY(mInterceptionLayout), toY).setDuration(200);
-            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    slideTo((float) animation.getAnimatedValue());
-                }
-            });
-            animator.start();
-        }
-    }
-
     private void changeToolbarTitleVisibility() {
-        if (ViewHelper.getTranslationY(mInterceptionLayout) <= mIntersectionHeight) {
+        if (mSlidingUpPanel.getPanelTranslationY() <= mIntersectionHeight) {
             if (ViewHelper.getAlpha(mToolbarTitle) == 0) {
                 ViewPropertyAnimator.animate(mToolbarTitle).cancel();
                 ViewPropertyAnimator.animate(mToolbarTitle).alpha(1).setDuration(200).start();
@@ -311,7 +226,7 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
         if (mHeaderColorIsChanging) {
             return;
         }
-        boolean shouldBeWhite = getAnchorYBottom() == ViewHelper.getTranslationY(mInterceptionLayout);
+        boolean shouldBeWhite = getAnchorYBottom() == mSlidingUpPanel.getPanelTranslationY();
         if (!mHeaderIsAtBottom && !mHeaderColorChangedToBottom && shouldBeWhite) {
             mHeaderIsAtBottom = true;
             mHeaderIsNotAtBottom = false;
@@ -350,23 +265,46 @@ public abstract class SlidingUpBaseActivity<S extends Scrollable> extends BaseAc
     }
 
     private void changeHeaderBarColor(float alpha) {
-        mHeaderBar.setBackgroundColor(ScrollUtils.mixColors(mColorPrimary, Color.WHITE, alpha));
-        mTitle.setTextColor(ScrollUtils.mixColors(Color.WHITE, Color.BLACK, alpha));
+        mHeaderBar.setBackgroundColor(mHeaderBarColorRamp.colorAt(alpha));
+        mTitle.setTextColor(mTitleColorRamp.colorAt(alpha));
         mHeaderColorChangedToBottom = (alpha == 1);
     }
 
     private void changeHeaderOverlay() {
-        final float translationY = ViewHelper.getTranslationY(mInterceptionLayout);
+        final float translationY = mSlidingUpPanel.getPanelTranslationY();
         if (translationY <= mToolbar.getHeight() - mSlidingHeaderBlueSize) {
             mHeaderOverlay.setVisibility(View.VISIBLE);
-            mHeaderFlexibleSpace.getLayoutParams().height = (int) (mToolbar.getHeight() - mSlidingHeaderBlueSize - translationY);
-            mHeaderFlexibleSpace.requestLayout();
-            mHeaderOverlay.requestLayout();
+            // Visible part of the flexible space should be (toolbar - blue size - translationY),
+            // and the part above the panel is clipped.
+            float visibleHeight = mToolbar.getHeight() - mSlidingHeaderBlueSize - translationY;
+            ViewHelper.setTranslationY(mHeaderOverlay, visibleHeight - getHeaderFlexibleSpaceMaxHeight());
         } else {
             mHeaderOverlay.setVisibility(View.INVISIBLE);
         }
     }
 
+    private int getHeaderFlexibleSpaceMaxHeight() {
+        // Panel can be slid up to -mIntersectionHeight
+        return mToolbar.getHeight() - mSlidingHeaderBlueSize + mIntersectionHeight;
+    }
+
+    private void showToolbar() {
+        if (!mToolbarIsShown) {
+            ViewPropertyAnimator.animate(mToolbar).cancel();
+            ViewPropertyAnimator.animate(mToolbar).scaleY(1).setDuration(200).start();
+            mToolbar.setBackgroundColor(ScrollUtils.getColorWithAlpha(0, mToolbarColor));
+            mToolbarIsShown = true;
+        }
+    }
+
+    private void hideToolbar() {
+        if (mToolbarIsShown) {
+            ViewPropertyAnimator.animate(mToolbar).cancel();
+            ViewPropertyAnimator.animate(mToolbar).scaleY(0).setDuration(200).start();
+            mToolbarIsShown = false;
+        }
+    }
+
     private void showFab() {
         if (!mFabIsShown && mFab != null) {
             ViewPropertyAnimator.animate(mFab).cancel();
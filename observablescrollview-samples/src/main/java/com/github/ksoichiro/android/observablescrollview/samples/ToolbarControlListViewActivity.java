@@ -25,19 +25,13 @@ import android.view.View;
 import android.widget.AbsListView;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableListView;
-import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 
-public class ToolbarControlListViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
+public class ToolbarControlListViewActivity extends BaseActivity {
 
     private static final String TAG = ToolbarControlListViewActivity.class.getSimpleName();
-    private View mHeaderView;
-    private View mToolbarView;
+    private QuickReturnController mQuickReturnController;
     private ObservableListView mListView;
-    private int mBaseTranslationY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,12 +40,12 @@ public class ToolbarControlListViewActivity extends BaseActivity implements Obse
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
-        mToolbarView = findViewById(R.id.toolbar);
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
+        mQuickReturnController = new QuickReturnController(header, findViewById(R.id.toolbar));
 
         mListView = (ObservableListView) findViewById(R.id.list);
-        mListView.setScrollViewCallbacks(this);
+        mQuickReturnController.attachTo(mListView);
 
         LayoutInflater inflater = LayoutInflater.from(this);
         mListView.addHeaderView(inflater.inflate(R.layout.padding, mListView, false)); // toolbar
@@ -71,47 +65,4 @@ public class ToolbarControlListViewActivity extends BaseActivity implements Obse
             }
         });
     }
-
-    @Override
-    public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        if (dragging) {
-            int toolbarHeight = mToolbarView.getHeight();
-            if (firstScroll) {
-                float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-                if (-toolbarHeight < currentHeaderTranslationY && toolbarHeight < scrollY) {
-                    mBaseTranslationY = scrollY;
-                }
-            }
-            float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-        }
-    }
-
-    @Override
-    public void onDownMotionEvent() {
-    }
-
-    @Override
-    public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-        mBaseTranslationY = 0;
-
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        int toolbarHeight = mToolbarView.getHeight();
-        if (scrollState == ScrollState.UP) {
-            if (toolbarHeight < mListView.getCurrentScrollY()) {
-                if (headerTranslationY != -toolbarHeight) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-                }
-            }
-        } else if (scrollState == ScrollState.DOWN) {
-            if (toolbarHeight < mListView.getCurrentScrollY()) {
-                if (headerTranslationY != 0) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-                }
-            }
-        }
-    }
 }
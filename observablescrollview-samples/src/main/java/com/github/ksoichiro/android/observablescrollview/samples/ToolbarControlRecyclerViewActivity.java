@@ -24,18 +24,12 @@ import android.view.LayoutInflater;
 import android.view.View;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableRecyclerView;
-import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 
-public class ToolbarControlRecyclerViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
+public class ToolbarControlRecyclerViewActivity extends BaseActivity {
 
-    private View mHeaderView;
-    private View mToolbarView;
+    private QuickReturnController mQuickReturnController;
     private ObservableRecyclerView mRecyclerView;
-    private int mBaseTranslationY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -44,58 +38,15 @@ public class ToolbarControlRecyclerViewActivity extends BaseActivity implements
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
-        mToolbarView = findViewById(R.id.toolbar);
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
+        mQuickReturnController = new QuickReturnController(header, findViewById(R.id.toolbar));
 
         mRecyclerView = (ObservableRecyclerView) findViewById(R.id.recycler);
-        mRecyclerView.setScrollViewCallbacks(this);
+        mQuickReturnController.attachTo(mRecyclerView);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         mRecyclerView.setHasFixedSize(false);
         View headerView = LayoutInflater.from(this).inflate(R.layout.recycler_header, null);
         setDummyDataWithHeader(mRecyclerView, headerView);
     }
-
-    @Override
-    public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        if (dragging) {
-            int toolbarHeight = mToolbarView.getHeight();
-            if (firstScroll) {
-                float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-                if (-toolbarHeight < currentHeaderTranslationY && toolbarHeight < scrollY) {
-                    mBaseTranslationY = scrollY;
-                }
-            }
-            float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-        }
-    }
-
-    @Override
-    public void onDownMotionEvent() {
-    }
-
-    @Override
-    public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-        mBaseTranslationY = 0;
-
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        int toolbarHeight = mToolbarView.getHeight();
-        if (scrollState == ScrollState.UP) {
-            if (toolbarHeight < mRecyclerView.getCurrentScrollY()) {
-                if (headerTranslationY != -toolbarHeight) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-                }
-            }
-        } else if (scrollState == ScrollState.DOWN) {
-            if (toolbarHeight < mRecyclerView.getCurrentScrollY()) {
-                if (headerTranslationY != 0) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-                }
-            }
-        }
-    }
 }
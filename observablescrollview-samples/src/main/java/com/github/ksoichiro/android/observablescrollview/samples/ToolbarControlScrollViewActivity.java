@@ -22,18 +22,12 @@ import android.support.v7.widget.Toolbar;
 import android.view.View;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
-import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 
-public class ToolbarControlScrollViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
+public class ToolbarControlScrollViewActivity extends BaseActivity {
 
-    private View mHeaderView;
-    private View mToolbarView;
+    private QuickReturnController mQuickReturnController;
     private ObservableScrollView mScrollView;
-    private int mBaseTranslationY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,54 +36,11 @@ public class ToolbarControlScrollViewActivity extends BaseActivity implements Ob
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
-        mToolbarView = findViewById(R.id.toolbar);
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
+        mQuickReturnController = new QuickReturnController(header, findViewById(R.id.toolbar));
 
         mScrollView = (ObservableScrollView) findViewById(R.id.scroll);
-        mScrollView.setScrollViewCallbacks(this);
-    }
-
-    @Override
-    public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        if (dragging) {
-            int toolbarHeight = mToolbarView.getHeight();
-            if (firstScroll) {
-                float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-                if (-toolbarHeight < currentHeaderTranslationY && toolbarHeight < scrollY) {
-                    mBaseTranslationY = scrollY;
-                }
-            }
-            float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-        }
-    }
-
-    @Override
-    public void onDownMotionEvent() {
-    }
-
-    @Override
-    public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-        mBaseTranslationY = 0;
-
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        int toolbarHeight = mToolbarView.getHeight();
-        if (scrollState == ScrollState.UP) {
-            if (toolbarHeight < mScrollView.getCurrentScrollY()) {
-                if (headerTranslationY != -toolbarHeight) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-                }
-            }
-        } else if (scrollState == ScrollState.DOWN) {
-            if (toolbarHeight < mScrollView.getCurrentScrollY()) {
-                if (headerTranslationY != 0) {
-                    ViewPropertyAnimator.animate(mHeaderView).cancel();
-                    ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-                }
-            }
-        }
+        mQuickReturnController.attachTo(mScrollView);
     }
 }
@@ -24,19 +24,13 @@ import android.view.View;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
 import com.github.ksoichiro.android.observablescrollview.ObservableWebView;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
 
 public class ToolbarControlWebViewActivity extends BaseActivity {
 
-    private View mHeaderView;
-    private View mToolbarView;
+    private QuickReturnController mQuickReturnController;
     private ObservableScrollView mScrollView;
-    private boolean mFirstScroll;
-    private boolean mDragging;
-    private int mBaseTranslationY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -45,65 +39,18 @@ public class ToolbarControlWebViewActivity extends BaseActivity {
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
-        mToolbarView = findViewById(R.id.toolbar);
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
+        mQuickReturnController = new QuickReturnController(header, findViewById(R.id.toolbar));
 
         mScrollView = (ObservableScrollView) findViewById(R.id.scroll);
-        mScrollView.setScrollViewCallbacks(mScrollViewScrollCallbacks);
+        mQuickReturnController.attachTo(mScrollView);
 
         ObservableWebView mWebView = (ObservableWebView) findViewById(R.id.web);
         mWebView.setScrollViewCallbacks(mWebViewScrollCallbacks);
         mWebView.loadUrl("file:///android_asset/lipsum.html");
     }
 
-    private ObservableScrollViewCallbacks mScrollViewScrollCallbacks = new ObservableScrollViewCallbacks() {
-        @Override
-        public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-            if (mDragging) {
-                int toolbarHeight = mToolbarView.getHeight();
-                if (mFirstScroll) {
-                    mFirstScroll = false;
-                    float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-                    if (-toolbarHeight < currentHeaderTranslationY && toolbarHeight < scrollY) {
-                        mBaseTranslationY = scrollY;
-                    }
-                }
-                float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-                ViewPropertyAnimator.animate(mHeaderView).cancel();
-                ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-            }
-        }
-
-        @Override
-        public void onDownMotionEvent() {
-        }
-
-        @Override
-        public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-            mDragging = false;
-            mBaseTranslationY = 0;
-
-            float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-            int toolbarHeight = mToolbarView.getHeight();
-            if (scrollState == ScrollState.UP) {
-                if (toolbarHeight < mScrollView.getCurrentScrollY()) {
-                    if (headerTranslationY != -toolbarHeight) {
-                        ViewPropertyAnimator.animate(mHeaderView).cancel();
-                        ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-                    }
-                }
-            } else if (scrollState == ScrollState.DOWN) {
-                if (toolbarHeight < mScrollView.getCurrentScrollY()) {
-                    if (headerTranslationY != 0) {
-                        ViewPropertyAnimator.animate(mHeaderView).cancel();
-                        ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-                    }
-                }
-            }
-        }
-    };
-
     private ObservableScrollViewCallbacks mWebViewScrollCallbacks = new ObservableScrollViewCallbacks() {
         @Override
         public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
@@ -113,7 +60,7 @@ public class ToolbarControlWebViewActivity extends BaseActivity {
         public void onDownMotionEvent() {
             // Workaround: WebView inside a ScrollView absorbs down motion events, so observing
             // down motion event from the WebView is required.
-            mFirstScroll = mDragging = true;
+            mQuickReturnController.onDownMotionEvent();
         }
 
         @Override
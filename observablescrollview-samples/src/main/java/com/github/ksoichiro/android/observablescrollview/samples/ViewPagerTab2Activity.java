@@ -30,14 +30,14 @@ import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
+import com.github.ksoichiro.android.observablescrollview.PageScrollStateStore;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 import com.github.ksoichiro.android.observablescrollview.Scrollable;
+import com.github.ksoichiro.android.observablescrollview.SlidingTabLayout;
 import com.github.ksoichiro.android.observablescrollview.TouchInterceptionFrameLayout;
-import com.google.samples.apps.iosched.ui.widget.SlidingTabLayout;
-import com.nineoldandroids.animation.ValueAnimator;
-import com.nineoldandroids.view.ViewHelper;
 
 /**
  * Another implementation of ViewPagerTabActivity.
@@ -50,11 +50,13 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
 
     private View mToolbarView;
     private TouchInterceptionFrameLayout mInterceptionLayout;
+    private QuickReturnController mQuickReturnController;
     private ViewPager mPager;
     private NavigationAdapter mPagerAdapter;
     private int mSlop;
     private boolean mScrolled;
     private ScrollState mLastScrollState;
+    private float mPrevDiffY;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -83,6 +85,19 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
         mSlop = vc.getScaledTouchSlop();
         mInterceptionLayout = (TouchInterceptionFrameLayout) findViewById(R.id.container);
         mInterceptionLayout.setScrollInterceptionListener(mInterceptionListener);
+        // Predict the touch position of the next frame so that the toolbar follows the finger closely
+        mInterceptionLayout.setTouchPrediction(16);
+        mQuickReturnController = new QuickReturnController(mInterceptionLayout, mToolbarView);
+        LayoutReadyScheduler.schedule(mInterceptionLayout, new Runnable() {
+            @Override
+            public void run() {
+                // Make the container tall enough to fill the screen while the toolbar is hidden,
+                // so that it's only translated while the toolbar moves.
+                FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mInterceptionLayout.getLayoutParams();
+                lp.height = getScreenHeight() + mQuickReturnController.getHideHeight();
+                mInterceptionLayout.requestLayout();
+            }
+        });
     }
 
     @Override
@@ -119,7 +134,7 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
             // If interceptionLayout can move, it should intercept.
             // And once it begins to move, horizontal scroll shouldn't work any longer.
             int toolbarHeight = mToolbarView.getHeight();
-            int translationY = (int) ViewHelper.getTranslationY(mInterceptionLayout);
+            int translationY = (int) mQuickReturnController.getTranslationY();
             boolean scrollingUp = 0 < diffY;
             boolean scrollingDown = diffY < 0;
             if (scrollingUp) {
@@ -141,17 +156,15 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
 
         @Override
         public void onDownMotionEvent(MotionEvent ev) {
+            mPrevDiffY = 0;
         }
 
         @Override
         public void onMoveMotionEvent(MotionEvent ev, float diffX, float diffY) {
-            float translationY = ScrollUtils.getFloat(ViewHelper.getTranslationY(mInterceptionLayout) + diffY, -mToolbarView.getHeight(), 0);
-            ViewHelper.setTranslationY(mInterceptionLayout, translationY);
-            if (translationY < 0) {
-                FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mInterceptionLayout.getLayoutParams();
-                lp.height = (int) (-translationY + getScreenHeight());
-                mInterceptionLayout.requestLayout();
-            }
+            // diffY is from the down motion and includes the predicted distance,
+            // so move by the difference from the previous one.
+            mQuickReturnController.moveBy(diffY - mPrevDiffY);
+            mPrevDiffY = diffY;
         }
 
         @Override
@@ -174,67 +187,17 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
     }
 
     private void adjustToolbar(ScrollState scrollState) {
-        int toolbarHeight = mToolbarView.getHeight();
         final Scrollable scrollable = getCurrentScrollable();
         if (scrollable == null) {
             return;
         }
-        int scrollY = scrollable.getCurrentScrollY();
-        if (scrollState == ScrollState.DOWN) {
-            showToolbar();
-        } else if (scrollState == ScrollState.UP) {
-            if (toolbarHeight <= scrollY) {
-                hideToolbar();
-            } else {
-                showToolbar();
-            }
-        } else if (!toolbarIsShown() && !toolbarIsHidden()) {
-            // Toolbar is moving but doesn't know which to move:
-            // you can change this to hideToolbar()
-            showToolbar();
-        }
+        mQuickReturnController.settle(scrollState, scrollable.getCurrentScrollY());
     }
 
     private Fragment getCurrentFragment() {
         return mPagerAdapter.getItemAt(mPager.getCurrentItem());
     }
 
-    private boolean toolbarIsShown() {
-        return ViewHelper.getTranslationY(mInterceptionLayout) == 0;
-    }
-
-    private boolean toolbarIsHidden() {
-        return ViewHelper.getTranslationY(mInterceptionLayout) == -mToolbarView.getHeight();
-    }
-
-    private void showToolbar() {
-        animateToolbar(0);
-    }
-
-    private void hideToolbar() {
-        animateToolbar(-mToolbarView.getHeight());
-    }
-
-    private void animateToolbar(final float toY) {
-        float layoutTranslationY = ViewHelper.getTranslationY(mInterceptionLayout);
-        if (layoutTranslationY != toY) {
-            ValueAnimator animator = ValueAnimator.ofFloat(ViewHelper.getTranslationY(mInterceptionLayout), toY).setDuration(200);
-            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    float translationY = (float) animation.getAnimatedValue();
-                    ViewHelper.setTranslationY(mInterceptionLayout, translationY);
-                    if (translationY < 0) {
-                        FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mInterceptionLayout.getLayoutParams();
-                        lp.height = (int) (-translationY + getScreenHeight());
-                        mInterceptionLayout.requestLayout();
-                    }
-                }
-            });
-            animator.start();
-        }
-    }
-
     /**
      * This adapter provides two types of fragments as an example.
      * {@linkplain #getItem(int)} should be modified if you use this example for your app.
@@ -244,10 +207,12 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
         private static final String[] TITLES = new String[]{"Applepie", "Butter Cookie", "Cupcake", "Donut", "Eclair", "Froyo", "Gingerbread", "Honeycomb", "Ice Cream Sandwich", "Jelly Bean", "KitKat", "Lollipop"};
 
         private SparseArray<Fragment> mPages;
+        private PageScrollStateStore mScrollStateStore;
 
         public NavigationAdapter(FragmentManager fm) {
             super(fm);
             mPages = new SparseArray<Fragment>();
+            mScrollStateStore = new PageScrollStateStore();
         }
 
         @Override
@@ -289,11 +254,29 @@ public class ViewPagerTab2Activity extends BaseActivity implements ObservableScr
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
             if (0 <= mPages.indexOfKey(position)) {
+                View view = mPages.get(position).getView();
+                if (view != null) {
+                    mScrollStateStore.save(position, (Scrollable) view.findViewById(R.id.scroll));
+                }
                 mPages.remove(position);
             }
             super.destroyItem(container, position, object);
         }
 
+        @Override
+        public void finishUpdate(ViewGroup container) {
+            super.finishUpdate(container);
+            // Views of the new pages have been created here,
+            // so restore the scroll positions of the pages that were destroyed.
+            for (int i = 0; i < mPages.size(); i++) {
+                int position = mPages.keyAt(i);
+                View view = mPages.valueAt(i).getView();
+                if (view != null) {
+                    mScrollStateStore.restore(position, (Scrollable) view.findViewById(R.id.scroll));
+                }
+            }
+        }
+
         @Override
         public CharSequence getPageTitle(int position) {
             return TITLES[position];
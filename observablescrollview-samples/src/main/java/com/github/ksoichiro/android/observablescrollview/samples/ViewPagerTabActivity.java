@@ -28,12 +28,12 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
+import com.github.ksoichiro.android.observablescrollview.PageScrollStateStore;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
+import com.github.ksoichiro.android.observablescrollview.ScrollSyncCoordinator;
 import com.github.ksoichiro.android.observablescrollview.Scrollable;
-import com.google.samples.apps.iosched.ui.widget.SlidingTabLayout;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
+import com.github.ksoichiro.android.observablescrollview.SlidingTabLayout;
 
 /**
  * This is an example of ViewPager + SlidingTab + ListView/ScrollView.
@@ -44,11 +44,11 @@ import com.nineoldandroids.view.ViewPropertyAnimator;
  */
 public class ViewPagerTabActivity extends BaseActivity implements ObservableScrollViewCallbacks {
 
-    private View mHeaderView;
     private View mToolbarView;
-    private int mBaseTranslationY;
+    private QuickReturnController mQuickReturnController;
     private ViewPager mPager;
     private NavigationAdapter mPagerAdapter;
+    private ScrollSyncCoordinator mScrollSyncCoordinator;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,10 +57,22 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
         mToolbarView = findViewById(R.id.toolbar);
-        mPagerAdapter = new NavigationAdapter(getSupportFragmentManager());
+        mQuickReturnController = new QuickReturnController(header, mToolbarView);
+        mQuickReturnController.setQuickReturnListener(new QuickReturnController.QuickReturnListener() {
+            @Override
+            public void onTranslationChanged(float translationY) {
+            }
+
+            @Override
+            public void onVisibilityChanged(boolean shown) {
+                propagateToolbarState(shown);
+            }
+        });
+        mScrollSyncCoordinator = new ScrollSyncCoordinator();
+        mPagerAdapter = new NavigationAdapter(getSupportFragmentManager(), mScrollSyncCoordinator);
         mPager = (ViewPager) findViewById(R.id.pager);
         mPager.setAdapter(mPagerAdapter);
 
@@ -70,16 +82,29 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
         slidingTabLayout.setDistributeEvenly(true);
         slidingTabLayout.setViewPager(mPager);
 
-        // When the page is selected, other fragments' scrollY should be adjusted
-        // according to the toolbar status(shown/hidden)
+        // When the page is shown, its scrollY should be adjusted
+        // according to the toolbar status(shown/hidden).
+        // ScrollSyncCoordinator does it only for the page that is being shown.
         slidingTabLayout.setOnPageChangeListener(new ViewPager.OnPageChangeListener() {
             @Override
-            public void onPageScrolled(int i, float v, int i2) {
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                if (0 < positionOffset) {
+                    // Adjust the page that is being swiped in before it's shown
+                    int nextPosition = position == mPager.getCurrentItem() ? position + 1 : position;
+                    Scrollable scrollable = getScrollableAt(nextPosition);
+                    if (scrollable != null) {
+                        mScrollSyncCoordinator.register(scrollable);
+                        mScrollSyncCoordinator.applyPendingScroll(scrollable);
+                    }
+                }
             }
 
             @Override
             public void onPageSelected(int i) {
-                propagateToolbarState(toolbarIsShown());
+                Scrollable scrollable = getScrollableAt(i);
+                if (scrollable != null) {
+                    mScrollSyncCoordinator.setActiveScrollable(scrollable);
+                }
             }
 
             @Override
@@ -87,32 +112,24 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
             }
         });
 
-        propagateToolbarState(toolbarIsShown());
+        propagateToolbarState(mQuickReturnController.isShown());
     }
 
     @Override
     public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        if (dragging) {
-            int toolbarHeight = mToolbarView.getHeight();
-            float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-            if (firstScroll) {
-                if (-toolbarHeight < currentHeaderTranslationY) {
-                    mBaseTranslationY = scrollY;
-                }
-            }
-            float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-        }
+        mQuickReturnController.onScrollChanged(scrollY, firstScroll, dragging);
     }
 
     @Override
     public void onDownMotionEvent() {
+        mQuickReturnController.onDownMotionEvent();
     }
 
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-        mBaseTranslationY = 0;
+        // QuickReturnController shows or hides the toolbar,
+        // and the state is propagated to other pages with its listener.
+        mQuickReturnController.onUpOrCancelMotionEvent(scrollState);
 
         Fragment fragment = getCurrentFragment();
         if (fragment == null) {
@@ -123,114 +140,39 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
             return;
         }
 
-        // ObservableXxxViews have same API
-        // but currently they don't have any common interfaces.
-        adjustToolbar(scrollState, view);
-    }
-
-    private void adjustToolbar(ScrollState scrollState, View view) {
-        int toolbarHeight = mToolbarView.getHeight();
         final Scrollable scrollView = (Scrollable) view.findViewById(R.id.scroll);
         if (scrollView == null) {
             return;
         }
-        int scrollY = scrollView.getCurrentScrollY();
-        if (scrollState == ScrollState.DOWN) {
-            showToolbar();
-        } else if (scrollState == ScrollState.UP) {
-            if (toolbarHeight <= scrollY) {
-                hideToolbar();
-            } else {
-                showToolbar();
-            }
-        } else {
-            // Even if onScrollChanged occurs without scrollY changing, toolbar should be adjusted
-            if (toolbarIsShown() || toolbarIsHidden()) {
-                // Toolbar is completely moved, so just keep its state
-                // and propagate it to other pages
-                propagateToolbarState(toolbarIsShown());
-            } else {
-                // Toolbar is moving but doesn't know which to move:
-                // you can change this to hideToolbar()
-                showToolbar();
-            }
-        }
+        mScrollSyncCoordinator.setActiveScrollable(scrollView);
     }
 
     private Fragment getCurrentFragment() {
         return mPagerAdapter.getItemAt(mPager.getCurrentItem());
     }
 
-    private void propagateToolbarState(boolean isShown) {
-        int toolbarHeight = mToolbarView.getHeight();
-
-        // Set scrollY for the fragments that are not created yet
-        mPagerAdapter.setScrollY(isShown ? 0 : toolbarHeight);
-
-        // Set scrollY for the active fragments
-        for (int i = 0; i < mPagerAdapter.getCount(); i++) {
-            // Skip current item
-            if (i == mPager.getCurrentItem()) {
-                continue;
-            }
-
-            // Skip destroyed or not created item
-            Fragment f = mPagerAdapter.getItemAt(i);
-            if (f == null) {
-                continue;
-            }
-
-            View view = f.getView();
-            if (view == null) {
-                continue;
-            }
-            propagateToolbarState(isShown, view, toolbarHeight);
-        }
-    }
-
-    private void propagateToolbarState(boolean isShown, View view, int toolbarHeight) {
-        Scrollable scrollView = (Scrollable) view.findViewById(R.id.scroll);
-        if (scrollView == null) {
-            return;
+    private Scrollable getScrollableAt(int position) {
+        // Skip destroyed or not created item
+        Fragment f = mPagerAdapter.getItemAt(position);
+        if (f == null) {
+            return null;
         }
-        if (isShown) {
-            // Scroll up
-            if (0 < scrollView.getCurrentScrollY()) {
-                scrollView.scrollVerticallyTo(0);
-            }
-        } else {
-            // Scroll down (to hide padding)
-            if (scrollView.getCurrentScrollY() < toolbarHeight) {
-                scrollView.scrollVerticallyTo(toolbarHeight);
-            }
+        View view = f.getView();
+        if (view == null) {
+            return null;
         }
+        return (Scrollable) view.findViewById(R.id.scroll);
     }
 
-    private boolean toolbarIsShown() {
-        return ViewHelper.getTranslationY(mHeaderView) == 0;
-    }
-
-    private boolean toolbarIsHidden() {
-        return ViewHelper.getTranslationY(mHeaderView) == -mToolbarView.getHeight();
-    }
+    private void propagateToolbarState(boolean isShown) {
+        int toolbarHeight = mToolbarView.getHeight();
 
-    private void showToolbar() {
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        if (headerTranslationY != 0) {
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-        }
-        propagateToolbarState(true);
-    }
+        // Set scrollY for the fragments that are not created yet
+        mPagerAdapter.setScrollY(isShown ? 0 : toolbarHeight);
 
-    private void hideToolbar() {
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        int toolbarHeight = mToolbarView.getHeight();
-        if (headerTranslationY != -toolbarHeight) {
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-        }
-        propagateToolbarState(false);
+        // Created fragments are not scrolled here.
+        // They will be scrolled when they become visible.
+        mScrollSyncCoordinator.setHeaderOffset(isShown ? 0 : toolbarHeight);
     }
 
     /**
@@ -243,10 +185,14 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
 
         private SparseArray<Fragment> mPages;
         private int mScrollY;
+        private ScrollSyncCoordinator mScrollSyncCoordinator;
+        private PageScrollStateStore mScrollStateStore;
 
-        public NavigationAdapter(FragmentManager fm) {
+        public NavigationAdapter(FragmentManager fm, ScrollSyncCoordinator scrollSyncCoordinator) {
             super(fm);
             mPages = new SparseArray<Fragment>();
+            mScrollSyncCoordinator = scrollSyncCoordinator;
+            mScrollStateStore = new PageScrollStateStore();
         }
 
         public void setScrollY(int scrollY) {
@@ -306,11 +252,31 @@ public class ViewPagerTabActivity extends BaseActivity implements ObservableScro
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
             if (0 <= mPages.indexOfKey(position)) {
+                View view = mPages.get(position).getView();
+                if (view != null) {
+                    Scrollable scrollable = (Scrollable) view.findViewById(R.id.scroll);
+                    mScrollStateStore.save(position, scrollable);
+                    mScrollSyncCoordinator.unregister(scrollable);
+                }
                 mPages.remove(position);
             }
             super.destroyItem(container, position, object);
         }
 
+        @Override
+        public void finishUpdate(ViewGroup container) {
+            super.finishUpdate(container);
+            // Views of the new pages have been created here,
+            // so restore the scroll positions of the pages that were destroyed.
+            for (int i = 0; i < mPages.size(); i++) {
+                int position = mPages.keyAt(i);
+                View view = mPages.valueAt(i).getView();
+                if (view != null) {
+                    mScrollStateStore.restore(position, (Scrollable) view.findViewById(R.id.scroll));
+                }
+            }
+        }
+
         @Override
         public CharSequence getPageTitle(int position) {
             return TITLES[position];
@@ -22,9 +22,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableListView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 
 public class ViewPagerTabListViewFragment extends BaseFragment {
 
@@ -43,7 +43,7 @@ public class ViewPagerTabListViewFragment extends BaseFragment {
             Bundle args = getArguments();
             if (args != null && args.containsKey(ARG_INITIAL_POSITION)) {
                 final int initialPosition = args.getInt(ARG_INITIAL_POSITION, 0);
-                ScrollUtils.addOnGlobalLayoutListener(listView, new Runnable() {
+                LayoutReadyScheduler.schedule(listView, new Runnable() {
                     @Override
                     public void run() {
                         // scrollTo() doesn't work, should use setSelection()
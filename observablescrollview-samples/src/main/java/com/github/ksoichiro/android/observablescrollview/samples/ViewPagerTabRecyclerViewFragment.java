@@ -23,9 +23,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableRecyclerView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 
 public class ViewPagerTabRecyclerViewFragment extends BaseFragment {
 
@@ -47,7 +47,7 @@ public class ViewPagerTabRecyclerViewFragment extends BaseFragment {
             Bundle args = getArguments();
             if (args != null && args.containsKey(ARG_INITIAL_POSITION)) {
                 final int initialPosition = args.getInt(ARG_INITIAL_POSITION, 0);
-                ScrollUtils.addOnGlobalLayoutListener(recyclerView, new Runnable() {
+                LayoutReadyScheduler.schedule(recyclerView, new Runnable() {
                     @Override
                     public void run() {
                         recyclerView.scrollVerticallyToPosition(initialPosition);
@@ -29,11 +29,9 @@ import android.view.ViewGroup;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
+import com.github.ksoichiro.android.observablescrollview.QuickReturnController;
 import com.github.ksoichiro.android.observablescrollview.ScrollState;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
-import com.google.samples.apps.iosched.ui.widget.SlidingTabLayout;
-import com.nineoldandroids.view.ViewHelper;
-import com.nineoldandroids.view.ViewPropertyAnimator;
+import com.github.ksoichiro.android.observablescrollview.SlidingTabLayout;
 
 /**
  * SlidingTabLayout and SlidingTabStrip are from google/iosched:
@@ -41,9 +39,8 @@ import com.nineoldandroids.view.ViewPropertyAnimator;
  */
 public class ViewPagerTabScrollViewActivity extends BaseActivity implements ObservableScrollViewCallbacks {
 
-    private View mHeaderView;
     private View mToolbarView;
-    private int mBaseTranslationY;
+    private QuickReturnController mQuickReturnController;
     private ViewPager mPager;
     private NavigationAdapter mPagerAdapter;
 
@@ -54,9 +51,20 @@ public class ViewPagerTabScrollViewActivity extends BaseActivity implements Obse
 
         setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
 
-        mHeaderView = findViewById(R.id.header);
-        ViewCompat.setElevation(mHeaderView, getResources().getDimension(R.dimen.toolbar_elevation));
+        View header = findViewById(R.id.header);
+        ViewCompat.setElevation(header, getResources().getDimension(R.dimen.toolbar_elevation));
         mToolbarView = findViewById(R.id.toolbar);
+        mQuickReturnController = new QuickReturnController(header, mToolbarView);
+        mQuickReturnController.setQuickReturnListener(new QuickReturnController.QuickReturnListener() {
+            @Override
+            public void onTranslationChanged(float translationY) {
+            }
+
+            @Override
+            public void onVisibilityChanged(boolean shown) {
+                propagateToolbarState(shown);
+            }
+        });
         mPagerAdapter = new NavigationAdapter(getSupportFragmentManager());
         mPager = (ViewPager) findViewById(R.id.pager);
         mPager.setAdapter(mPagerAdapter);
@@ -76,7 +84,7 @@ public class ViewPagerTabScrollViewActivity extends BaseActivity implements Obse
 
             @Override
             public void onPageSelected(int i) {
-                propagateToolbarState(toolbarIsShown());
+                propagateToolbarState(mQuickReturnController.isShown());
             }
 
             @Override
@@ -84,72 +92,24 @@ public class ViewPagerTabScrollViewActivity extends BaseActivity implements Obse
             }
         });
 
-        propagateToolbarState(toolbarIsShown());
+        propagateToolbarState(mQuickReturnController.isShown());
     }
 
     @Override
     public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
-        if (dragging) {
-            int toolbarHeight = mToolbarView.getHeight();
-            float currentHeaderTranslationY = ViewHelper.getTranslationY(mHeaderView);
-            if (firstScroll) {
-                if (-toolbarHeight < currentHeaderTranslationY) {
-                    mBaseTranslationY = scrollY;
-                }
-            }
-            float headerTranslationY = ScrollUtils.getFloat(-(scrollY - mBaseTranslationY), -toolbarHeight, 0);
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewHelper.setTranslationY(mHeaderView, headerTranslationY);
-        }
+        mQuickReturnController.onScrollChanged(scrollY, firstScroll, dragging);
     }
 
     @Override
     public void onDownMotionEvent() {
+        mQuickReturnController.onDownMotionEvent();
     }
 
     @Override
     public void onUpOrCancelMotionEvent(ScrollState scrollState) {
-        mBaseTranslationY = 0;
-
-        Fragment fragment = getCurrentFragment();
-        if (fragment == null) {
-            return;
-        }
-        View view = fragment.getView();
-        if (view == null) {
-            return;
-        }
-
-        int toolbarHeight = mToolbarView.getHeight();
-        final ObservableScrollView scrollView = (ObservableScrollView) view.findViewById(R.id.scroll);
-        if (scrollView == null) {
-            return;
-        }
-        int scrollY = scrollView.getCurrentScrollY();
-        if (scrollState == ScrollState.DOWN) {
-            showToolbar();
-        } else if (scrollState == ScrollState.UP) {
-            if (toolbarHeight <= scrollY) {
-                hideToolbar();
-            } else {
-                showToolbar();
-            }
-        } else {
-            // Even if onScrollChanged occurs without scrollY changing, toolbar should be adjusted
-            if (toolbarIsShown() || toolbarIsHidden()) {
-                // Toolbar is completely moved, so just keep its state
-                // and propagate it to other pages
-                propagateToolbarState(toolbarIsShown());
-            } else {
-                // Toolbar is moving but doesn't know which to move:
-                // you can change this to hideToolbar()
-                showToolbar();
-            }
-        }
-    }
-
-    private Fragment getCurrentFragment() {
-        return mPagerAdapter.getItemAt(mPager.getCurrentItem());
+        // QuickReturnController shows or hides the toolbar,
+        // and the state is propagated to other pages with its listener.
+        mQuickReturnController.onUpOrCancelMotionEvent(scrollState);
     }
 
     private void propagateToolbarState(boolean isShown) {
@@ -186,32 +146,6 @@ public class ViewPagerTabScrollViewActivity extends BaseActivity implements Obse
         }
     }
 
-    private boolean toolbarIsShown() {
-        return ViewHelper.getTranslationY(mHeaderView) == 0;
-    }
-    private boolean toolbarIsHidden() {
-        return ViewHelper.getTranslationY(mHeaderView) == -mToolbarView.getHeight();
-    }
-
-    private void showToolbar() {
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        if (headerTranslationY != 0) {
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewPropertyAnimator.animate(mHeaderView).translationY(0).setDuration(200).start();
-        }
-        propagateToolbarState(true);
-    }
-
-    private void hideToolbar() {
-        float headerTranslationY = ViewHelper.getTranslationY(mHeaderView);
-        int toolbarHeight = mToolbarView.getHeight();
-        if (headerTranslationY != -toolbarHeight) {
-            ViewPropertyAnimator.animate(mHeaderView).cancel();
-            ViewPropertyAnimator.animate(mHeaderView).translationY(-toolbarHeight).setDuration(200).start();
-        }
-        propagateToolbarState(false);
-    }
-
     private static class NavigationAdapter extends FragmentStatePagerAdapter {
 
         private static final String[] TITLES = new String[]{"Applepie", "Butter Cookie", "Cupcake", "Donut", "Eclair", "Froyo", "Gingerbread", "Honeycomb", "Ice Cream Sandwich", "Jelly Bean", "KitKat", "Lollipop"};
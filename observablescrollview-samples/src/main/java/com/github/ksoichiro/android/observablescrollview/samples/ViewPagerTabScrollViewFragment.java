@@ -22,9 +22,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.github.ksoichiro.android.observablescrollview.LayoutReadyScheduler;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
-import com.github.ksoichiro.android.observablescrollview.ScrollUtils;
 
 public class ViewPagerTabScrollViewFragment extends BaseFragment {
 
@@ -41,7 +41,7 @@ public class ViewPagerTabScrollViewFragment extends BaseFragment {
             Bundle args = getArguments();
             if (args != null && args.containsKey(ARG_SCROLL_Y)) {
                 final int scrollY = args.getInt(ARG_SCROLL_Y, 0);
-                ScrollUtils.addOnGlobalLayoutListener(scrollView, new Runnable() {
+                LayoutReadyScheduler.schedule(scrollView, new Runnable() {
                     @Override
                     public void run() {
                         scrollView.scrollTo(0, scrollY);
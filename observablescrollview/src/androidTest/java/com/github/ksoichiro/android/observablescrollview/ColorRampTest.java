@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import junit.framework.TestCase;
+
+public class ColorRampTest extends TestCase {
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+
+    public void testEnds() {
+        ColorRamp ramp = new ColorRamp(RED, BLUE);
+        assertEquals(ColorRamp.DEFAULT_RESOLUTION, ramp.getResolution());
+        assertEquals(ScrollUtils.mixColors(RED, BLUE, 0), ramp.colorAt(0));
+        assertEquals(ScrollUtils.mixColors(RED, BLUE, 1), ramp.colorAt(1));
+    }
+
+    public void testOutOfRangeIsClamped() {
+        ColorRamp ramp = new ColorRamp(RED, BLUE);
+        assertEquals(ramp.colorAt(0), ramp.colorAt(-0.5f));
+        assertEquals(ramp.colorAt(1), ramp.colorAt(1.5f));
+    }
+
+    public void testSameAsMixColors() {
+        ColorRamp ramp = new ColorRamp(new int[]{RED, BLUE}, 5);
+        for (int i = 0; i < 5; i++) {
+            float fraction = i / 4f;
+            assertEquals(ScrollUtils.mixColors(RED, BLUE, fraction), ramp.colorAt(fraction));
+        }
+    }
+
+    public void testStops() {
+        ColorRamp ramp = new ColorRamp(new int[]{RED, GREEN, BLUE}, 5);
+        assertEquals(ScrollUtils.mixColors(RED, GREEN, 0.5f), ramp.colorAt(0.25f));
+        assertEquals(ScrollUtils.mixColors(GREEN, BLUE, 0), ramp.colorAt(0.5f));
+        assertEquals(ScrollUtils.mixColors(GREEN, BLUE, 0.5f), ramp.colorAt(0.75f));
+        assertEquals(ScrollUtils.mixColors(GREEN, BLUE, 1), ramp.colorAt(1));
+    }
+
+    public void testInvalidArguments() {
+        try {
+            new ColorRamp(new int[]{RED, BLUE}, 1);
+            fail("resolution less than 2 should not be accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ColorRamp(new int[]{RED}, 2);
+            fail("less than 2 colors should not be accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
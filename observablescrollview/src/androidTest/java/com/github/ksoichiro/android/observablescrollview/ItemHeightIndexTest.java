@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.util.SparseIntArray;
+
+import junit.framework.TestCase;
+
+public class ItemHeightIndexTest extends TestCase {
+    private static final int TYPE_A = 0;
+    private static final int TYPE_B = 1;
+
+    private ItemHeightIndex mIndex;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIndex = new ItemHeightIndex();
+    }
+
+    public void testEstimatedOffsetOfMeasuredItems() {
+        mIndex.setItemCount(3);
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(1, 50, TYPE_A);
+        mIndex.put(2, 30, TYPE_A);
+        assertEquals(0, mIndex.getEstimatedOffset(0));
+        assertEquals(100, mIndex.getEstimatedOffset(1));
+        assertEquals(150, mIndex.getEstimatedOffset(2));
+        assertEquals(180, mIndex.getEstimatedOffset(3));
+    }
+
+    public void testEstimatedOffsetOfUnmeasuredItems() {
+        mIndex.setItemCount(5);
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(2, 200, TYPE_A);
+        // Unmeasured items are estimated with the average, 150
+        assertEquals(250, mIndex.getEstimatedOffset(2));
+        assertEquals(450, mIndex.getEstimatedOffset(3));
+        assertEquals(600, mIndex.getEstimatedOffset(4));
+        assertEquals(750, mIndex.getEstimatedOffset(5));
+    }
+
+    public void testPutUpdatesBuiltTree() {
+        mIndex.setItemCount(3);
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(1, 50, TYPE_A);
+        mIndex.put(2, 30, TYPE_A);
+        assertEquals(180, mIndex.getEstimatedOffset(3));
+
+        mIndex.put(1, 70, TYPE_A);
+        assertEquals(100, mIndex.getEstimatedOffset(1));
+        assertEquals(170, mIndex.getEstimatedOffset(2));
+        assertEquals(200, mIndex.getEstimatedOffset(3));
+    }
+
+    public void testFindPositionAt() {
+        mIndex.setItemCount(3);
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(1, 50, TYPE_A);
+        mIndex.put(2, 30, TYPE_A);
+        assertEquals(0, mIndex.findPositionAt(-1));
+        assertEquals(0, mIndex.findPositionAt(0));
+        assertEquals(0, mIndex.findPositionAt(99));
+        assertEquals(1, mIndex.findPositionAt(100));
+        assertEquals(1, mIndex.findPositionAt(149));
+        assertEquals(2, mIndex.findPositionAt(150));
+        assertEquals(2, mIndex.findPositionAt(10000));
+    }
+
+    public void testFindPositionAtIsInverseOfEstimatedOffset() {
+        mIndex.setItemCount(100);
+        for (int i = 0; i < 100; i += 3) {
+            mIndex.put(i, 10 + i, TYPE_A);
+        }
+        for (int i = 0; i < 100; i++) {
+            int offset = mIndex.getEstimatedOffset(i);
+            assertEquals(i, mIndex.findPositionAt(offset));
+        }
+    }
+
+    public void testInsertPositions() {
+        mIndex.setItemCount(3);
+        mIndex.put(0, 10, TYPE_A);
+        mIndex.put(1, 20, TYPE_A);
+        mIndex.put(2, 30, TYPE_A);
+        mIndex.insertPositions(1, 2);
+
+        assertEquals(5, mIndex.getItemCount());
+        assertEquals(10, mIndex.get(0));
+        assertFalse(mIndex.contains(1));
+        assertFalse(mIndex.contains(2));
+        assertEquals(20, mIndex.get(3));
+        assertEquals(30, mIndex.get(4));
+        // Inserted items are estimated with the average, 20
+        assertEquals(50, mIndex.getEstimatedOffset(3));
+        assertEquals(100, mIndex.getEstimatedTotalHeight());
+    }
+
+    public void testRemovePositions() {
+        mIndex.setItemCount(4);
+        mIndex.put(0, 10, TYPE_A);
+        mIndex.put(1, 20, TYPE_A);
+        mIndex.put(2, 30, TYPE_A);
+        mIndex.put(3, 40, TYPE_A);
+        mIndex.removePositions(1, 2);
+
+        assertEquals(2, mIndex.getItemCount());
+        assertEquals(10, mIndex.get(0));
+        assertEquals(40, mIndex.get(1));
+        assertFalse(mIndex.contains(2));
+        assertFalse(mIndex.contains(3));
+        assertEquals(10, mIndex.getEstimatedOffset(1));
+        assertEquals(50, mIndex.getEstimatedTotalHeight());
+    }
+
+    public void testRestore() {
+        SparseIntArray heights = new SparseIntArray();
+        heights.put(5, 100);
+        heights.put(6, 200);
+        mIndex.put(0, 1000, TYPE_A);
+        mIndex.restore(heights);
+        mIndex.setItemCount(8);
+
+        assertFalse(mIndex.contains(0));
+        assertEquals(100, mIndex.get(5));
+        assertEquals(200, mIndex.get(6));
+        // 5 unmeasured items with the average 150, and the restored ones
+        assertEquals(750, mIndex.getEstimatedOffset(5));
+        assertEquals(1050, mIndex.getEstimatedOffset(7));
+    }
+
+    public void testUntypedPositionsUseAverageOfAllItems() {
+        SparseIntArray heights = new SparseIntArray();
+        heights.put(0, 100);
+        mIndex.restore(heights);
+        mIndex.setItemCount(3);
+        mIndex.put(1, 300, TYPE_A);
+
+        // Average of all the measured items, not only the restored ones
+        assertEquals(600, mIndex.getEstimatedOffset(3));
+        assertEquals(2, mIndex.findPositionAt(400));
+    }
+
+    public void testEstimatedHeightByType() {
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(1, 300, TYPE_B);
+        mIndex.put(2, 200, TYPE_B);
+
+        assertEquals(100, mIndex.getEstimatedHeight(TYPE_A));
+        assertEquals(250, mIndex.getEstimatedHeight(TYPE_B));
+        // No items of the type: average of all the items
+        assertEquals(200, mIndex.getEstimatedHeight(2));
+    }
+
+    public void testEstimatedTotalHeightByType() {
+        mIndex.beginItemTypes(4);
+        mIndex.addItemType(TYPE_A);
+        mIndex.addItemType(TYPE_B);
+        mIndex.addItemType(TYPE_A);
+        mIndex.addItemType(TYPE_B);
+        mIndex.put(0, 100, TYPE_A);
+        mIndex.put(1, 300, TYPE_B);
+
+        assertEquals(800, mIndex.getEstimatedTotalHeight());
+
+        mIndex.setItemType(3, TYPE_A);
+        assertEquals(600, mIndex.getEstimatedTotalHeight());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import junit.framework.TestCase;
+
+public class LongSparseIntArrayTest extends TestCase {
+
+    public void testPutAndGet() {
+        LongSparseIntArray array = new LongSparseIntArray();
+        array.put(1L << 40, 1);
+        array.put(-5, 2);
+        array.put(3, 3);
+
+        assertEquals(3, array.size());
+        assertEquals(1, array.get(1L << 40, -1));
+        assertEquals(2, array.get(-5, -1));
+        assertEquals(3, array.get(3, -1));
+        assertEquals(-1, array.get(4, -1));
+    }
+
+    public void testKeysAreSorted() {
+        LongSparseIntArray array = new LongSparseIntArray();
+        array.put(30, 3);
+        array.put(10, 1);
+        array.put(20, 2);
+
+        assertEquals(10, array.keyAt(0));
+        assertEquals(20, array.keyAt(1));
+        assertEquals(30, array.keyAt(2));
+        assertEquals(1, array.valueAt(0));
+        assertEquals(2, array.valueAt(1));
+        assertEquals(3, array.valueAt(2));
+    }
+
+    public void testReplace() {
+        LongSparseIntArray array = new LongSparseIntArray();
+        array.put(10, 1);
+        array.put(10, 2);
+
+        assertEquals(1, array.size());
+        assertEquals(2, array.get(10, -1));
+    }
+
+    public void testGrow() {
+        LongSparseIntArray array = new LongSparseIntArray();
+        for (int i = 99; 0 <= i; i--) {
+            array.put(i, i * 2);
+        }
+        assertEquals(100, array.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, array.keyAt(i));
+            assertEquals(i * 2, array.get(i, -1));
+        }
+    }
+
+    public void testClear() {
+        LongSparseIntArray array = new LongSparseIntArray();
+        array.put(10, 1);
+        array.clear();
+
+        assertEquals(0, array.size());
+        assertEquals(-1, array.get(10, -1));
+    }
+}
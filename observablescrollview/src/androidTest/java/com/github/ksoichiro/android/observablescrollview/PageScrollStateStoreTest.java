@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import junit.framework.TestCase;
+
+public class PageScrollStateStoreTest extends TestCase {
+    private PageScrollStateStore mStore;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mStore = new PageScrollStateStore();
+    }
+
+    public void testSaveAndRestore() {
+        mStore.save(1, new FakeScrollable(300));
+        assertTrue(mStore.contains(1));
+        assertEquals(300, mStore.getScrollY(1, -1));
+
+        FakeScrollable scrollable = new FakeScrollable(0);
+        assertTrue(mStore.restore(1, scrollable));
+        assertEquals(300, scrollable.getCurrentScrollY());
+    }
+
+    public void testRestoredOnlyOnce() {
+        mStore.save(1, new FakeScrollable(300));
+        mStore.restore(1, new FakeScrollable(0));
+
+        assertFalse(mStore.contains(1));
+        assertEquals(-1, mStore.getScrollY(1, -1));
+        FakeScrollable scrollable = new FakeScrollable(0);
+        assertFalse(mStore.restore(1, scrollable));
+        assertEquals(0, scrollable.getCurrentScrollY());
+    }
+
+    public void testSaveAgainAfterRestore() {
+        mStore.save(1, new FakeScrollable(300));
+        mStore.restore(1, new FakeScrollable(0));
+        mStore.save(1, new FakeScrollable(500));
+
+        assertTrue(mStore.contains(1));
+        FakeScrollable scrollable = new FakeScrollable(0);
+        assertTrue(mStore.restore(1, scrollable));
+        assertEquals(500, scrollable.getCurrentScrollY());
+    }
+
+    public void testUnknownKey() {
+        mStore.save(1, null);
+        assertFalse(mStore.contains(1));
+        assertFalse(mStore.restore(2, new FakeScrollable(0)));
+        assertEquals(-1, mStore.getScrollY(2, -1));
+    }
+
+    public void testManyKeys() {
+        for (int i = 10; 0 <= i; i--) {
+            mStore.save(i * 100L, new FakeScrollable(i));
+        }
+        for (int i = 0; i <= 10; i++) {
+            assertEquals(i, mStore.getScrollY(i * 100L, -1));
+        }
+        assertFalse(mStore.contains(50));
+    }
+
+    public void testRemoveAndClear() {
+        mStore.save(1, new FakeScrollable(100));
+        mStore.save(2, new FakeScrollable(200));
+        mStore.save(3, new FakeScrollable(300));
+
+        mStore.remove(2);
+        assertTrue(mStore.contains(1));
+        assertFalse(mStore.contains(2));
+        assertEquals(300, mStore.getScrollY(3, -1));
+
+        mStore.clear();
+        assertFalse(mStore.contains(1));
+        assertFalse(mStore.contains(3));
+    }
+
+    /**
+     * Scrollable that is not a View, which is scrolled immediately on restore.
+     */
+    private static class FakeScrollable implements Scrollable {
+        private int mScrollY;
+
+        FakeScrollable(int scrollY) {
+            mScrollY = scrollY;
+        }
+
+        @Override
+        public void setScrollViewCallbacks(ObservableScrollViewCallbacks listener) {
+        }
+
+        @Override
+        public void scrollVerticallyTo(int y) {
+            mScrollY = y;
+        }
+
+        @Override
+        public int getCurrentScrollY() {
+            return mScrollY;
+        }
+
+        @Override
+        public int getMaxScrollY() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public float getScrollProgress() {
+            return 0;
+        }
+
+        @Override
+        public void setTouchInterceptionViewGroup(ViewGroup viewGroup) {
+        }
+
+        @Override
+        public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        }
+
+        @Override
+        public void setApproachingEndLookahead(int pixels, int millis) {
+        }
+
+        @Override
+        public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        }
+
+        @Override
+        public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        }
+
+        @Override
+        public void setOnScrollEventListener(OnScrollEventListener listener) {
+        }
+
+        @Override
+        public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        }
+
+        @Override
+        public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        }
+
+        @Override
+        public ScrollPhase getScrollPhase() {
+            return ScrollPhase.IDLE;
+        }
+
+        @Override
+        public void addAnimatedView(View view) {
+        }
+
+        @Override
+        public void removeAnimatedView(View view) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import junit.framework.TestCase;
+
+public class ScrollDispatcherTest extends TestCase {
+    private ScrollDispatcher mDispatcher;
+    private StringBuilder mCrossings;
+
+    private OnBoundaryCrossedListener mListener = new OnBoundaryCrossedListener() {
+        @Override
+        public void onBoundaryCrossed(int index, ScrollState direction) {
+            mCrossings.append(index).append(direction == ScrollState.UP ? "U" : "D").append(' ');
+        }
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDispatcher = new ScrollDispatcher();
+        mCrossings = new StringBuilder();
+    }
+
+    public void testBoundariesCrossedUp() {
+        mDispatcher.addOnBoundaryCrossedListener(new int[]{300, 100, 200}, mListener, 0);
+        scrollTo(150);
+        assertCrossings("0U ");
+        scrollTo(199);
+        assertCrossings("");
+        scrollTo(200);
+        assertCrossings("1U ");
+        scrollTo(1000);
+        assertCrossings("2U ");
+    }
+
+    public void testBoundariesCrossedDownAtOnce() {
+        mDispatcher.addOnBoundaryCrossedListener(new int[]{100, 200, 300}, mListener, 1000);
+        scrollTo(300);
+        assertCrossings("");
+        scrollTo(0);
+        assertCrossings("2D 1D 0D ");
+    }
+
+    public void testInitialRegion() {
+        mDispatcher.addOnBoundaryCrossedListener(new int[]{100, 200, 300}, mListener, 250);
+        scrollTo(250);
+        scrollTo(200);
+        assertCrossings("");
+        scrollTo(199);
+        assertCrossings("1D ");
+    }
+
+    public void testRemovedWhileNotified() {
+        mDispatcher.addOnBoundaryCrossedListener(new int[]{100, 200, 300}, new OnBoundaryCrossedListener() {
+            @Override
+            public void onBoundaryCrossed(int index, ScrollState direction) {
+                mListener.onBoundaryCrossed(index, direction);
+                mDispatcher.removeOnBoundaryCrossedListener(this);
+            }
+        }, 0);
+        scrollTo(1000);
+        assertCrossings("0U ");
+        scrollTo(0);
+        assertCrossings("");
+        assertFalse(mDispatcher.hasListeners());
+    }
+
+    private void scrollTo(int scrollY) {
+        mDispatcher.dispatchScrollChanged(scrollY, 1000, false, true, ScrollPhase.DRAGGING,
+                ScrollSampleExporter.NO_POSITION, ScrollSampleExporter.NO_POSITION);
+    }
+
+    private void assertCrossings(String expected) {
+        assertEquals(expected, mCrossings.toString());
+        mCrossings.setLength(0);
+    }
+}
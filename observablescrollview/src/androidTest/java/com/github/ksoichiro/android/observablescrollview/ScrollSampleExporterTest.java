@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import junit.framework.TestCase;
+
+public class ScrollSampleExporterTest extends TestCase {
+
+    public void testCapacityIsRoundedUp() {
+        assertEquals(1, new ScrollSampleExporter(1).getCapacity());
+        assertEquals(8, new ScrollSampleExporter(5).getCapacity());
+        assertEquals(8, new ScrollSampleExporter(8).getCapacity());
+        try {
+            new ScrollSampleExporter(0);
+            fail("capacity 0 should not be accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testDrainInOrder() {
+        ScrollSampleExporter exporter = new ScrollSampleExporter(4);
+        exporter.offer(10, 100, 1, ScrollPhase.DRAGGING);
+        exporter.offer(20, 200, 2, ScrollPhase.FLINGING);
+
+        ScrollSampleBatch batch = new ScrollSampleBatch(8);
+        assertEquals(2, exporter.drainTo(batch));
+        assertEquals(2, batch.getCount());
+        assertEquals(10, batch.getTime(0));
+        assertEquals(100, batch.getScrollY(0));
+        assertEquals(1, batch.getFirstVisiblePosition(0));
+        assertEquals(ScrollPhase.DRAGGING, batch.getPhase(0));
+        assertEquals(20, batch.getTime(1));
+        assertEquals(200, batch.getScrollY(1));
+        assertEquals(2, batch.getFirstVisiblePosition(1));
+        assertEquals(ScrollPhase.FLINGING, batch.getPhase(1));
+
+        assertEquals(0, exporter.drainTo(batch));
+        assertEquals(0, batch.getCount());
+    }
+
+    public void testDropWhenFull() {
+        ScrollSampleExporter exporter = new ScrollSampleExporter(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(exporter.offer(i, i, i, ScrollPhase.DRAGGING));
+        }
+        assertFalse(exporter.offer(4, 4, 4, ScrollPhase.DRAGGING));
+        assertEquals(1, exporter.getDroppedCount());
+
+        ScrollSampleBatch batch = new ScrollSampleBatch(4);
+        assertEquals(4, exporter.drainTo(batch));
+        assertEquals(3, batch.getScrollY(3));
+        // Slots are released by the drain
+        assertTrue(exporter.offer(5, 5, 5, ScrollPhase.DRAGGING));
+    }
+
+    public void testWrapAround() {
+        ScrollSampleExporter exporter = new ScrollSampleExporter(4);
+        ScrollSampleBatch batch = new ScrollSampleBatch(3);
+        int next = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(exporter.offer(next + i, next + i, ScrollSampleExporter.NO_POSITION, ScrollPhase.IDLE));
+            }
+            assertEquals(3, exporter.drainTo(batch));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next + i, batch.getScrollY(i));
+            }
+            next += 3;
+        }
+        assertEquals(0, exporter.getDroppedCount());
+    }
+
+    public void testDrainIsLimitedByBatchCapacity() {
+        ScrollSampleExporter exporter = new ScrollSampleExporter(8);
+        for (int i = 0; i < 5; i++) {
+            exporter.offer(i, i, i, ScrollPhase.DRAGGING);
+        }
+        ScrollSampleBatch batch = new ScrollSampleBatch(3);
+        assertEquals(3, exporter.drainTo(batch));
+        assertEquals(2, exporter.drainTo(batch));
+        assertEquals(3, batch.getScrollY(0));
+        assertEquals(4, batch.getScrollY(1));
+    }
+
+    public void testConsumerReceivesAllSamplesBeforeStop() {
+        ScrollSampleExporter exporter = new ScrollSampleExporter(1024);
+        final int[] received = new int[1];
+        final boolean[] ordered = {true};
+        exporter.start(new ScrollSampleExporter.Consumer() {
+            @Override
+            public void onScrollSamples(ScrollSampleBatch batch) {
+                for (int i = 0; i < batch.getCount(); i++) {
+                    if (batch.getScrollY(i) != received[0]) {
+                        ordered[0] = false;
+                    }
+                    received[0]++;
+                }
+            }
+        }, 0);
+        for (int i = 0; i < 500; i++) {
+            exporter.offer(i, i, ScrollSampleExporter.NO_POSITION, ScrollPhase.DRAGGING);
+        }
+        exporter.stop();
+        // stop() waits for the consumer thread
+        assertEquals(500, received[0]);
+        assertTrue(ordered[0]);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.Parcel;
+import android.util.SparseIntArray;
+
+import junit.framework.TestCase;
+
+public class StableIdStateTest extends TestCase {
+
+    public void testHeightsAreFoundByIds() {
+        StableIdState state = new StableIdState(30, -10,
+                new long[]{30, 10, -20, 40},
+                new int[]{300, 100, 200, 400});
+        SparseIntArray heights = new SparseIntArray();
+        // Order of the items is changed in the new data set
+        state.putHeight(0, 40, heights);
+        state.putHeight(1, -20, heights);
+        state.putHeight(2, 10, heights);
+        state.putHeight(3, 30, heights);
+        state.putHeight(4, 50, heights);
+
+        assertEquals(4, heights.size());
+        assertEquals(400, heights.get(0));
+        assertEquals(200, heights.get(1));
+        assertEquals(100, heights.get(2));
+        assertEquals(300, heights.get(3));
+        assertEquals(-1, heights.get(4, -1));
+    }
+
+    public void testWideIds() {
+        long wide = 1L << 40;
+        StableIdState state = new StableIdState(wide, 0,
+                new long[]{wide, 2, -wide},
+                new int[]{100, 200, 300});
+        SparseIntArray heights = new SparseIntArray();
+        state.putHeight(0, -wide, heights);
+        state.putHeight(1, 2, heights);
+        state.putHeight(2, wide, heights);
+
+        assertEquals(300, heights.get(0));
+        assertEquals(200, heights.get(1));
+        assertEquals(100, heights.get(2));
+    }
+
+    public void testParcel() {
+        StableIdState state = new StableIdState(20, -5,
+                new long[]{20, 10},
+                new int[]{200, 100});
+        Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel);
+            parcel.setDataPosition(0);
+            StableIdState restored = new StableIdState(parcel);
+
+            assertEquals(20, restored.anchorId);
+            assertEquals(-5, restored.anchorOffset);
+            SparseIntArray heights = new SparseIntArray();
+            restored.putHeight(0, 10, heights);
+            restored.putHeight(1, 20, heights);
+            assertEquals(100, heights.get(0));
+            assertEquals(200, heights.get(1));
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
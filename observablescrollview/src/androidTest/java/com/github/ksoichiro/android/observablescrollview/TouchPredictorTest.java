@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.MotionEvent;
+
+import junit.framework.TestCase;
+
+public class TouchPredictorTest extends TestCase {
+    private static final float DELTA = 0.01f;
+
+    private TouchPredictor mPredictor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPredictor = new TouchPredictor();
+    }
+
+    public void testNotEnoughSamples() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        assertEquals(0, mPredictor.predictDeltaY(16), DELTA);
+    }
+
+    public void testConstantVelocity() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int t = 4; t <= 40; t += 4) {
+            // 1 pixel per millisecond
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, t));
+        }
+        assertEquals(16, mPredictor.predictDeltaY(16), DELTA);
+        assertEquals(0, mPredictor.predictDeltaY(0), DELTA);
+    }
+
+    public void testStopped() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int t = 4; t <= 24; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, t));
+        }
+        for (int t = 28; t <= 48; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, 24));
+        }
+        assertEquals(0, mPredictor.predictDeltaY(16), DELTA);
+    }
+
+    public void testReversed() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int t = 4; t <= 32; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, t));
+        }
+        for (int t = 36; t <= 48; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, 64 - t));
+        }
+        assertEquals(0, mPredictor.predictDeltaY(8), DELTA);
+    }
+
+    public void testClampedToRecentDistance() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int t = 4; t <= 32; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, 2 * t));
+        }
+        // Slowing down to 0.5 pixel per millisecond
+        for (int t = 36; t <= 48; t += 4) {
+            mPredictor.add(obtain(MotionEvent.ACTION_MOVE, t, 64 + (t - 32) / 2f));
+        }
+        assertEquals(4, mPredictor.predictDeltaY(8), DELTA);
+    }
+
+    public void testOldSamplesAreIgnored() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        mPredictor.add(obtain(MotionEvent.ACTION_MOVE, 4, 4));
+        mPredictor.add(obtain(MotionEvent.ACTION_MOVE, 200, 8));
+        assertEquals(0, mPredictor.predictDeltaY(16), DELTA);
+    }
+
+    public void testScreenCoordinates() {
+        mPredictor.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int t = 4; t <= 40; t += 4) {
+            // The view moves with the pointer, so the pointer stays in the same position in the view
+            MotionEvent ev = obtain(MotionEvent.ACTION_MOVE, t, t);
+            ev.offsetLocation(0, -t);
+            mPredictor.add(ev);
+        }
+        assertEquals(16, mPredictor.predictDeltaY(16), DELTA);
+    }
+
+    private static MotionEvent obtain(int action, long time, float y) {
+        return MotionEvent.obtain(0, time, action, 0, y, 0);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.MotionEvent;
+
+import junit.framework.TestCase;
+
+public class TouchSampleFilterTest extends TestCase {
+    private static final float DELTA = 0.01f;
+
+    public void testConvergesToPointer() {
+        TouchSampleFilter filter = new TouchSampleFilter();
+        filter.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        filter.add(obtain(MotionEvent.ACTION_MOVE, 16, 100));
+        float delta = filter.getDeltaY();
+        assertTrue(0 < delta && delta < 100);
+        for (int i = 2; i < 10; i++) {
+            filter.add(obtain(MotionEvent.ACTION_MOVE, 16 * i, 100));
+        }
+        assertEquals(100, filter.getDeltaY(), 0.5f);
+        assertEquals(0, filter.getDeltaX(), DELTA);
+    }
+
+    public void testBatchedSamplesAreSameAsSeparateEvents() {
+        TouchSampleFilter separate = new TouchSampleFilter();
+        separate.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int i = 1; i <= 4; i++) {
+            separate.add(obtain(MotionEvent.ACTION_MOVE, 4 * i, 10 * i));
+        }
+
+        TouchSampleFilter batched = new TouchSampleFilter();
+        batched.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        MotionEvent ev = obtain(MotionEvent.ACTION_MOVE, 4, 10);
+        for (int i = 2; i <= 4; i++) {
+            ev.addBatch(4 * i, 0, 10 * i, 1, 1, 0);
+        }
+        batched.add(ev);
+
+        assertEquals(separate.getDeltaY(), batched.getDeltaY(), DELTA);
+        assertEquals(separate.getVelocityY(), batched.getVelocityY(), DELTA);
+    }
+
+    public void testSetOrigin() {
+        TouchSampleFilter filter = new TouchSampleFilter();
+        filter.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        filter.add(obtain(MotionEvent.ACTION_MOVE, 16, 100));
+        filter.setOrigin();
+        assertEquals(0, filter.getDeltaY(), DELTA);
+    }
+
+    public void testFinishMovesToReleasedPosition() {
+        TouchSampleFilter filter = new TouchSampleFilter();
+        filter.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        filter.add(obtain(MotionEvent.ACTION_MOVE, 16, 100));
+        filter.finish(obtain(MotionEvent.ACTION_UP, 32, 200));
+        assertEquals(200, filter.getDeltaY(), DELTA);
+    }
+
+    public void testClearStartsFromNextEvent() {
+        TouchSampleFilter filter = new TouchSampleFilter();
+        filter.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        filter.add(obtain(MotionEvent.ACTION_MOVE, 16, 100));
+        filter.clear();
+        filter.add(obtain(MotionEvent.ACTION_MOVE, 1000, 500));
+        assertEquals(0, filter.getDeltaY(), DELTA);
+        assertEquals(0, filter.getVelocityY(), DELTA);
+    }
+
+    public void testVelocity() {
+        TouchSampleFilter filter = new TouchSampleFilter();
+        filter.reset(obtain(MotionEvent.ACTION_DOWN, 0, 0));
+        for (int i = 1; i <= 20; i++) {
+            filter.add(obtain(MotionEvent.ACTION_MOVE, 8 * i, 8 * i));
+        }
+        // 1 pixel per millisecond
+        assertEquals(1000, filter.getVelocityY(), 1);
+    }
+
+    public void testScreenCoordinates() {
+        TouchSampleFilter local = new TouchSampleFilter();
+        TouchSampleFilter screen = new TouchSampleFilter(true);
+        MotionEvent down = obtain(MotionEvent.ACTION_DOWN, 0, 100);
+        local.reset(down);
+        screen.reset(down);
+
+        // The view has moved with the pointer
+        MotionEvent up = obtain(MotionEvent.ACTION_UP, 16, 200);
+        up.offsetLocation(0, -100);
+        local.finish(up);
+        screen.finish(up);
+
+        assertEquals(0, local.getDeltaY(), DELTA);
+        assertEquals(100, screen.getDeltaY(), DELTA);
+    }
+
+    private static MotionEvent obtain(int action, long time, float y) {
+        return MotionEvent.obtain(0, time, action, 0, y, 0);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Manages the layer types of the views that are animated with the scroll position.
+ * <p/>
+ * Views are promoted to hardware layers when the user touches the Scrollable widget,
+ * and restored to their original layer types after the scroll settles,
+ * so that changing alpha or translation of them while scrolling
+ * only composites the cached layers instead of drawing their contents again.
+ * Each widget has one instance of this class and passes the touch events and the scroll changes.
+ */
+final class AnimatedViewLayers {
+    // The scroll is regarded as settled if it's not changed for this duration
+    private static final long SETTLE_DELAY_MILLIS = 100;
+
+    private final View mHost;
+    private ArrayList<View> mViews;
+    private int[] mOriginalLayerTypes;
+    private boolean mPromoted;
+    private boolean mTouching;
+    private final Runnable mDemoteRunnable = new Runnable() {
+        @Override
+        public void run() {
+            demote();
+        }
+    };
+
+    AnimatedViewLayers(View host) {
+        mHost = host;
+    }
+
+    void add(View view) {
+        if (view == null) {
+            return;
+        }
+        if (mViews == null) {
+            mViews = new ArrayList<View>();
+        }
+        if (mViews.contains(view)) {
+            return;
+        }
+        if (mPromoted) {
+            // Demote all to keep the original layer types in the same order as the views
+            demote();
+        }
+        mViews.add(view);
+    }
+
+    void remove(View view) {
+        if (mViews == null || !mViews.contains(view)) {
+            return;
+        }
+        demote();
+        mViews.remove(view);
+        if (mViews.isEmpty()) {
+            mViews = null;
+        }
+    }
+
+    /**
+     * Should be called from both onInterceptTouchEvent and onTouchEvent,
+     * because children might consume the touch events.
+     *
+     * @param ev touch event
+     */
+    void onTouchEvent(MotionEvent ev) {
+        if (mViews == null) {
+            return;
+        }
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouching = true;
+                promote();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mTouching = false;
+                demoteWhenSettled();
+                break;
+        }
+    }
+
+    void onScrollChanged() {
+        if (mPromoted && !mTouching) {
+            // Still flinging
+            demoteWhenSettled();
+        }
+    }
+
+    private void promote() {
+        mHost.removeCallbacks(mDemoteRunnable);
+        if (mPromoted) {
+            return;
+        }
+        final int size = mViews.size();
+        if (mOriginalLayerTypes == null || mOriginalLayerTypes.length < size) {
+            mOriginalLayerTypes = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            View view = mViews.get(i);
+            mOriginalLayerTypes[i] = ViewCompat.getLayerType(view);
+            if (mOriginalLayerTypes[i] != ViewCompat.LAYER_TYPE_HARDWARE) {
+                ViewCompat.setLayerType(view, ViewCompat.LAYER_TYPE_HARDWARE, null);
+            }
+        }
+        mPromoted = true;
+    }
+
+    private void demoteWhenSettled() {
+        mHost.removeCallbacks(mDemoteRunnable);
+        mHost.postDelayed(mDemoteRunnable, SETTLE_DELAY_MILLIS);
+    }
+
+    private void demote() {
+        mHost.removeCallbacks(mDemoteRunnable);
+        if (!mPromoted) {
+            return;
+        }
+        for (int i = 0; i < mViews.size(); i++) {
+            if (mOriginalLayerTypes[i] != ViewCompat.LAYER_TYPE_HARDWARE) {
+                ViewCompat.setLayerType(mViews.get(i), mOriginalLayerTypes[i], null);
+            }
+        }
+        mPromoted = false;
+    }
+}
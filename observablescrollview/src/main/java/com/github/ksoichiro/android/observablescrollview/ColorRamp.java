@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Precomputed color transition for scrolling effects.
+ * Colors between the stops are calculated in the same way as
+ * {@link ScrollUtils#mixColors(int, int, float)} and stored in a lookup table
+ * when this object is created, so {@link #colorAt(float)} is just an array access
+ * and can be called in every scroll callback without allocations.
+ * <p/>
+ * Create this once (e.g. in onCreate) and reuse it.
+ */
+public final class ColorRamp {
+    /**
+     * Default number of the colors in the lookup table.
+     * Each color component has 256 levels, so this is enough for most transitions.
+     */
+    public static final int DEFAULT_RESOLUTION = 256;
+
+    private final int[] mColors;
+    private final int mMaxIndex;
+
+    /**
+     * Creates a color ramp between two colors with {@link #DEFAULT_RESOLUTION}.
+     *
+     * @param fromColor color at 0.0f
+     * @param toColor   color at 1.0f
+     */
+    public ColorRamp(int fromColor, int toColor) {
+        this(new int[]{fromColor, toColor}, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Creates a color ramp.
+     *
+     * @param stopColors two or more colors that are placed evenly from 0.0f to 1.0f
+     * @param resolution number of the colors in the lookup table, must be 2 or greater
+     */
+    public ColorRamp(int[] stopColors, int resolution) {
+        if (resolution < 2) {
+            throw new IllegalArgumentException("resolution must be 2 or greater");
+        }
+        if (stopColors == null || stopColors.length < 2) {
+            throw new IllegalArgumentException("stopColors must have 2 or more colors");
+        }
+        mColors = new int[resolution];
+        mMaxIndex = resolution - 1;
+        final int segments = stopColors.length - 1;
+        for (int i = 0; i <= mMaxIndex; i++) {
+            float position = (float) i * segments / mMaxIndex;
+            int segment = Math.min(segments - 1, (int) position);
+            mColors[i] = ScrollUtils.mixColors(stopColors[segment], stopColors[segment + 1], position - segment);
+        }
+    }
+
+    /**
+     * Returns the color at the fraction.
+     *
+     * @param fraction position in the ramp from 0.0f to 1.0f. Values out of the range are clamped
+     * @return color in ARGB. Alpha is fixed value (255).
+     */
+    public int colorAt(float fraction) {
+        if (fraction <= 0) {
+            return mColors[0];
+        }
+        if (1 <= fraction) {
+            return mColors[mMaxIndex];
+        }
+        return mColors[(int) (fraction * mMaxIndex + 0.5f)];
+    }
+
+    /**
+     * Returns the number of the colors in the lookup table.
+     *
+     * @return resolution of this ramp
+     */
+    public int getResolution() {
+        return mColors.length;
+    }
+}
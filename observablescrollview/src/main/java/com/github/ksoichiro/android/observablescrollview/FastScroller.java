@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+
+/**
+ * Fast scroll thumb for ObservableListView and ObservableRecyclerView.
+ * <p/>
+ * The platform fast scroller and the default scroll offsets of RecyclerView
+ * assume that all the items have the same height, so the thumb jumps
+ * on the lists that have items of various heights.
+ * This thumb maps its position to the scroll position and vice versa
+ * with the heights of the items that the widgets have already measured,
+ * and scrolls the widget at most once per frame while it's dragged.
+ * <p/>
+ * Place this view over the widget with the same size (e.g. in a FrameLayout)
+ * and call {@link #attachTo(ObservableListView)} or {@link #attachTo(ObservableRecyclerView)}.
+ * Touch events outside the thumb are passed to the widget.
+ */
+public class FastScroller extends View {
+    private static final int DEFAULT_THUMB_WIDTH_DP = 6;
+    private static final int DEFAULT_THUMB_HEIGHT_DP = 48;
+    private static final int DEFAULT_TOUCH_WIDTH_DP = 32;
+    private static final int DEFAULT_THUMB_COLOR = 0x80000000;
+
+    private ObservableListView mListView;
+    private ObservableRecyclerView mRecyclerView;
+    private Paint mThumbPaint;
+    private int mThumbWidth;
+    private int mThumbHeight;
+    private int mTouchWidth;
+    private int mMaxScrollY;
+    private float mThumbPosition;
+    private boolean mDragging;
+    private float mTouchOffset;
+    private int mPendingScrollY;
+    private boolean mScrollPosted;
+    private final Runnable mScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mScrollPosted = false;
+            if (mListView != null) {
+                mListView.scrollToEstimatedY(mPendingScrollY);
+            } else if (mRecyclerView != null) {
+                mRecyclerView.scrollToEstimatedY(mPendingScrollY);
+            }
+        }
+    };
+
+    public FastScroller(Context context) {
+        super(context);
+        init();
+    }
+
+    public FastScroller(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public FastScroller(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    /**
+     * Attaches this thumb to the ListView.
+     *
+     * @param listView target ListView
+     */
+    public void attachTo(ObservableListView listView) {
+        detach();
+        mListView = listView;
+        mListView.setFastScroller(this);
+        onScrollChanged(listView.getCurrentScrollY(), listView.getMaxScrollY());
+    }
+
+    /**
+     * Attaches this thumb to the RecyclerView.
+     * Scrolling to the offset in the item is supported only with LinearLayoutManager.
+     *
+     * @param recyclerView target RecyclerView
+     */
+    public void attachTo(ObservableRecyclerView recyclerView) {
+        detach();
+        mRecyclerView = recyclerView;
+        mRecyclerView.setFastScroller(this);
+        onScrollChanged(recyclerView.getCurrentScrollY(), recyclerView.getMaxScrollY());
+    }
+
+    /**
+     * Detaches this thumb from the widget.
+     */
+    public void detach() {
+        if (mListView != null) {
+            mListView.setFastScroller(null);
+            mListView = null;
+        }
+        if (mRecyclerView != null) {
+            mRecyclerView.setFastScroller(null);
+            mRecyclerView = null;
+        }
+        removeCallbacks(mScrollRunnable);
+        mScrollPosted = false;
+        mDragging = false;
+        onScrollChanged(0, 0);
+    }
+
+    /**
+     * Sets the color of the thumb.
+     *
+     * @param color color of the thumb in ARGB
+     */
+    public void setThumbColor(int color) {
+        mThumbPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * Sets the size of the thumb.
+     *
+     * @param width  width of the thumb in pixels
+     * @param height height of the thumb in pixels
+     */
+    public void setThumbSize(int width, int height) {
+        mThumbWidth = width;
+        mThumbHeight = height;
+        invalidate();
+    }
+
+    /**
+     * Sets the width of the area from the right edge where the thumb can be dragged.
+     *
+     * @param width width of the touch area in pixels
+     */
+    public void setTouchWidth(int width) {
+        mTouchWidth = width;
+    }
+
+    void onScrollChanged(int scrollY, int maxScrollY) {
+        mMaxScrollY = maxScrollY;
+        if (mDragging) {
+            // The thumb follows the finger while dragging
+            return;
+        }
+        float position = maxScrollY <= 0 ? 0 : ScrollUtils.getFloat((float) scrollY / maxScrollY, 0, 1);
+        if (position != mThumbPosition) {
+            mThumbPosition = position;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (mMaxScrollY <= 0) {
+            return;
+        }
+        float top = getThumbTop();
+        canvas.drawRect(getWidth() - mThumbWidth, top, getWidth(), top + mThumbHeight, mThumbPaint);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                if (mMaxScrollY <= 0 || ev.getX() < getWidth() - mTouchWidth) {
+                    // Pass to the widget under this view
+                    return false;
+                }
+                float thumbTop = getThumbTop();
+                if (thumbTop <= ev.getY() && ev.getY() <= thumbTop + mThumbHeight) {
+                    mTouchOffset = ev.getY() - thumbTop;
+                } else {
+                    // Touched the track: jump there with the center of the thumb
+                    mTouchOffset = mThumbHeight / 2f;
+                }
+                mDragging = true;
+                ViewParent parent = getParent();
+                if (parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(true);
+                }
+                dragTo(ev.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (mDragging) {
+                    dragTo(ev.getY());
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (mDragging) {
+                    mDragging = false;
+                    return true;
+                }
+                break;
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    private void init() {
+        float density = getResources().getDisplayMetrics().density;
+        mThumbWidth = (int) (DEFAULT_THUMB_WIDTH_DP * density);
+        mThumbHeight = (int) (DEFAULT_THUMB_HEIGHT_DP * density);
+        mTouchWidth = (int) (DEFAULT_TOUCH_WIDTH_DP * density);
+        mThumbPaint = new Paint();
+        mThumbPaint.setColor(DEFAULT_THUMB_COLOR);
+    }
+
+    private float getThumbTop() {
+        return mThumbPosition * Math.max(0, getHeight() - mThumbHeight);
+    }
+
+    private void dragTo(float y) {
+        int range = getHeight() - mThumbHeight;
+        if (range <= 0) {
+            return;
+        }
+        float position = ScrollUtils.getFloat((y - mTouchOffset) / range, 0, 1);
+        if (position != mThumbPosition) {
+            mThumbPosition = position;
+            invalidate();
+        }
+        // Only the latest position is needed, so scroll at most once per frame
+        mPendingScrollY = (int) (position * mMaxScrollY);
+        if (!mScrollPosted) {
+            mScrollPosted = true;
+            ViewCompat.postOnAnimation(this, mScrollRunnable);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.widget.FrameLayout;
+
+import com.nineoldandroids.animation.ValueAnimator;
+import com.nineoldandroids.view.ViewHelper;
+
+/**
+ * A header that fills the gap above it (e.g. the area behind a transparent Toolbar)
+ * when it reaches the top of the screen.
+ * <p/>
+ * The gap is filled by scaling the fill view from its bottom edge,
+ * so the layout is not changed while the animation is running.
+ * Therefore the fill view should be a view that can be stretched vertically,
+ * such as a view with a solid color background.
+ * This layout and its parents should not clip its children
+ * (e.g. {@code android:clipChildren="false"}) because the fill view grows beyond this layout.
+ * <p/>
+ * One animator is created for each layout and reused.
+ * If the gap is shown or hidden while it's animating,
+ * the animation is reversed from the current position.
+ */
+public class FillGapHeaderLayout extends FrameLayout {
+
+    private static final long DEFAULT_ANIMATION_DURATION = 100;
+
+    private View mFillView;
+    private int mGapHeight;
+    private int mFillViewHeight;
+    private boolean mGapShown = true;
+    private float mFillFraction;
+    private long mAnimationDuration = DEFAULT_ANIMATION_DURATION;
+    private ValueAnimator mAnimator;
+
+    public FillGapHeaderLayout(Context context) {
+        super(context);
+        init();
+    }
+
+    public FillGapHeaderLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public FillGapHeaderLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    /**
+     * Sets the view that is stretched to fill the gap.
+     * This should be a child of this layout that is placed at the top.
+     *
+     * @param view view to fill the gap
+     */
+    public void setFillView(View view) {
+        mFillView = view;
+        requestLayout();
+    }
+
+    /**
+     * Sets the height of the gap above this layout.
+     *
+     * @param height height in pixels
+     */
+    public void setGapHeight(int height) {
+        mGapHeight = height;
+        applyFillFraction(mFillFraction);
+    }
+
+    /**
+     * Sets the duration to fill the whole gap.
+     * If the animation is reversed while it's running,
+     * it finishes in the time proportional to the remaining distance.
+     *
+     * @param duration duration in milliseconds
+     */
+    public void setAnimationDuration(long duration) {
+        mAnimationDuration = duration;
+    }
+
+    /**
+     * Returns whether the gap is shown or going to be shown.
+     *
+     * @return true if the gap is not filled
+     */
+    public boolean isGapShown() {
+        return mGapShown;
+    }
+
+    /**
+     * Returns whether the animation to show or hide the gap is running.
+     *
+     * @return true if the gap is being changed
+     */
+    public boolean isAnimating() {
+        return mAnimator.isRunning();
+    }
+
+    /**
+     * Shows the gap by shrinking the fill view with animation.
+     */
+    public void showGap() {
+        setGapShown(true, true);
+    }
+
+    /**
+     * Hides the gap by stretching the fill view with animation.
+     */
+    public void hideGap() {
+        setGapShown(false, true);
+    }
+
+    /**
+     * Shows or hides the gap.
+     *
+     * @param shown   true to show the gap
+     * @param animate true to change it with animation
+     */
+    public void setGapShown(boolean shown, boolean animate) {
+        if (animate && mGapShown == shown && mAnimator.isStarted()) {
+            // Already moving to the same state
+            return;
+        }
+        mGapShown = shown;
+        float to = shown ? 0 : 1;
+        if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+        if (!animate || mFillFraction == to) {
+            applyFillFraction(to);
+            return;
+        }
+        // Start from the current position so that it's reversed smoothly.
+        mAnimator.setFloatValues(mFillFraction, to);
+        mAnimator.setDuration((long) (mAnimationDuration * Math.abs(to - mFillFraction)));
+        mAnimator.start();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (mFillView != null && mFillViewHeight != mFillView.getHeight()) {
+            mFillViewHeight = mFillView.getHeight();
+            ViewHelper.setPivotY(mFillView, mFillViewHeight);
+            applyFillFraction(mFillFraction);
+        }
+    }
+
+    private void init() {
+        mAnimator = ValueAnimator.ofFloat(0, 1);
+        mAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                applyFillFraction((Float) animation.getAnimatedValue());
+            }
+        });
+    }
+
+    private void applyFillFraction(float fraction) {
+        mFillFraction = fraction;
+        if (mFillView == null || mFillViewHeight == 0) {
+            return;
+        }
+        ViewHelper.setScaleY(mFillView, 1 + fraction * mGapHeight / mFillViewHeight);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.nineoldandroids.view.ViewHelper;
+import com.nineoldandroids.view.ViewPropertyAnimator;
+
+/**
+ * A layout that moves the views of the "flexible space" pattern with scroll position:
+ * parallax image, fading overlay, scaled title, floating action button and toolbar.
+ * <p/>
+ * All the coefficients of the transforms are calculated from the sizes of the views
+ * once in each layout and cached, so {@link #updateScrollPosition(int)}
+ * doesn't allocate any objects or read the sizes of the views.
+ * Call it from {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}.
+ * <p/>
+ * The views to be moved should be the children of this layout placed at the top,
+ * and all of them are optional.
+ */
+public class FlexibleSpaceHeaderLayout extends FrameLayout {
+
+    private static final float DEFAULT_TITLE_MAX_SCALE_DELTA = 0.3f;
+    private static final long FAB_ANIMATION_DURATION = 200;
+
+    private View mImageView;
+    private View mOverlayView;
+    private View mFlexibleSpaceView;
+    private View mTitleView;
+    private View mFabView;
+    private View mToolbarView;
+    private int mFlexibleSpaceHeight;
+    private int mToolbarHeight;
+    private float mTitleMaxScaleDelta = DEFAULT_TITLE_MAX_SCALE_DELTA;
+    private float mTitleScaleRangeFraction = 1;
+    private int mFabMargin;
+    private int mFabShowOffset;
+    private boolean mToolbarIsSticky;
+    private int mToolbarColor;
+    private int mScrollY;
+
+    // Coefficients calculated in onLayout
+    private boolean mCoefficientsReady;
+    private float mFlexibleRange;
+    private float mOverlayAlphaPerPixel;
+    private int mMinImageTranslationY;
+    private int mMinOverlayTranslationY;
+    private int mMinFlexibleSpaceTranslationY;
+    private int mTitleHeight;
+    private float mTitleScaleDeltaPerPixel;
+    private float mFabTranslationX;
+    private int mFabBaseTranslationY;
+    private int mMinFabTranslationY;
+
+    // Last applied states that are changed with animation or color
+    private boolean mFabIsShown = true;
+    private boolean mToolbarIsColored;
+
+    public FlexibleSpaceHeaderLayout(Context context) {
+        super(context);
+    }
+
+    public FlexibleSpaceHeaderLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public FlexibleSpaceHeaderLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * Sets the height of the flexible space, i.e. the height of the header when scrollY is 0.
+     *
+     * @param height height in pixels
+     */
+    public void setFlexibleSpaceHeight(int height) {
+        mFlexibleSpaceHeight = height;
+        requestLayout();
+    }
+
+    /**
+     * Sets the height of the toolbar, i.e. the height of the header when it's collapsed.
+     *
+     * @param height height in pixels
+     */
+    public void setToolbarHeight(int height) {
+        mToolbarHeight = height;
+        requestLayout();
+    }
+
+    /**
+     * Sets the image that moves with parallax effect (half of the scroll).
+     *
+     * @param view image view
+     */
+    public void setImageView(View view) {
+        mImageView = view;
+        requestLayout();
+    }
+
+    /**
+     * Sets the view that moves with the scroll and fades in
+     * while the flexible space is being collapsed.
+     *
+     * @param view overlay view
+     */
+    public void setOverlayView(View view) {
+        mOverlayView = view;
+        requestLayout();
+    }
+
+    /**
+     * Sets the view that moves with the scroll without fading.
+     *
+     * @param view background view of the flexible space
+     */
+    public void setFlexibleSpaceView(View view) {
+        mFlexibleSpaceView = view;
+        requestLayout();
+    }
+
+    /**
+     * Sets the title that is scaled and moved to the toolbar.
+     *
+     * @param view title view
+     */
+    public void setTitleView(View view) {
+        mTitleView = view;
+        requestLayout();
+    }
+
+    /**
+     * Sets the scale of the title.
+     * The title is scaled by {@code 1 + maxScaleDelta} when the flexible space is expanded,
+     * and shrinks to its original size in the last {@code rangeFraction} of the flexible range.
+     *
+     * @param maxScaleDelta maximum scale of the title minus 1
+     * @param rangeFraction fraction of the flexible range to shrink the title, from 0.0f (exclusive) to 1.0f
+     */
+    public void setTitleScale(float maxScaleDelta, float rangeFraction) {
+        mTitleMaxScaleDelta = maxScaleDelta;
+        mTitleScaleRangeFraction = rangeFraction;
+        requestLayout();
+    }
+
+    /**
+     * Sets the floating action button that is placed at the bottom right of the flexible space.
+     * It is shown when it's moved lower than the offset and hidden otherwise.
+     *
+     * @param view       floating action button
+     * @param margin     margin from the right edge of this layout
+     * @param showOffset translation of the button to be shown from the top of this layout
+     */
+    public void setFabView(View view, int margin, int showOffset) {
+        mFabView = view;
+        mFabMargin = margin;
+        mFabShowOffset = showOffset;
+        mFabIsShown = false;
+        ViewHelper.setScaleX(view, 0);
+        ViewHelper.setScaleY(view, 0);
+        requestLayout();
+    }
+
+    /**
+     * Sets the toolbar that is moved or colored with the flexible space.
+     * The background of the toolbar is made transparent so that the flexible space is visible.
+     *
+     * @param view  toolbar
+     * @param color background color of the toolbar when it's sticky and the flexible space is collapsed
+     */
+    public void setToolbarView(View view, int color) {
+        mToolbarView = view;
+        mToolbarColor = color;
+        mToolbarIsColored = false;
+        view.setBackgroundColor(Color.TRANSPARENT);
+        requestLayout();
+    }
+
+    /**
+     * Sets whether the toolbar stays at the top.
+     * If it's sticky, the title stops at the toolbar and the background of the toolbar is colored
+     * when the flexible space is collapsed.
+     * Otherwise the toolbar and the title scroll out with the flexible space.
+     *
+     * @param sticky true if the toolbar should stay at the top
+     */
+    public void setToolbarSticky(boolean sticky) {
+        mToolbarIsSticky = sticky;
+        requestLayout();
+    }
+
+    /**
+     * Moves the views with the scroll position.
+     * If this layout has not been laid out yet, the views are moved after the layout.
+     *
+     * @param scrollY current scroll position of the Scrollable
+     */
+    public void updateScrollPosition(int scrollY) {
+        mScrollY = scrollY;
+        if (!mCoefficientsReady) {
+            return;
+        }
+
+        // Translate overlay and image
+        if (mImageView != null) {
+            ViewHelper.setTranslationY(mImageView, ScrollUtils.getFloat(-scrollY / 2, mMinImageTranslationY, 0));
+        }
+        if (mOverlayView != null) {
+            ViewHelper.setTranslationY(mOverlayView, ScrollUtils.getFloat(-scrollY, mMinOverlayTranslationY, 0));
+            ViewHelper.setAlpha(mOverlayView, ScrollUtils.getFloat(scrollY * mOverlayAlphaPerPixel, 0, 1));
+        }
+        if (mFlexibleSpaceView != null) {
+            ViewHelper.setTranslationY(mFlexibleSpaceView, ScrollUtils.getFloat(-scrollY, mMinFlexibleSpaceTranslationY, 0));
+        }
+
+        // Scale and translate title
+        if (mTitleView != null) {
+            float scale = 1 + ScrollUtils.getFloat((mFlexibleRange - scrollY) * mTitleScaleDeltaPerPixel, 0, mTitleMaxScaleDelta);
+            ViewHelper.setScaleX(mTitleView, scale);
+            ViewHelper.setScaleY(mTitleView, scale);
+            float titleTranslationY = mFlexibleSpaceHeight - mTitleHeight * scale - scrollY;
+            if (mToolbarIsSticky) {
+                titleTranslationY = Math.max(0, titleTranslationY);
+            }
+            ViewHelper.setTranslationY(mTitleView, titleTranslationY);
+        }
+
+        // Translate and show/hide FAB
+        if (mFabView != null) {
+            int fabTranslationY = Math.max(mMinFabTranslationY, Math.min(mFabBaseTranslationY, mFabBaseTranslationY - scrollY));
+            ViewHelper.setTranslationX(mFabView, mFabTranslationX);
+            ViewHelper.setTranslationY(mFabView, fabTranslationY);
+            setFabShown(mFabShowOffset <= fabTranslationY);
+        }
+
+        if (mToolbarView != null) {
+            if (mToolbarIsSticky) {
+                // Change background of toolbar
+                setToolbarColored(mFlexibleSpaceHeight - scrollY <= mToolbarHeight);
+            } else {
+                // Translate toolbar
+                ViewHelper.setTranslationY(mToolbarView, scrollY < mFlexibleSpaceHeight ? 0 : -scrollY);
+            }
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        updateCoefficients(right - left);
+        updateScrollPosition(mScrollY);
+    }
+
+    private void updateCoefficients(int width) {
+        mFlexibleRange = mFlexibleSpaceHeight - mToolbarHeight;
+        if (mFlexibleRange <= 0) {
+            mCoefficientsReady = false;
+            return;
+        }
+        mOverlayAlphaPerPixel = 1 / mFlexibleRange;
+        if (mImageView != null) {
+            mMinImageTranslationY = mToolbarHeight - mImageView.getHeight();
+        }
+        if (mOverlayView != null) {
+            mMinOverlayTranslationY = mToolbarHeight - mOverlayView.getHeight();
+        }
+        if (mFlexibleSpaceView != null) {
+            mMinFlexibleSpaceTranslationY = mToolbarHeight - mFlexibleSpaceView.getHeight();
+        }
+        if (mTitleView != null) {
+            mTitleHeight = mTitleView.getHeight();
+            mTitleScaleDeltaPerPixel = mTitleMaxScaleDelta / (mFlexibleRange * mTitleScaleRangeFraction);
+            ViewHelper.setPivotX(mTitleView, 0);
+            ViewHelper.setPivotY(mTitleView, 0);
+        }
+        if (mFabView != null) {
+            int fabHalfHeight = mFabView.getHeight() / 2;
+            mFabTranslationX = width - mFabMargin - mFabView.getWidth();
+            mFabBaseTranslationY = mFlexibleSpaceHeight - fabHalfHeight;
+            mMinFabTranslationY = mToolbarHeight - fabHalfHeight;
+        }
+        mCoefficientsReady = true;
+    }
+
+    private void setFabShown(boolean shown) {
+        if (mFabIsShown == shown) {
+            return;
+        }
+        mFabIsShown = shown;
+        float scale = shown ? 1 : 0;
+        ViewPropertyAnimator.animate(mFabView).cancel();
+        ViewPropertyAnimator.animate(mFabView).scaleX(scale).scaleY(scale).setDuration(FAB_ANIMATION_DURATION).start();
+    }
+
+    private void setToolbarColored(boolean colored) {
+        if (mToolbarIsColored == colored) {
+            return;
+        }
+        mToolbarIsColored = colored;
+        mToolbarView.setBackgroundColor(colored ? mToolbarColor : Color.TRANSPARENT);
+    }
+}
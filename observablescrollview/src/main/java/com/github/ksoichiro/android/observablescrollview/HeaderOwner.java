@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.nineoldandroids.view.ViewHelper;
+
+import java.util.ArrayList;
+
+/**
+ * Moves one collapsible header with several Scrollables in one layout,
+ * e.g. two lists side by side under one header on tablets.
+ * <p/>
+ * If each Scrollable moves the header, the header is translated twice in a frame
+ * and the Scrollables fight each other.
+ * This class gives the ownership of the header to the Scrollable that is currently
+ * dragged, or flinging while the previous owner is idle, and ignores the others.
+ * When the ownership moves, the header continues from its current translation
+ * instead of jumping to the position of the new owner.
+ * The translation is applied once just before the header is drawn,
+ * however many scroll changes happened in the frame.
+ * <p/>
+ * {@link #register(Scrollable)} uses {@link Scrollable#setOnScrollEventListener(OnScrollEventListener)}.
+ * If the listener is also needed for other purposes, call
+ * {@link #onScrollEvent(Scrollable, ScrollEvent)} from your listener instead of registering.
+ * This should be used only from the UI thread.
+ */
+public class HeaderOwner implements ViewTreeObserver.OnPreDrawListener {
+
+    private final View mHeader;
+    private int mCollapsibleHeight;
+    private ArrayList<Scrollable> mScrollables;
+    private ViewTreeObserver mViewTreeObserver;
+    private Scrollable mOwner;
+    private int mBaseScrollY;
+    private float mBaseTranslationY;
+    private float mTranslationY;
+    private boolean mTranslationChanged;
+
+    /**
+     * Creates an owner of the header.
+     *
+     * @param header            header to be moved
+     * @param collapsibleHeight distance that the header can be scrolled out
+     */
+    public HeaderOwner(View header, int collapsibleHeight) {
+        mHeader = header;
+        mCollapsibleHeight = collapsibleHeight;
+        mScrollables = new ArrayList<Scrollable>();
+        mViewTreeObserver = header.getViewTreeObserver();
+        mViewTreeObserver.addOnPreDrawListener(this);
+    }
+
+    /**
+     * Registers a Scrollable that can move the header.
+     * Registering the same Scrollable twice has no effect.
+     *
+     * @param scrollable Scrollable to register
+     */
+    public void register(final Scrollable scrollable) {
+        if (scrollable == null || mScrollables.contains(scrollable)) {
+            return;
+        }
+        mScrollables.add(scrollable);
+        scrollable.setOnScrollEventListener(new OnScrollEventListener() {
+            @Override
+            public void onScrollEvent(ScrollEvent event) {
+                HeaderOwner.this.onScrollEvent(scrollable, event);
+            }
+        });
+    }
+
+    /**
+     * Unregisters the Scrollable and removes its listener.
+     * If it owns the header, the header stays at the current position without an owner.
+     *
+     * @param scrollable Scrollable to unregister
+     */
+    public void unregister(Scrollable scrollable) {
+        if (!mScrollables.remove(scrollable)) {
+            return;
+        }
+        scrollable.setOnScrollEventListener(null);
+        if (mOwner == scrollable) {
+            mOwner = null;
+        }
+    }
+
+    /**
+     * Sets the distance that the header can be scrolled out.
+     *
+     * @param collapsibleHeight distance in pixels
+     */
+    public void setCollapsibleHeight(int collapsibleHeight) {
+        mCollapsibleHeight = collapsibleHeight;
+    }
+
+    /**
+     * Returns the Scrollable that currently moves the header.
+     *
+     * @return owner of the header, or null if no Scrollable has moved it
+     */
+    public Scrollable getOwner() {
+        return mOwner;
+    }
+
+    /**
+     * Returns the translation of the header.
+     * This is the latest one, which might not be applied to the header until it's drawn.
+     *
+     * @return translation from -collapsibleHeight to 0
+     */
+    public float getTranslationY() {
+        return mTranslationY;
+    }
+
+    /**
+     * Updates the header with the scroll event of the Scrollable.
+     * This is called by the listeners set by {@link #register(Scrollable)}.
+     * The event is ignored if the Scrollable can't take the ownership of the header.
+     *
+     * @param source Scrollable that the event came from
+     * @param event  scroll event
+     */
+    public void onScrollEvent(Scrollable source, ScrollEvent event) {
+        int scrollY = event.getScrollY();
+        if (source != mOwner) {
+            if (event.getPhase() != ScrollPhase.DRAGGING
+                    && mOwner != null && mOwner.getScrollPhase() != ScrollPhase.IDLE) {
+                // The owner is still moving, and the source is not touched
+                return;
+            }
+            mOwner = source;
+            mBaseScrollY = scrollY - event.getDeltaY();
+            mBaseTranslationY = mTranslationY;
+        }
+        float translationY = ScrollUtils.getFloat(mBaseTranslationY - (scrollY - mBaseScrollY), -mCollapsibleHeight, 0);
+        // The header should be shown when the owner is scrolled to the top
+        translationY = Math.max(translationY, -Math.max(0, scrollY));
+        if (mTranslationY != translationY) {
+            mTranslationY = translationY;
+            mTranslationChanged = true;
+        }
+    }
+
+    /**
+     * Removes the listeners from the registered Scrollables and the header.
+     * This should be called when the views are destroyed.
+     */
+    public void release() {
+        for (int i = mScrollables.size() - 1; 0 <= i; i--) {
+            unregister(mScrollables.get(i));
+        }
+        // ViewTreeObserver of a view that is not attached yet is merged into
+        // the window's one when the view is attached,
+        // so this listener should be removed from the current one of the view.
+        ViewTreeObserver vto = mViewTreeObserver;
+        if (!vto.isAlive()) {
+            vto = mHeader.getViewTreeObserver();
+        }
+        if (vto.isAlive()) {
+            vto.removeOnPreDrawListener(this);
+        }
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        if (mTranslationChanged) {
+            mTranslationChanged = false;
+            ViewHelper.setTranslationY(mHeader, mTranslationY);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.util.SparseIntArray;
+
+/**
+ * Index of the item heights that have been laid out in the list-like widgets.
+ * <p/>
+ * Heights are keyed by adapter position and kept with their view types,
+ * and the sums of the heights are maintained incrementally
+ * so that the total height of the contents can be estimated
+ * without iterating the adapter or the cached heights.
+ * Items that have never been laid out are estimated
+ * with the average height of the measured items of the same view type.
+ * <p/>
+ * The offsets of the items are answered with a Fenwick tree
+ * (binary indexed tree) of the measured heights, so they can be
+ * queried in O(log n) time for any position, e.g. for fast scrolling.
+ */
+final class ItemHeightIndex {
+    /**
+     * View type for the items whose view type is not known,
+     * e.g. the heights restored from the saved state.
+     */
+    static final int TYPE_UNKNOWN = Integer.MIN_VALUE;
+
+    private SparseIntArray mHeights;
+    private SparseIntArray mTypes;
+    private long mMeasuredHeightSum;
+
+    // View type -> sum of the measured heights / number of the measured items
+    private SparseIntArray mTypeHeightSums;
+    private SparseIntArray mTypeMeasuredCounts;
+
+    // View type -> number of the items in the adapter
+    private SparseIntArray mTypeItemCounts;
+    private int mItemCount;
+    private boolean mItemTypesValid;
+
+    // View types of all the items in the adapter indexed by position,
+    // to update the counts of the types only for the changed items
+    private int[] mItemTypes;
+    private int mItemTypesAdded;
+
+    private int mEstimatedTotalHeight;
+    private boolean mEstimatedTotalHeightValid;
+
+    // Fenwick trees of the measured heights and the number of the measured items.
+    // Index 0 is not used.
+    private int[] mTreeHeights;
+    private int[] mTreeCounts;
+    private int mTreeSize;
+    private boolean mTreeValid;
+
+    // Reused while shifting the positions
+    private int[] mShiftPositions;
+    private int[] mShiftHeights;
+    private int[] mShiftTypes;
+
+    ItemHeightIndex() {
+        mHeights = new SparseIntArray();
+        mTypes = new SparseIntArray();
+        mTypeHeightSums = new SparseIntArray();
+        mTypeMeasuredCounts = new SparseIntArray();
+        mTypeItemCounts = new SparseIntArray();
+    }
+
+    /**
+     * Replaces the heights with the restored ones.
+     * View types of the restored heights are unknown.
+     *
+     * @param heights position-keyed heights, may be null
+     */
+    void restore(SparseIntArray heights) {
+        if (heights == mHeights) {
+            // Restored without parcelling, nothing is lost
+            return;
+        }
+        clear();
+        if (heights == null) {
+            return;
+        }
+        for (int i = 0; i < heights.size(); i++) {
+            put(heights.keyAt(i), heights.valueAt(i), TYPE_UNKNOWN);
+        }
+    }
+
+    void clear() {
+        mHeights.clear();
+        mTypes.clear();
+        mMeasuredHeightSum = 0;
+        mTypeHeightSums.clear();
+        mTypeMeasuredCounts.clear();
+        mEstimatedTotalHeightValid = false;
+        mTreeValid = false;
+    }
+
+    /**
+     * Returns the heights keyed by position.
+     * This is the instance held by this index, so callers must not modify it.
+     *
+     * @return position-keyed heights
+     */
+    SparseIntArray getHeights() {
+        return mHeights;
+    }
+
+    boolean contains(int position) {
+        return 0 <= mHeights.indexOfKey(position);
+    }
+
+    int get(int position) {
+        return mHeights.get(position);
+    }
+
+    /**
+     * Records the height of the item.
+     * This is cheap when the height is not changed,
+     * so it can be called for every visible item on every scroll.
+     *
+     * @param position adapter position of the item
+     * @param height   height of the item
+     * @param type     view type of the item
+     */
+    void put(int position, int height, int type) {
+        int index = mHeights.indexOfKey(position);
+        int heightDelta = height;
+        int countDelta = 1;
+        if (0 <= index) {
+            int oldHeight = mHeights.valueAt(index);
+            int oldType = mTypes.get(position, TYPE_UNKNOWN);
+            if (oldHeight == height && oldType == type) {
+                return;
+            }
+            mMeasuredHeightSum -= oldHeight;
+            addTypeStats(oldType, -oldHeight, -1);
+            heightDelta -= oldHeight;
+            countDelta = 0;
+        }
+        mHeights.put(position, height);
+        mTypes.put(position, type);
+        mMeasuredHeightSum += height;
+        addTypeStats(type, height, 1);
+        mEstimatedTotalHeightValid = false;
+        if (mTreeValid) {
+            if (position < mTreeSize) {
+                for (int i = position + 1; i <= mTreeSize; i += i & -i) {
+                    mTreeHeights[i] += heightDelta;
+                    mTreeCounts[i] += countDelta;
+                }
+            } else {
+                mTreeValid = false;
+            }
+        }
+    }
+
+    /**
+     * Shifts the heights at and after the position to make room for the inserted items.
+     * The inserted items are not measured yet.
+     *
+     * @param position adapter position of the first inserted item
+     * @param count    number of the inserted items
+     */
+    void insertPositions(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        shiftPositions(position, count);
+        if (mItemTypesValid && 0 <= position && position <= mItemCount) {
+            ensureItemTypesCapacity(mItemCount + count);
+            System.arraycopy(mItemTypes, position, mItemTypes, position + count, mItemCount - position);
+            for (int i = position; i < position + count; i++) {
+                // Replaced with setItemType()
+                mItemTypes[i] = TYPE_UNKNOWN;
+            }
+            addTypeItemCount(TYPE_UNKNOWN, count);
+        } else {
+            mItemTypesValid = false;
+        }
+        mItemCount += count;
+    }
+
+    /**
+     * Removes the heights of the removed items
+     * and shifts the heights after them to fill the gap.
+     *
+     * @param position adapter position of the first removed item
+     * @param count    number of the removed items
+     */
+    void removePositions(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        shiftPositions(position + count, -count);
+        if (mItemTypesValid && 0 <= position && position + count <= mItemCount) {
+            for (int i = position; i < position + count; i++) {
+                addTypeItemCount(mItemTypes[i], -1);
+            }
+            System.arraycopy(mItemTypes, position + count, mItemTypes, position, mItemCount - position - count);
+        } else {
+            mItemTypesValid = false;
+        }
+        mItemCount = Math.max(0, mItemCount - count);
+    }
+
+    /**
+     * Updates the view type of the item in the adapter.
+     * This is ignored when the view types are stale,
+     * because they are counted again with {@link #beginItemTypes(int)}.
+     *
+     * @param position adapter position of the item
+     * @param type     new view type of the item
+     */
+    void setItemType(int position, int type) {
+        if (!mItemTypesValid || position < 0 || mItemCount <= position) {
+            return;
+        }
+        int oldType = mItemTypes[position];
+        if (oldType == type) {
+            return;
+        }
+        mItemTypes[position] = type;
+        addTypeItemCount(oldType, -1);
+        addTypeItemCount(type, 1);
+    }
+
+    /**
+     * Moves the heights at and after the position by the delta.
+     * When the delta is negative, the heights in the range that the moved ones
+     * overwrite are dropped.
+     * Entries are taken from the end of the arrays and appended again
+     * in the ascending order, so this never reallocates the arrays
+     * and the cost is proportional to the number of the moved entries.
+     */
+    private void shiftPositions(int position, int delta) {
+        int start = position;
+        if (delta < 0) {
+            start += delta;
+        }
+        int moved = 0;
+        for (int i = mHeights.size() - 1; 0 <= i && start <= mHeights.keyAt(i); i--) {
+            moved++;
+        }
+        if (moved == 0) {
+            return;
+        }
+        if (mShiftPositions == null || mShiftPositions.length < moved) {
+            mShiftPositions = new int[moved];
+            mShiftHeights = new int[moved];
+            mShiftTypes = new int[moved];
+        }
+        // Stored in the descending order
+        for (int i = 0; i < moved; i++) {
+            int last = mHeights.size() - 1;
+            int key = mHeights.keyAt(last);
+            mShiftPositions[i] = key;
+            mShiftHeights[i] = mHeights.valueAt(last);
+            mShiftTypes[i] = mTypes.get(key, TYPE_UNKNOWN);
+            mHeights.removeAt(last);
+            int typeIndex = mTypes.indexOfKey(key);
+            if (0 <= typeIndex) {
+                mTypes.removeAt(typeIndex);
+            }
+        }
+        for (int i = moved - 1; 0 <= i; i--) {
+            int key = mShiftPositions[i];
+            if (key < position) {
+                // Removed items
+                mMeasuredHeightSum -= mShiftHeights[i];
+                addTypeStats(mShiftTypes[i], -mShiftHeights[i], -1);
+                continue;
+            }
+            mHeights.append(key + delta, mShiftHeights[i]);
+            mTypes.append(key + delta, mShiftTypes[i]);
+        }
+        mEstimatedTotalHeightValid = false;
+        mTreeValid = false;
+    }
+
+    /**
+     * Marks the view types of the adapter as stale.
+     * This should be called when the data set of the adapter is changed.
+     */
+    void invalidateItemTypes() {
+        mItemTypesValid = false;
+        mEstimatedTotalHeightValid = false;
+    }
+
+    /**
+     * Returns whether the widget should count the view types of the adapter
+     * with {@link #beginItemTypes(int)} and {@link #addItemType(int)}.
+     *
+     * @return true if the view types are stale
+     */
+    boolean needsItemTypes() {
+        return !mItemTypesValid;
+    }
+
+    void beginItemTypes(int itemCount) {
+        mTypeItemCounts.clear();
+        mItemCount = itemCount;
+        mItemTypesAdded = 0;
+        ensureItemTypesCapacity(itemCount);
+        mItemTypesValid = true;
+        mEstimatedTotalHeightValid = false;
+    }
+
+    void addItemType(int type) {
+        if (mItemTypesAdded < mItemCount) {
+            mItemTypes[mItemTypesAdded++] = type;
+        }
+        mTypeItemCounts.put(type, mTypeItemCounts.get(type) + 1);
+    }
+
+    /**
+     * Sets the number of the items in the adapter without counting their view types,
+     * which are marked as stale.
+     *
+     * @param itemCount number of the items
+     */
+    void setItemCount(int itemCount) {
+        if (mItemCount == itemCount && !mItemTypesValid) {
+            return;
+        }
+        mItemCount = itemCount;
+        mItemTypesValid = false;
+        mEstimatedTotalHeightValid = false;
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Returns the estimated height of an item that has not been measured yet.
+     *
+     * @param type view type of the item
+     * @return average height of the measured items of the type,
+     * or the average height of all the measured items if there are no items of the type
+     */
+    int getEstimatedHeight(int type) {
+        int measured = mTypeMeasuredCounts.get(type);
+        if (0 < measured) {
+            return mTypeHeightSums.get(type) / measured;
+        }
+        return getAverageHeight();
+    }
+
+    /**
+     * Returns the average height of all the measured items, whatever their view types are.
+     * {@link #TYPE_UNKNOWN} is the type of the restored heights only,
+     * so this should be used for the positions whose view types are not looked up.
+     *
+     * @return average height of the measured items
+     */
+    private int getAverageHeight() {
+        if (mHeights.size() == 0) {
+            return 0;
+        }
+        return (int) (mMeasuredHeightSum / mHeights.size());
+    }
+
+    /**
+     * Returns the estimated sum of the heights of all the items in the adapter.
+     * This is calculated only when the heights or the view types are changed,
+     * and the cost is proportional to the number of the view types.
+     *
+     * @return estimated total height of the items
+     */
+    int getEstimatedTotalHeight() {
+        if (!mEstimatedTotalHeightValid) {
+            mEstimatedTotalHeight = computeEstimatedTotalHeight();
+            mEstimatedTotalHeightValid = true;
+        }
+        return mEstimatedTotalHeight;
+    }
+
+    /**
+     * Returns the estimated offset of the item from the top of the first item,
+     * that is the sum of the heights of the items before the position.
+     * Items that have not been measured are estimated with the average height
+     * of all the measured items.
+     *
+     * @param position adapter position of the item
+     * @return estimated offset of the top of the item
+     */
+    int getEstimatedOffset(int position) {
+        if (position <= 0) {
+            return 0;
+        }
+        ensureTree();
+        int average = getAverageHeight();
+        int end = Math.min(position, mTreeSize);
+        long heights = 0;
+        int counts = 0;
+        for (int i = end; 0 < i; i -= i & -i) {
+            heights += mTreeHeights[i];
+            counts += mTreeCounts[i];
+        }
+        long offset = heights + (long) (position - counts) * average;
+        return (int) Math.min(Integer.MAX_VALUE, offset);
+    }
+
+    /**
+     * Returns the position of the item at the offset.
+     * This is the inverse of {@link #getEstimatedOffset(int)}.
+     *
+     * @param offset offset from the top of the first item
+     * @return adapter position of the item that contains the offset,
+     * clamped to the positions of the adapter
+     */
+    int findPositionAt(int offset) {
+        ensureTree();
+        if (offset <= 0 || mTreeSize == 0) {
+            return 0;
+        }
+        int average = getAverageHeight();
+        int step = Integer.highestOneBit(mTreeSize);
+        int position = 0;
+        long remaining = offset;
+        // Walk down the tree from the largest node to find
+        // the last position whose offset is less than or equal to the offset.
+        for (; 0 < step; step >>= 1) {
+            int next = position + step;
+            if (mTreeSize < next) {
+                continue;
+            }
+            long nodeHeight = mTreeHeights[next] + (long) (step - mTreeCounts[next]) * average;
+            if (nodeHeight <= remaining) {
+                position = next;
+                remaining -= nodeHeight;
+            }
+        }
+        return Math.min(position, mTreeSize - 1);
+    }
+
+    private void ensureTree() {
+        int size = mItemCount;
+        if (0 < mHeights.size()) {
+            size = Math.max(size, mHeights.keyAt(mHeights.size() - 1) + 1);
+        }
+        if (mTreeValid && mTreeSize == size) {
+            return;
+        }
+        if (mTreeHeights == null || mTreeHeights.length < size + 1) {
+            mTreeHeights = new int[size + 1];
+            mTreeCounts = new int[size + 1];
+        } else {
+            for (int i = 0; i <= size; i++) {
+                mTreeHeights[i] = 0;
+                mTreeCounts[i] = 0;
+            }
+        }
+        for (int i = 0; i < mHeights.size(); i++) {
+            int position = mHeights.keyAt(i);
+            if (0 <= position) {
+                mTreeHeights[position + 1] = mHeights.valueAt(i);
+                mTreeCounts[position + 1] = 1;
+            }
+        }
+        // Build in O(n) by adding each node to its parent
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                mTreeHeights[parent] += mTreeHeights[i];
+                mTreeCounts[parent] += mTreeCounts[i];
+            }
+        }
+        mTreeSize = size;
+        mTreeValid = true;
+    }
+
+    private int computeEstimatedTotalHeight() {
+        int measuredCount = mHeights.size();
+        int unknownCount = Math.max(0, mItemCount - measuredCount);
+        if (unknownCount == 0 || measuredCount == 0) {
+            return (int) mMeasuredHeightSum;
+        }
+
+        // Distribute the unknown items to the view types
+        // in proportion to the number of unmeasured items of each type.
+        // Restored heights don't have their view types,
+        // so the number of the unknown items is not always equal to the sum of each type.
+        long unknownByTypes = 0;
+        long estimatedByTypes = 0;
+        for (int i = 0; i < mTypeItemCounts.size(); i++) {
+            int type = mTypeItemCounts.keyAt(i);
+            int unknown = Math.max(0, mTypeItemCounts.valueAt(i) - mTypeMeasuredCounts.get(type));
+            unknownByTypes += unknown;
+            estimatedByTypes += (long) unknown * getEstimatedHeight(type);
+        }
+        long estimatedUnknownHeight;
+        if (unknownByTypes == 0) {
+            estimatedUnknownHeight = (long) unknownCount * getAverageHeight();
+        } else {
+            estimatedUnknownHeight = estimatedByTypes * unknownCount / unknownByTypes;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, mMeasuredHeightSum + estimatedUnknownHeight);
+    }
+
+    private void ensureItemTypesCapacity(int capacity) {
+        if (mItemTypes == null || mItemTypes.length < capacity) {
+            int[] itemTypes = new int[Math.max(capacity, mItemTypes == null ? 0 : mItemTypes.length * 2)];
+            if (mItemTypes != null) {
+                System.arraycopy(mItemTypes, 0, itemTypes, 0, Math.min(mItemCount, mItemTypes.length));
+            }
+            mItemTypes = itemTypes;
+        }
+    }
+
+    private void addTypeItemCount(int type, int count) {
+        mTypeItemCounts.put(type, mTypeItemCounts.get(type) + count);
+        mEstimatedTotalHeightValid = false;
+    }
+
+    private void addTypeStats(int type, int height, int count) {
+        mTypeHeightSums.put(type, mTypeHeightSums.get(type) + height);
+        mTypeMeasuredCounts.put(type, mTypeMeasuredCounts.get(type) + count);
+    }
+}
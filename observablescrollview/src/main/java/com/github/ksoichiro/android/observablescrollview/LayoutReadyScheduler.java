@@ -0,0 +1,241 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+
+/**
+ * Runs tasks after the views are laid out.
+ * <p/>
+ * {@link ScrollUtils#addOnGlobalLayoutListener(View, Runnable)} adds a listener for each call,
+ * and each of them is called for every global layout until it runs.
+ * This class registers only one {@code OnGlobalLayoutListener} for each view hierarchy,
+ * on the {@code ViewTreeObserver} of the root view, which is merged into the window's one
+ * when the hierarchy is attached, and runs the pending tasks in the order they are scheduled.
+ * A task waits until the tasks scheduled before it have run.
+ * <p/>
+ * The scheduler is kept in the tags of the root view and the target views, not in a global registry,
+ * and the listener removes itself when no tasks are left.
+ * Tasks whose view is attached but not shown (e.g. GONE) are dropped,
+ * and so are the tasks whose view is not laid out with non-zero size
+ * within {@link #TIMEOUT_MILLIS} after it's found attached,
+ * so that a task never keeps the listener forever.
+ * <p/>
+ * This class should be used only from the UI thread.
+ */
+public final class LayoutReadyScheduler implements ViewTreeObserver.OnGlobalLayoutListener {
+
+    /**
+     * Time in milliseconds that a task waits for its view after the view is found attached.
+     */
+    static final long TIMEOUT_MILLIS = 1000;
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private View mRoot;
+    private ViewTreeObserver mViewTreeObserver;
+    private ArrayList<Task> mTasks;
+    private boolean mRunning;
+
+    private static final class Task {
+        final View view;
+        final Runnable runnable;
+        long deadline = NO_DEADLINE;
+
+        Task(View view, Runnable runnable) {
+            this.view = view;
+            this.runnable = runnable;
+        }
+    }
+
+    private LayoutReadyScheduler(View root) {
+        mRoot = root;
+        mTasks = new ArrayList<Task>();
+    }
+
+    /**
+     * Runs the task after the view is laid out with non-zero size.
+     * If the view has already been laid out and no tasks are waiting before it,
+     * the task runs immediately.
+     *
+     * @param view     the target view
+     * @param runnable task to be executed after the view is laid out
+     */
+    public static void schedule(View view, Runnable runnable) {
+        LayoutReadyScheduler scheduler = getScheduler(view);
+        if (scheduler == null) {
+            scheduler = getScheduler(view.getRootView());
+        }
+        if (scheduler != null && !scheduler.mTasks.isEmpty()) {
+            // Run the tasks scheduled before this one first
+            scheduler.mTasks.add(new Task(view, runnable));
+            view.setTag(R.id.observable_layout_ready_scheduler, scheduler);
+            scheduler.runReadyTasks();
+            return;
+        }
+        if (isLaidOut(view)) {
+            runnable.run();
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = new LayoutReadyScheduler(view.getRootView());
+            scheduler.attach();
+        }
+        scheduler.mTasks.add(new Task(view, runnable));
+        view.setTag(R.id.observable_layout_ready_scheduler, scheduler);
+    }
+
+    /**
+     * Cancels the scheduled task.
+     * The listener is removed when no tasks are left.
+     *
+     * @param view     the target view that the task is scheduled with
+     * @param runnable task to be canceled
+     */
+    public static void cancel(View view, Runnable runnable) {
+        LayoutReadyScheduler scheduler = getScheduler(view);
+        if (scheduler == null) {
+            return;
+        }
+        for (int i = scheduler.mTasks.size() - 1; 0 <= i; i--) {
+            Task task = scheduler.mTasks.get(i);
+            if (task.view == view && task.runnable == runnable) {
+                scheduler.mTasks.remove(i);
+            }
+        }
+        scheduler.releaseView(view);
+        if (scheduler.mTasks.isEmpty() && !scheduler.mRunning) {
+            scheduler.detach();
+        }
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        runReadyTasks();
+    }
+
+    /**
+     * Runs the tasks from the first one while their views are laid out.
+     */
+    private void runReadyTasks() {
+        if (mRunning) {
+            // Called from a task: the loop below continues with the new tasks
+            return;
+        }
+        mRunning = true;
+        long now = SystemClock.uptimeMillis();
+        // Tasks might schedule or cancel other tasks, so don't cache the size.
+        while (!mTasks.isEmpty()) {
+            Task task = mTasks.get(0);
+            if (isLaidOut(task.view)) {
+                mTasks.remove(0);
+                releaseView(task.view);
+                task.runnable.run();
+            } else if (shouldDrop(task, now)) {
+                mTasks.remove(0);
+                releaseView(task.view);
+            } else {
+                break;
+            }
+        }
+        mRunning = false;
+        if (mTasks.isEmpty()) {
+            detach();
+        }
+    }
+
+    private static boolean shouldDrop(Task task, long now) {
+        boolean attached = task.view.getWindowToken() != null;
+        if (attached && !task.view.isShown()) {
+            // GONE or in the hidden parent: it won't be laid out with size
+            return true;
+        }
+        if (attached && task.deadline == NO_DEADLINE) {
+            task.deadline = now + TIMEOUT_MILLIS;
+            return false;
+        }
+        return task.deadline <= now;
+    }
+
+    private void attach() {
+        mRoot.setTag(R.id.observable_layout_ready_scheduler, this);
+        mViewTreeObserver = mRoot.getViewTreeObserver();
+        mViewTreeObserver.addOnGlobalLayoutListener(this);
+    }
+
+    private void detach() {
+        if (mRoot == null) {
+            return;
+        }
+        if (mRoot.getTag(R.id.observable_layout_ready_scheduler) == this) {
+            mRoot.setTag(R.id.observable_layout_ready_scheduler, null);
+        }
+        // ViewTreeObserver of a view that is not attached yet is merged into
+        // the window's one when the view is attached,
+        // so this listener should be removed from the current one of the view.
+        ViewTreeObserver vto = mViewTreeObserver;
+        if (!vto.isAlive()) {
+            vto = mRoot.getViewTreeObserver();
+        }
+        if (vto.isAlive()) {
+            removeOnGlobalLayoutListener(vto, this);
+        }
+        mViewTreeObserver = null;
+        mRoot = null;
+    }
+
+    /**
+     * Removes the tag of the view if it has no tasks left.
+     */
+    private void releaseView(View view) {
+        if (view == mRoot || view.getTag(R.id.observable_layout_ready_scheduler) != this) {
+            return;
+        }
+        for (int i = 0; i < mTasks.size(); i++) {
+            if (mTasks.get(i).view == view) {
+                return;
+            }
+        }
+        view.setTag(R.id.observable_layout_ready_scheduler, null);
+    }
+
+    private static LayoutReadyScheduler getScheduler(View view) {
+        Object tag = view.getTag(R.id.observable_layout_ready_scheduler);
+        if (tag instanceof LayoutReadyScheduler && ((LayoutReadyScheduler) tag).mRoot != null) {
+            return (LayoutReadyScheduler) tag;
+        }
+        return null;
+    }
+
+    private static boolean isLaidOut(View view) {
+        return !view.isLayoutRequested() && (0 < view.getWidth() || 0 < view.getHeight());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void removeOnGlobalLayoutListener(ViewTreeObserver vto, ViewTreeObserver.OnGlobalLayoutListener listener) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            vto.removeGlobalOnLayoutListener(listener);
+        } else {
+            vto.removeOnGlobalLayoutListener(listener);
+        }
+    }
+}
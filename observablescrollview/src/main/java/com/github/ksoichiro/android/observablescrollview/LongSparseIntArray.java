@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Map of long keys to int values, like {@link android.util.SparseIntArray} with long keys.
+ * Keys are kept sorted in a primitive array and looked up by binary search,
+ * so values are stored without boxing.
+ */
+final class LongSparseIntArray {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] mKeys = new long[INITIAL_CAPACITY];
+    private int[] mValues = new int[INITIAL_CAPACITY];
+    private int mSize;
+
+    int get(long key, int valueIfKeyNotFound) {
+        int i = binarySearch(key);
+        return i < 0 ? valueIfKeyNotFound : mValues[i];
+    }
+
+    void put(long key, int value) {
+        int i = binarySearch(key);
+        if (0 <= i) {
+            mValues[i] = value;
+            return;
+        }
+        i = ~i;
+        if (mSize == mKeys.length) {
+            long[] keys = new long[mSize * 2];
+            int[] values = new int[mSize * 2];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            System.arraycopy(mValues, 0, values, 0, mSize);
+            mKeys = keys;
+            mValues = values;
+        }
+        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+        System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+        mKeys[i] = key;
+        mValues[i] = value;
+        mSize++;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    long keyAt(int index) {
+        return mKeys[index];
+    }
+
+    int valueAt(int index) {
+        return mValues[index];
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    private int binarySearch(long key) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = mKeys[mid];
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (key < midKey) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~low;
+    }
+}
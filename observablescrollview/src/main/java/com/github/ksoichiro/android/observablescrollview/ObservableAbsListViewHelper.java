@@ -0,0 +1,836 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.database.DataSetObserver;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseIntArray;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.HeaderViewListAdapter;
+import android.widget.ListAdapter;
+
+/**
+ * Shared implementation of the Scrollable widgets based on AbsListView:
+ * {@link ObservableListView}, {@link ObservableGridView} and {@link ObservableExpandableListView}.
+ * <p/>
+ * These widgets extend the different subclasses of AbsListView,
+ * so they can't share a base class. Instead, each widget has one instance of this class
+ * and forwards its touch events, adapter, saved state and the Scrollable methods to it.
+ * The differences between the widgets are given by overriding the methods
+ * such as {@link #estimateContentHeight(int, int)}.
+ */
+abstract class ObservableAbsListViewHelper {
+
+    private final AbsListView mView;
+
+    // Fields that should be saved onSaveInstanceState
+    private int mPrevFirstVisiblePosition;
+    private int mPrevFirstVisibleChildHeight = -1;
+    private int mPrevScrolledChildrenHeight;
+    private int mPrevScrollY;
+    private int mScrollY;
+    private ItemHeightIndex mHeightIndex = new ItemHeightIndex();
+
+    // Fields that don't need to be saved onSaveInstanceState
+    private ObservableScrollViewCallbacks mCallbacks;
+    private ScrollDispatcher mScrollDispatcher = new ScrollDispatcher();
+    private AnimatedViewLayers mAnimatedViewLayers;
+    private ScrollPhaseTracker mScrollPhaseTracker;
+    private ScrollState mScrollState;
+    private boolean mFirstScroll;
+    private boolean mDragging;
+    private boolean mIntercepted;
+    private TouchSampleFilter mMoveFilter = new TouchSampleFilter();
+    private ViewGroup mTouchInterceptionViewGroup;
+    private int mMaxScrollY;
+    private boolean mStableIdRestorationEnabled;
+    private StableIdState mPendingStableIdState;
+    private ScrollSnapshot mPendingScrollSnapshot;
+    private ViewabilityTracker mViewabilityTracker;
+
+    private AbsListView.OnScrollListener mOriginalScrollListener;
+    private AbsListView.OnScrollListener mScrollListener = new AbsListView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+            switch (scrollState) {
+                case SCROLL_STATE_IDLE:
+                    mScrollPhaseTracker.onNativeIdle();
+                    if (mItemTypesScanPending) {
+                        mView.post(mItemTypesScanRunnable);
+                    }
+                    break;
+                case SCROLL_STATE_TOUCH_SCROLL:
+                    mScrollPhaseTracker.onNativeDragging();
+                    break;
+                case SCROLL_STATE_FLING:
+                    mScrollPhaseTracker.onNativeSettling();
+                    break;
+            }
+            if (mOriginalScrollListener != null) {
+                mOriginalScrollListener.onScrollStateChanged(view, scrollState);
+            }
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            if (mOriginalScrollListener != null) {
+                mOriginalScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+            }
+            // AbsListView#invokeOnItemScrollListener calls onScrollChanged(0, 0, 0, 0)
+            // on Android 4.0+, but Android 2.3 is not. (Android 3.0 is unknown)
+            // So call it with onScrollListener.
+            onScrollChanged();
+        }
+    };
+    private ListAdapter mObservedAdapter;
+    private boolean mItemTypesScanPending;
+    private Runnable mItemTypesScanRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mItemTypesScanPending || mScrollPhaseTracker.getPhase() != ScrollPhase.IDLE) {
+                // Scanned when the scroll becomes idle
+                return;
+            }
+            mItemTypesScanPending = false;
+            scanItemTypes();
+            updateMaxScrollY();
+        }
+    };
+    private DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            if (!onDataSetChanged()) {
+                updateItemTypes();
+            }
+        }
+
+        @Override
+        public void onInvalidated() {
+            mHeightIndex.invalidateItemTypes();
+            onDataSetChanged();
+        }
+    };
+
+    ObservableAbsListViewHelper(AbsListView view) {
+        mView = view;
+        mAnimatedViewLayers = new AnimatedViewLayers(view);
+        mScrollPhaseTracker = new ScrollPhaseTracker(view);
+    }
+
+    /**
+     * Returns the content height of the widget.
+     *
+     * @param itemsHeight estimated sum of the heights of all the items
+     * @param itemCount   number of the items
+     * @return content height including the paddings
+     */
+    abstract int estimateContentHeight(int itemsHeight, int itemCount);
+
+    /**
+     * Called when an item is laid out and its height is put to the height index.
+     *
+     * @param position adapter position of the item
+     * @param height   height of the item
+     */
+    void onItemLaidOut(int position, int height) {
+    }
+
+    /**
+     * Called when the data set of the adapter is changed.
+     *
+     * @return true if the view types of the height index have been updated or invalidated for the change,
+     * false to let this helper update them
+     */
+    boolean onDataSetChanged() {
+        return false;
+    }
+
+    /**
+     * Lays out the widget from the item.
+     * This is needed for {@link #scrollToEstimatedY(int)} and the stable ID restoration.
+     *
+     * @param position adapter position of the item
+     * @param y        top of the item relative to the top padding
+     */
+    abstract void setSelectionFromTop(int position, int y);
+
+    AbsListView.OnScrollListener getScrollListener() {
+        return mScrollListener;
+    }
+
+    ItemHeightIndex getHeightIndex() {
+        return mHeightIndex;
+    }
+
+    Parcelable onSaveInstanceState(Parcelable superState) {
+        SavedState ss = new SavedState(superState);
+        ss.prevFirstVisiblePosition = mPrevFirstVisiblePosition;
+        ss.prevFirstVisibleChildHeight = mPrevFirstVisibleChildHeight;
+        ss.prevScrolledChildrenHeight = mPrevScrolledChildrenHeight;
+        ss.prevScrollY = mPrevScrollY;
+        ss.scrollY = mScrollY;
+        // Heights keyed by the positions are also saved,
+        // because they are used when the anchor item can't be found on restore.
+        ss.childrenHeights = mHeightIndex.getHeights();
+        if (mStableIdRestorationEnabled) {
+            ss.stableIdState = createStableIdState();
+        }
+        return ss;
+    }
+
+    /**
+     * Restores the state saved with {@link #onSaveInstanceState(Parcelable)}.
+     *
+     * @param state saved state
+     * @return state of the super class
+     */
+    Parcelable onRestoreInstanceState(Parcelable state) {
+        SavedState ss = (SavedState) state;
+        mPrevFirstVisiblePosition = ss.prevFirstVisiblePosition;
+        mPrevFirstVisibleChildHeight = ss.prevFirstVisibleChildHeight;
+        mPrevScrolledChildrenHeight = ss.prevScrolledChildrenHeight;
+        mPrevScrollY = ss.prevScrollY;
+        mScrollY = ss.scrollY;
+        mHeightIndex.restore(ss.childrenHeights);
+        mPendingStableIdState = mStableIdRestorationEnabled ? ss.stableIdState : null;
+        return ss.getSuperState();
+    }
+
+    /**
+     * Should be called before the widget lays out its children.
+     */
+    void onLayoutChildren() {
+        if (mPendingScrollSnapshot != null && restoreScrollSnapshot()) {
+            // The snapshot is newer than the saved state
+            mPendingStableIdState = null;
+        }
+        if (mPendingStableIdState != null) {
+            restoreStableIdState();
+        }
+    }
+
+    /**
+     * Saves the scroll position and the heights around the first visible item.
+     *
+     * @param out        snapshot to save to
+     * @param maxHeights maximum number of the heights to save
+     */
+    void saveScrollSnapshot(ScrollSnapshot out, int maxHeights) {
+        if (mPendingScrollSnapshot != null) {
+            // Not laid out since the snapshot was restored, so keep it
+            out.set(mPendingScrollSnapshot);
+            return;
+        }
+        View firstVisibleChild = mView.getChildAt(0);
+        if (firstVisibleChild == null) {
+            out.set(mScrollY);
+            return;
+        }
+        out.set(mScrollY, mView.getFirstVisiblePosition(), firstVisibleChild.getTop(), mHeightIndex, maxHeights);
+    }
+
+    /**
+     * Restores the snapshot in the next layout.
+     * The widget must call {@link #onLayoutChildren()} before it lays out its children.
+     *
+     * @param snapshot snapshot to restore
+     */
+    void setPendingScrollSnapshot(ScrollSnapshot snapshot) {
+        mPendingScrollSnapshot = snapshot;
+        mView.requestLayout();
+    }
+
+    void onInterceptTouchEvent(MotionEvent ev) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
+            switch (ev.getActionMasked()) {
+                case MotionEvent.ACTION_DOWN:
+                    // Whether or not motion events are consumed by children,
+                    // flag initializations which are related to ACTION_DOWN events should be executed.
+                    // Because if the ACTION_DOWN is consumed by children and only ACTION_MOVEs are
+                    // passed to parent (this view), the flags will be invalid.
+                    // Also, applications might implement initialization codes to onDownMotionEvent,
+                    // so call it here.
+                    mFirstScroll = mDragging = true;
+                    mMoveFilter.reset(ev);
+                    if (mCallbacks != null) {
+                        mCallbacks.onDownMotionEvent();
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Handles the touch event before the widget handles it.
+     *
+     * @param ev touch event
+     * @return true if the event is passed to the parent
+     * and the widget should return false without handling it
+     */
+    boolean onTouchEvent(MotionEvent ev) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
+            switch (ev.getActionMasked()) {
+                case MotionEvent.ACTION_UP:
+                case MotionEvent.ACTION_CANCEL:
+                    mIntercepted = false;
+                    mDragging = false;
+                    // Don't take the difference from the last position of this gesture
+                    mMoveFilter.clear();
+                    if (mCallbacks != null) {
+                        mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    }
+                    break;
+                case MotionEvent.ACTION_MOVE:
+                    // Difference of the filtered position including the historical samples,
+                    // which doesn't depend on how many samples are batched in this event.
+                    mMoveFilter.add(ev);
+                    float diffY = mMoveFilter.getDeltaY();
+                    mMoveFilter.setOrigin();
+                    if (mScrollY - diffY <= 0) {
+                        // Can't scroll anymore.
+
+                        if (mIntercepted) {
+                            // Already dispatched ACTION_DOWN event to parents, so stop here.
+                            return true;
+                        }
+
+                        // Apps can set the interception target other than the direct parent.
+                        final ViewGroup parent;
+                        if (mTouchInterceptionViewGroup == null) {
+                            parent = (ViewGroup) mView.getParent();
+                        } else {
+                            parent = mTouchInterceptionViewGroup;
+                        }
+
+                        // Get offset to parents. If the parent is not the direct parent,
+                        // we should aggregate offsets from all of the parents.
+                        float offsetX = 0;
+                        float offsetY = 0;
+                        for (View v = mView; v != null && v != parent; v = (View) v.getParent()) {
+                            offsetX += v.getLeft() - v.getScrollX();
+                            offsetY += v.getTop() - v.getScrollY();
+                        }
+                        final MotionEvent event = MotionEvent.obtainNoHistory(ev);
+                        event.offsetLocation(offsetX, offsetY);
+
+                        if (parent.onInterceptTouchEvent(event)) {
+                            mIntercepted = true;
+
+                            // If the parent wants to intercept ACTION_MOVE events,
+                            // we pass ACTION_DOWN event to the parent
+                            // as if these touch events just have began now.
+                            event.setAction(MotionEvent.ACTION_DOWN);
+
+                            // Return this onTouchEvent() first and set ACTION_DOWN event for parent
+                            // to the queue, to keep events sequence.
+                            mView.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    parent.dispatchTouchEvent(event);
+                                }
+                            });
+                        }
+                        return true;
+                    }
+                    break;
+            }
+        }
+        return false;
+    }
+
+    void setOnScrollListener(AbsListView.OnScrollListener listener) {
+        mOriginalScrollListener = listener;
+    }
+
+    /**
+     * Should be called after the adapter is set to the widget.
+     *
+     * @param adapter adapter to observe
+     */
+    void setAdapter(ListAdapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterDataSetObserver(mDataSetObserver);
+        }
+        mObservedAdapter = adapter;
+        if (mObservedAdapter != null) {
+            mObservedAdapter.registerDataSetObserver(mDataSetObserver);
+        }
+        mHeightIndex.invalidateItemTypes();
+    }
+
+    void setScrollViewCallbacks(ObservableScrollViewCallbacks listener) {
+        mCallbacks = listener;
+    }
+
+    void setTouchInterceptionViewGroup(ViewGroup viewGroup) {
+        mTouchInterceptionViewGroup = viewGroup;
+    }
+
+    void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mScrollDispatcher.setOnApproachingEndListener(listener);
+    }
+
+    void setApproachingEndLookahead(int pixels, int millis) {
+        mScrollDispatcher.setApproachingEndLookahead(pixels, millis);
+    }
+
+    void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.addOnBoundaryCrossedListener(boundaries, listener, mScrollY);
+    }
+
+    void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.removeOnBoundaryCrossedListener(listener);
+    }
+
+    void setOnScrollEventListener(OnScrollEventListener listener) {
+        mScrollDispatcher.setOnScrollEventListener(listener, mScrollY);
+    }
+
+    void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mScrollDispatcher.setScrollSampleExporter(exporter);
+    }
+
+    void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mScrollPhaseTracker.setOnScrollPhaseChangedListener(listener);
+    }
+
+    ScrollPhase getScrollPhase() {
+        return mScrollPhaseTracker.getPhase();
+    }
+
+    void addAnimatedView(View view) {
+        mAnimatedViewLayers.add(view);
+    }
+
+    void removeAnimatedView(View view) {
+        mAnimatedViewLayers.remove(view);
+    }
+
+    void setStableIdRestorationEnabled(boolean enabled) {
+        mStableIdRestorationEnabled = enabled;
+    }
+
+    boolean isStableIdRestorationEnabled() {
+        return mStableIdRestorationEnabled;
+    }
+
+    int getCurrentScrollY() {
+        return mScrollY;
+    }
+
+    int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    float getScrollProgress() {
+        if (mMaxScrollY <= 0) {
+            return 0;
+        }
+        return ScrollUtils.getFloat((float) mScrollY / mMaxScrollY, 0, 1);
+    }
+
+    void setFastScroller(FastScroller fastScroller) {
+        mScrollDispatcher.setFastScroller(fastScroller);
+    }
+
+    /**
+     * Should be called when the widget is detached from the window.
+     */
+    void onDetachedFromWindow() {
+        if (mViewabilityTracker != null) {
+            mViewabilityTracker.onHostDetachedFromWindow();
+        }
+    }
+
+    void setViewabilityTracker(ViewabilityTracker tracker) {
+        mViewabilityTracker = tracker;
+        // AbsListView notifies the scroll listener after each layout, so the visible items are updated then
+        if (tracker != null) {
+            mView.requestLayout();
+        }
+    }
+
+    /**
+     * Scrolls to the scroll position estimated with the height index.
+     * This jumps to the item without laying out the items in between,
+     * and keeps scrollY consistent with the offsets of the index.
+     *
+     * @param y target scroll position
+     */
+    void scrollToEstimatedY(int y) {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        updateMaxScrollY();
+        int position = mHeightIndex.findPositionAt(y);
+        int offset = mHeightIndex.getEstimatedOffset(position);
+        mPrevFirstVisiblePosition = position;
+        mPrevScrolledChildrenHeight = offset;
+        if (mHeightIndex.contains(position)) {
+            mPrevFirstVisibleChildHeight = mHeightIndex.get(position);
+        } else {
+            mPrevFirstVisibleChildHeight = mHeightIndex.getEstimatedHeight(adapter.getItemViewType(position));
+        }
+        // Top of the item is relative to the top padding
+        setSelectionFromTop(position, offset - y - mView.getPaddingTop());
+    }
+
+    /**
+     * Moves the first visible item to the other position without scrolling,
+     * e.g. when the items above it are inserted or removed.
+     *
+     * @param position    new adapter position of the first visible item
+     * @param offsetDelta difference of the offset of the item from the top of the contents
+     */
+    void moveFirstVisiblePosition(int position, int offsetDelta) {
+        mPrevFirstVisiblePosition = position;
+        mPrevScrolledChildrenHeight += offsetDelta;
+    }
+
+    int getPrevFirstVisiblePosition() {
+        return mPrevFirstVisiblePosition;
+    }
+
+    private void onScrollChanged() {
+        mAnimatedViewLayers.onScrollChanged();
+        if (mCallbacks != null || mScrollDispatcher.hasListeners() || mViewabilityTracker != null) {
+            if (mView.getChildCount() > 0 && mView.getAdapter() != null) {
+                ListAdapter adapter = mView.getAdapter();
+                int firstVisiblePosition = mView.getFirstVisiblePosition();
+                int lastVisiblePosition = mView.getLastVisiblePosition();
+                if (mViewabilityTracker != null) {
+                    mViewabilityTracker.beginUpdate(firstVisiblePosition, lastVisiblePosition, 0, mView.getHeight());
+                }
+                for (int i = firstVisiblePosition, j = 0; i <= lastVisiblePosition; i++, j++) {
+                    View child = mView.getChildAt(j);
+                    mHeightIndex.put(i, child.getHeight(), adapter.getItemViewType(i));
+                    onItemLaidOut(i, child.getHeight());
+                    if (mViewabilityTracker != null) {
+                        mViewabilityTracker.updateItem(i, adapter.getItemId(i), child.getTop(), child.getHeight());
+                    }
+                }
+                if (mViewabilityTracker != null) {
+                    mViewabilityTracker.endUpdate();
+                }
+
+                View firstVisibleChild = mView.getChildAt(0);
+                if (firstVisibleChild != null) {
+                    if (mPrevFirstVisiblePosition < firstVisiblePosition) {
+                        // scroll down
+                        int skippedChildrenHeight = 0;
+                        if (firstVisiblePosition - mPrevFirstVisiblePosition != 1) {
+                            for (int i = firstVisiblePosition - 1; i > mPrevFirstVisiblePosition; i--) {
+                                if (mHeightIndex.contains(i)) {
+                                    skippedChildrenHeight += mHeightIndex.get(i);
+                                } else {
+                                    // Approximate each item's height to the first visible child.
+                                    // It may be incorrect, but without this, scrollY will be broken
+                                    // when scrolling from the bottom.
+                                    skippedChildrenHeight += firstVisibleChild.getHeight();
+                                }
+                            }
+                        }
+                        mPrevScrolledChildrenHeight += mPrevFirstVisibleChildHeight + skippedChildrenHeight;
+                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
+                    } else if (firstVisiblePosition < mPrevFirstVisiblePosition) {
+                        // scroll up
+                        int skippedChildrenHeight = 0;
+                        if (mPrevFirstVisiblePosition - firstVisiblePosition != 1) {
+                            for (int i = mPrevFirstVisiblePosition - 1; i > firstVisiblePosition; i--) {
+                                if (mHeightIndex.contains(i)) {
+                                    skippedChildrenHeight += mHeightIndex.get(i);
+                                } else {
+                                    // Approximate each item's height to the first visible child.
+                                    // It may be incorrect, but without this, scrollY will be broken
+                                    // when scrolling from the bottom.
+                                    skippedChildrenHeight += firstVisibleChild.getHeight();
+                                }
+                            }
+                        }
+                        mPrevScrolledChildrenHeight -= firstVisibleChild.getHeight() + skippedChildrenHeight;
+                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
+                    } else if (firstVisiblePosition == 0) {
+                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
+                    }
+                    if (mPrevFirstVisibleChildHeight < 0) {
+                        mPrevFirstVisibleChildHeight = 0;
+                    }
+                    mScrollY = mPrevScrolledChildrenHeight - firstVisibleChild.getTop();
+                    mPrevFirstVisiblePosition = firstVisiblePosition;
+                    updateMaxScrollY();
+
+                    if (mCallbacks != null) {
+                        mCallbacks.onScrollChanged(mScrollY, mFirstScroll, mDragging);
+                    }
+                    mScrollDispatcher.dispatchScrollChanged(mScrollY, mMaxScrollY, mFirstScroll, mDragging,
+                            mScrollPhaseTracker.getPhase(), firstVisiblePosition, adapter.getCount());
+                    if (mFirstScroll) {
+                        mFirstScroll = false;
+                    }
+
+                    if (mPrevScrollY < mScrollY) {
+                        mScrollState = ScrollState.UP;
+                    } else if (mScrollY < mPrevScrollY) {
+                        mScrollState = ScrollState.DOWN;
+                    } else {
+                        mScrollState = ScrollState.STOP;
+                    }
+                    mPrevScrollY = mScrollY;
+                }
+            }
+        }
+    }
+
+    private StableIdState createStableIdState() {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null || !adapter.hasStableIds() || mView.getChildCount() == 0) {
+            return null;
+        }
+        final int count = adapter.getCount();
+        SparseIntArray heights = mHeightIndex.getHeights();
+        // Keys are sorted, so skip the heights for the positions out of the data set
+        int size = 0;
+        while (size < heights.size() && heights.keyAt(size) < count) {
+            size++;
+        }
+        long[] ids = new long[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = adapter.getItemId(heights.keyAt(i));
+            values[i] = heights.valueAt(i);
+        }
+        return new StableIdState(adapter.getItemId(mView.getFirstVisiblePosition()), mView.getChildAt(0).getTop(), ids, values);
+    }
+
+    /**
+     * Restores the scroll position from the pending state saved with the stable IDs.
+     * This should be called before the children are laid out,
+     * so that the widget is laid out from the anchor item in the same layout pass.
+     *
+     * @return true if the scroll position is restored
+     */
+    private boolean restoreStableIdState() {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null || adapter.getCount() == 0) {
+            // Wait for the data set
+            return false;
+        }
+        StableIdState state = mPendingStableIdState;
+        mPendingStableIdState = null;
+        if (!adapter.hasStableIds()) {
+            return false;
+        }
+        final int count = adapter.getCount();
+        SparseIntArray heights = new SparseIntArray();
+        int anchorPosition = -1;
+        for (int i = 0; i < count; i++) {
+            long id = adapter.getItemId(i);
+            if (anchorPosition < 0 && id == state.anchorId) {
+                anchorPosition = i;
+            }
+            state.putHeight(i, id, heights);
+        }
+        if (anchorPosition < 0) {
+            // The anchor item has been removed: use the positions restored by the super class
+            return false;
+        }
+        mHeightIndex.restore(heights);
+        updateMaxScrollY();
+        int offset = mHeightIndex.getEstimatedOffset(anchorPosition);
+        mPrevFirstVisiblePosition = anchorPosition;
+        mPrevScrolledChildrenHeight = offset;
+        mPrevFirstVisibleChildHeight = heights.get(anchorPosition,
+                mHeightIndex.getEstimatedHeight(adapter.getItemViewType(anchorPosition)));
+        mScrollY = offset - state.anchorOffset;
+        mPrevScrollY = mScrollY;
+        // Top of the item is relative to the top padding
+        setSelectionFromTop(anchorPosition, state.anchorOffset - mView.getPaddingTop());
+        return true;
+    }
+
+    /**
+     * Restores the scroll position from the pending snapshot.
+     * This should be called before the children are laid out,
+     * so that the widget is laid out from the anchor item in the same layout pass.
+     *
+     * @return true if the scroll position is restored
+     */
+    private boolean restoreScrollSnapshot() {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null || adapter.getCount() == 0) {
+            // Wait for the data set
+            return false;
+        }
+        ScrollSnapshot snapshot = mPendingScrollSnapshot;
+        mPendingScrollSnapshot = null;
+        final int count = adapter.getCount();
+        if (snapshot.anchorPosition == ScrollSnapshot.NO_POSITION || count <= snapshot.anchorPosition) {
+            return false;
+        }
+        final int anchorPosition = snapshot.anchorPosition;
+        mHeightIndex.restore(snapshot.createHeights(count));
+        updateMaxScrollY();
+        mPrevFirstVisiblePosition = anchorPosition;
+        mPrevScrolledChildrenHeight = snapshot.scrollY + snapshot.anchorOffset;
+        mPrevFirstVisibleChildHeight = snapshot.getHeight(anchorPosition,
+                mHeightIndex.getEstimatedHeight(adapter.getItemViewType(anchorPosition)));
+        mScrollY = snapshot.scrollY;
+        mPrevScrollY = mScrollY;
+        // Top of the item is relative to the top padding
+        setSelectionFromTop(anchorPosition, snapshot.anchorOffset - mView.getPaddingTop());
+        return true;
+    }
+
+    /**
+     * Updates the view types of the height index after the data set is changed.
+     * If all the items have the same view type and the items are appended,
+     * only the new items are typed. Otherwise the view types are scanned later.
+     */
+    private void updateItemTypes() {
+        ListAdapter adapter = mView.getAdapter();
+        int prevCount = mHeightIndex.getItemCount();
+        int count = adapter == null ? 0 : adapter.getCount();
+        if (adapter == null || mHeightIndex.needsItemTypes() || count < prevCount || adapter.getViewTypeCount() != 1) {
+            mHeightIndex.invalidateItemTypes();
+            return;
+        }
+        // Footers are moved after the appended items
+        int footersCount = 0;
+        if (adapter instanceof HeaderViewListAdapter) {
+            footersCount = ((HeaderViewListAdapter) adapter).getFootersCount();
+        }
+        int start = Math.max(0, prevCount - footersCount);
+        mHeightIndex.insertPositions(start, count - prevCount);
+        for (int i = start; i < start + count - prevCount; i++) {
+            mHeightIndex.setItemType(i, adapter.getItemViewType(i));
+        }
+    }
+
+    private void scanItemTypes() {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        final int count = adapter.getCount();
+        mHeightIndex.beginItemTypes(count);
+        for (int i = 0; i < count; i++) {
+            mHeightIndex.addItemType(adapter.getItemViewType(i));
+        }
+    }
+
+    private void updateMaxScrollY() {
+        ListAdapter adapter = mView.getAdapter();
+        if (adapter == null) {
+            mMaxScrollY = 0;
+            return;
+        }
+        if (mHeightIndex.needsItemTypes() || adapter.getCount() != mHeightIndex.getItemCount()) {
+            // Scanning all the items is too heavy for the scroll callbacks,
+            // so estimate with the current types until it's scanned while the scroll is idle.
+            mHeightIndex.setItemCount(adapter.getCount());
+            if (!mItemTypesScanPending) {
+                mItemTypesScanPending = true;
+                mView.post(mItemTypesScanRunnable);
+            }
+        }
+        int contentHeight = estimateContentHeight(mHeightIndex.getEstimatedTotalHeight(), mHeightIndex.getItemCount());
+        mMaxScrollY = Math.max(0, contentHeight - mView.getHeight());
+    }
+
+    static class SavedState extends View.BaseSavedState {
+        int prevFirstVisiblePosition;
+        int prevFirstVisibleChildHeight = -1;
+        int prevScrolledChildrenHeight;
+        int prevScrollY;
+        int scrollY;
+        SparseIntArray childrenHeights;
+        StableIdState stableIdState;
+
+        /**
+         * Called by onSaveInstanceState.
+         */
+        private SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        /**
+         * Called by CREATOR.
+         */
+        private SavedState(Parcel in) {
+            super(in);
+            prevFirstVisiblePosition = in.readInt();
+            prevFirstVisibleChildHeight = in.readInt();
+            prevScrolledChildrenHeight = in.readInt();
+            prevScrollY = in.readInt();
+            scrollY = in.readInt();
+            childrenHeights = new SparseIntArray();
+            final int numOfChildren = in.readInt();
+            if (0 < numOfChildren) {
+                for (int i = 0; i < numOfChildren; i++) {
+                    final int key = in.readInt();
+                    final int value = in.readInt();
+                    childrenHeights.put(key, value);
+                }
+            }
+            if (in.readInt() != 0) {
+                stableIdState = new StableIdState(in);
+            }
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(prevFirstVisiblePosition);
+            out.writeInt(prevFirstVisibleChildHeight);
+            out.writeInt(prevScrolledChildrenHeight);
+            out.writeInt(prevScrollY);
+            out.writeInt(scrollY);
+            final int numOfChildren = childrenHeights == null ? 0 : childrenHeights.size();
+            out.writeInt(numOfChildren);
+            if (0 < numOfChildren) {
+                for (int i = 0; i < numOfChildren; i++) {
+                    out.writeInt(childrenHeights.keyAt(i));
+                    out.writeInt(childrenHeights.valueAt(i));
+                }
+            }
+            out.writeInt(stableIdState == null ? 0 : 1);
+            if (stableIdState != null) {
+                stableIdState.writeToParcel(out);
+            }
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR
+                = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.content.Context;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.SparseIntArray;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ExpandableListAdapter;
+import android.widget.ExpandableListView;
+import android.widget.ListAdapter;
+
+/**
+ * ExpandableListView that its scroll position can be observed.
+ * <p/>
+ * The heights of the items are also kept with their packed positions
+ * (see {@link ExpandableListView#getPackedPositionForChild(int, int)}),
+ * so when a group is expanded or collapsed, the heights after the group are shifted
+ * to the new flat positions and the scroll position is kept without measuring the items again.
+ */
+public class ObservableExpandableListView extends ExpandableListView implements Scrollable {
+
+    private ObservableAbsListViewHelper mHelper;
+    private LongSparseIntArray mPackedHeights;
+    private long mFirstVisiblePackedPosition = PACKED_POSITION_VALUE_NULL;
+
+    // Expanded states of the groups when the heights were updated last time
+    private boolean[] mExpandedGroups;
+    private int mGroupCount;
+
+    public ObservableExpandableListView(Context context) {
+        super(context);
+        init();
+    }
+
+    public ObservableExpandableListView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public ObservableExpandableListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        super.onRestoreInstanceState(mHelper.onRestoreInstanceState(state));
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        return mHelper.onSaveInstanceState(super.onSaveInstanceState());
+    }
+
+    @Override
+    protected void layoutChildren() {
+        mHelper.onLayoutChildren();
+        super.layoutChildren();
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        mHelper.onInterceptTouchEvent(ev);
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (mHelper.onTouchEvent(ev)) {
+            return false;
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    @Override
+    public void setOnScrollListener(OnScrollListener l) {
+        // Don't set l to super.setOnScrollListener().
+        // l receives all events through the listener of the helper.
+        mHelper.setOnScrollListener(l);
+    }
+
+    @Override
+    public void setAdapter(ExpandableListAdapter adapter) {
+        super.setAdapter(adapter);
+        mPackedHeights.clear();
+        updateExpandedGroups();
+        // Observe the flattened adapter, which is notified when the groups are expanded or collapsed
+        mHelper.setAdapter(getAdapter());
+    }
+
+    @Override
+    public void setScrollViewCallbacks(ObservableScrollViewCallbacks listener) {
+        mHelper.setScrollViewCallbacks(listener);
+    }
+
+    @Override
+    public void setTouchInterceptionViewGroup(ViewGroup viewGroup) {
+        mHelper.setTouchInterceptionViewGroup(viewGroup);
+    }
+
+    @Override
+    public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mHelper.setOnApproachingEndListener(listener);
+    }
+
+    @Override
+    public void setApproachingEndLookahead(int pixels, int millis) {
+        mHelper.setApproachingEndLookahead(pixels, millis);
+    }
+
+    @Override
+    public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mHelper.addOnBoundaryCrossedListener(boundaries, listener);
+    }
+
+    @Override
+    public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mHelper.removeOnBoundaryCrossedListener(listener);
+    }
+
+    @Override
+    public void setOnScrollEventListener(OnScrollEventListener listener) {
+        mHelper.setOnScrollEventListener(listener);
+    }
+
+    @Override
+    public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mHelper.setScrollSampleExporter(exporter);
+    }
+
+    @Override
+    public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mHelper.setOnScrollPhaseChangedListener(listener);
+    }
+
+    @Override
+    public ScrollPhase getScrollPhase() {
+        return mHelper.getScrollPhase();
+    }
+
+    @Override
+    public void addAnimatedView(View view) {
+        mHelper.addAnimatedView(view);
+    }
+
+    @Override
+    public void removeAnimatedView(View view) {
+        mHelper.removeAnimatedView(view);
+    }
+
+    @Override
+    public void scrollVerticallyTo(int y) {
+        View firstVisibleChild = getChildAt(0);
+        if (firstVisibleChild != null) {
+            int baseHeight = firstVisibleChild.getHeight();
+            int position = y / baseHeight;
+            setSelection(position);
+        }
+    }
+
+    @Override
+    public int getCurrentScrollY() {
+        return mHelper.getCurrentScrollY();
+    }
+
+    @Override
+    public int getMaxScrollY() {
+        return mHelper.getMaxScrollY();
+    }
+
+    @Override
+    public float getScrollProgress() {
+        return mHelper.getScrollProgress();
+    }
+
+    void saveScrollSnapshot(ScrollSnapshot out, int maxHeights) {
+        mHelper.saveScrollSnapshot(out, maxHeights);
+    }
+
+    void restoreScrollSnapshot(ScrollSnapshot snapshot) {
+        mHelper.setPendingScrollSnapshot(snapshot);
+    }
+
+    private void init() {
+        mPackedHeights = new LongSparseIntArray();
+        mHelper = new ObservableAbsListViewHelper(this) {
+            @Override
+            int estimateContentHeight(int itemsHeight, int itemCount) {
+                return itemsHeight + Math.max(0, itemCount - 1) * getDividerHeight()
+                        + getPaddingTop() + getPaddingBottom();
+            }
+
+            @Override
+            void onItemLaidOut(int position, int height) {
+                long packedPosition = getExpandableListPosition(position);
+                if (getPackedPositionType(packedPosition) == PACKED_POSITION_TYPE_NULL) {
+                    // Header or footer
+                    return;
+                }
+                mPackedHeights.put(packedPosition, height);
+                if (position == getFirstVisiblePosition()) {
+                    mFirstVisiblePackedPosition = packedPosition;
+                }
+            }
+
+            @Override
+            boolean onDataSetChanged() {
+                updateFlatPositions();
+                return true;
+            }
+
+            @Override
+            void setSelectionFromTop(int position, int y) {
+                ObservableExpandableListView.this.setSelectionFromTop(position, y);
+            }
+        };
+        super.setOnScrollListener(mHelper.getScrollListener());
+    }
+
+    /**
+     * Moves the heights keyed by the flat positions to the current flat positions
+     * of their packed positions, after the groups are expanded or collapsed.
+     * When only one group is toggled, just the heights and the view types after the group
+     * are shifted by the number of its children.
+     * Otherwise the view types are marked as stale.
+     */
+    private void updateFlatPositions() {
+        ListAdapter adapter = getAdapter();
+        ItemHeightIndex heightIndex = mHelper.getHeightIndex();
+        if (adapter == null) {
+            heightIndex.invalidateItemTypes();
+            updateExpandedGroups();
+            return;
+        }
+        int prevFirstVisiblePosition = mHelper.getPrevFirstVisiblePosition();
+        int prevOffset = heightIndex.getEstimatedOffset(prevFirstVisiblePosition);
+
+        int toggledGroup = findToggledGroup();
+        if (0 <= toggledGroup) {
+            shiftChildren(adapter, heightIndex, toggledGroup);
+        } else {
+            heightIndex.invalidateItemTypes();
+            if (0 < mPackedHeights.size()) {
+                remapFlatPositions(adapter, heightIndex);
+            }
+        }
+        updateExpandedGroups();
+        if (mPackedHeights.size() == 0) {
+            return;
+        }
+
+        // Keep the scroll position of the first visible item
+        final int count = adapter.getCount();
+        int firstVisiblePosition = getFlatPositionIfVisible(mFirstVisiblePackedPosition);
+        if (0 <= firstVisiblePosition && firstVisiblePosition < count) {
+            mHelper.moveFirstVisiblePosition(firstVisiblePosition,
+                    heightIndex.getEstimatedOffset(firstVisiblePosition) - prevOffset);
+        }
+    }
+
+    /**
+     * Returns the group that is expanded or collapsed since the last update.
+     *
+     * @return the group, or -1 if no group or more than one group is toggled,
+     * or the groups are changed
+     */
+    private int findToggledGroup() {
+        ExpandableListAdapter adapter = getExpandableListAdapter();
+        if (adapter == null || mExpandedGroups == null || adapter.getGroupCount() != mGroupCount) {
+            return -1;
+        }
+        int toggledGroup = -1;
+        for (int i = 0; i < mGroupCount; i++) {
+            if (mExpandedGroups[i] != isGroupExpanded(i)) {
+                if (0 <= toggledGroup) {
+                    return -1;
+                }
+                toggledGroup = i;
+            }
+        }
+        return toggledGroup;
+    }
+
+    private void shiftChildren(ListAdapter adapter, ItemHeightIndex heightIndex, int group) {
+        int childrenCount = getExpandableListAdapter().getChildrenCount(group);
+        int firstChildPosition = getFlatListPosition(getPackedPositionForGroup(group)) + 1;
+        if (!isGroupExpanded(group)) {
+            heightIndex.removePositions(firstChildPosition, childrenCount);
+            return;
+        }
+        heightIndex.insertPositions(firstChildPosition, childrenCount);
+        for (int i = 0; i < childrenCount; i++) {
+            int position = firstChildPosition + i;
+            int type = adapter.getItemViewType(position);
+            heightIndex.setItemType(position, type);
+            // Children that were laid out before they were collapsed
+            int height = mPackedHeights.get(getPackedPositionForChild(group, i), -1);
+            if (0 <= height) {
+                heightIndex.put(position, height, type);
+            }
+        }
+    }
+
+    /**
+     * Moves all the heights to the current flat positions of their packed positions.
+     * This is needed when the data set itself is changed.
+     */
+    private void remapFlatPositions(ListAdapter adapter, ItemHeightIndex heightIndex) {
+        // Headers are not moved by expanding or collapsing
+        SparseIntArray headerHeights = new SparseIntArray();
+        int headerCount = getHeaderViewsCount();
+        for (int i = 0; i < headerCount; i++) {
+            if (heightIndex.contains(i)) {
+                headerHeights.put(i, heightIndex.get(i));
+            }
+        }
+        heightIndex.clear();
+        for (int i = 0; i < headerHeights.size(); i++) {
+            int position = headerHeights.keyAt(i);
+            heightIndex.put(position, headerHeights.valueAt(i), adapter.getItemViewType(position));
+        }
+        final int count = adapter.getCount();
+        for (int i = 0; i < mPackedHeights.size(); i++) {
+            int position = getFlatPositionIfVisible(mPackedHeights.keyAt(i));
+            if (0 <= position && position < count) {
+                heightIndex.put(position, mPackedHeights.valueAt(i), adapter.getItemViewType(position));
+            }
+        }
+    }
+
+    private void updateExpandedGroups() {
+        ExpandableListAdapter adapter = getExpandableListAdapter();
+        mGroupCount = adapter == null ? 0 : adapter.getGroupCount();
+        if (mExpandedGroups == null || mExpandedGroups.length < mGroupCount) {
+            mExpandedGroups = new boolean[Math.max(mGroupCount, 8)];
+        }
+        for (int i = 0; i < mGroupCount; i++) {
+            mExpandedGroups[i] = isGroupExpanded(i);
+        }
+    }
+
+    /**
+     * Returns the flat position of the packed position.
+     * This doesn't call {@link #getFlatListPosition(long)} for the children of the collapsed groups,
+     * because they don't have flat positions.
+     *
+     * @param packedPosition packed position
+     * @return flat position, or -1 if the item is not in the list
+     */
+    private int getFlatPositionIfVisible(long packedPosition) {
+        int type = getPackedPositionType(packedPosition);
+        if (type == PACKED_POSITION_TYPE_NULL) {
+            return -1;
+        }
+        if (type == PACKED_POSITION_TYPE_CHILD && !isGroupExpanded(getPackedPositionGroup(packedPosition))) {
+            return -1;
+        }
+        return getFlatListPosition(packedPosition);
+    }
+}
@@ -17,14 +17,12 @@
 package com.github.ksoichiro.android.observablescrollview;
 
 import android.content.Context;
-import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
-import android.util.SparseIntArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AbsListView;
+import android.widget.ListAdapter;
 import android.widget.ListView;
 
 /**
@@ -32,43 +30,7 @@ import android.widget.ListView;
  */
 public class ObservableListView extends ListView implements Scrollable {
 
-    // Fields that should be saved onSaveInstanceState
-    private int mPrevFirstVisiblePosition;
-    private int mPrevFirstVisibleChildHeight = -1;
-    private int mPrevScrolledChildrenHeight;
-    private int mPrevScrollY;
-    private int mScrollY;
-    private SparseIntArray mChildrenHeights;
-
-    // Fields that don't need to be saved onSaveInstanceState
-    private ObservableScrollViewCallbacks mCallbacks;
-    private ScrollState mScrollState;
-    private boolean mFirstScroll;
-    private boolean mDragging;
-    private boolean mIntercepted;
-    private MotionEvent mPrevMoveEvent;
-    private ViewGroup mTouchInterceptionViewGroup;
-
-    private OnScrollListener mOriginalScrollListener;
-    private OnScrollListener mScrollListener = new OnScrollListener() {
-        @Override
-        public void onScrollStateChanged(AbsListView view, int scrollState) {
-            if (mOriginalScrollListener != null) {
-                mOriginalScrollListener.onScrollStateChanged(view, scrollState);
-            }
-        }
-
-        @Override
-        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
-            if (mOriginalScrollListener != null) {
-                mOriginalScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
-            }
-            // AbsListView#invokeOnItemScrollListener calls onScrollChanged(0, 0, 0, 0)
-            // on Android 4.0+, but Android 2.3 is not. (Android 3.0 is unknown)
-            // So call it with onScrollListener.
-            onScrollChanged();
-        }
-    };
+    private ObservableAbsListViewHelper mHelper;
 
     public ObservableListView(Context context) {
         super(context);
@@ -87,112 +49,36 @@ public class ObservableListView extends ListView implements Scrollable {
 
     @Override
     public void onRestoreInstanceState(Parcelable state) {
-        SavedState ss = (SavedState) state;
-        mPrevFirstVisiblePosition = ss.prevFirstVisiblePosition;
-        mPrevFirstVisibleChildHeight = ss.prevFirstVisibleChildHeight;
-        mPrevScrolledChildrenHeight = ss.prevScrolledChildrenHeight;
-        mPrevScrollY = ss.prevScrollY;
-        mScrollY = ss.scrollY;
-        mChildrenHeights = ss.childrenHeights;
-        super.onRestoreInstanceState(ss.getSuperState());
+        super.onRestoreInstanceState(mHelper.onRestoreInstanceState(state));
     }
 
     @Override
     public Parcelable onSaveInstanceState() {
-        Parcelable superState = super.onSaveInstanceState();
-        SavedState ss = new SavedState(superState);
-        ss.prevFirstVisiblePosition = mPrevFirstVisiblePosition;
-        ss.prevFirstVisibleChildHeight = mPrevFirstVisibleChildHeight;
-        ss.prevScrolledChildrenHeight = mPrevScrolledChildrenHeight;
-        ss.prevScrollY = mPrevScrollY;
-        ss.scrollY = mScrollY;
-        ss.childrenHeights = mChildrenHeights;
-        return ss;
+        return mHelper.onSaveInstanceState(super.onSaveInstanceState());
+    }
+
+    @Override
+    protected void layoutChildren() {
+        mHelper.onLayoutChildren();
+        super.layoutChildren();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mHelper.onDetachedFromWindow();
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
-            switch (ev.getActionMasked()) {
-                case MotionEvent.ACTION_DOWN:
-                    // Whether or not motion events are consumed by children,
-                    // flag initializations which are related to ACTION_DOWN events should be executed.
-                    // Because if the ACTION_DOWN is consumed by children and only ACTION_MOVEs are
-                    // passed to parent (this view), the flags will be invalid.
-                    // Also, applications might implement initialization codes to onDownMotionEvent,
-                    // so call it here.
-                    mFirstScroll = mDragging = true;
-                    mCallbacks.onDownMotionEvent();
-                    break;
-            }
-        }
+        mHelper.onInterceptTouchEvent(ev);
         return super.onInterceptTouchEvent(ev);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
-            switch (ev.getActionMasked()) {
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_CANCEL:
-                    mIntercepted = false;
-                    mDragging = false;
-                    mCallbacks.onUpOrCancelMotionEvent(mScrollState);
-                    break;
-                case MotionEvent.ACTION_MOVE:
-                    if (mPrevMoveEvent == null) {
-                        mPrevMoveEvent = ev;
-                    }
-                    float diffY = ev.getY() - mPrevMoveEvent.getY();
-                    mPrevMoveEvent = MotionEvent.obtainNoHistory(ev);
-                    if (getCurrentScrollY() - diffY <= 0) {
-                        // Can't scroll anymore.
-
-                        if (mIntercepted) {
-                            // Already dispatched ACTION_DOWN event to parents, so stop here.
-                            return false;
-                        }
-
-                        // Apps can set the interception target other than the direct parent.
-                        final ViewGroup parent;
-                        if (mTouchInterceptionViewGroup == null) {
-                            parent = (ViewGroup) getParent();
-                        } else {
-                            parent = mTouchInterceptionViewGroup;
-                        }
-
-                        // Get offset to parents. If the parent is not the direct parent,
-                        // we should aggregate offsets from all of the parents.
-                        float offsetX = 0;
-                        float offsetY = 0;
-                        for (View v = this; v != null && v != parent; v = (View) v.getParent()) {
-                            offsetX += v.getLeft() - v.getScrollX();
-                            offsetY += v.getTop() - v.getScrollY();
-                        }
-                        final MotionEvent event = MotionEvent.obtainNoHistory(ev);
-                        event.offsetLocation(offsetX, offsetY);
-
-                        if (parent.onInterceptTouchEvent(event)) {
-                            mIntercepted = true;
-
-                            // If the parent wants to intercept ACTION_MOVE events,
-                            // we pass ACTION_DOWN event to the parent
-                            // as if these touch events just have began now.
-                            event.setAction(MotionEvent.ACTION_DOWN);
-
-                            // Return this onTouchEvent() first and set ACTION_DOWN event for parent
-                            // to the queue, to keep events sequence.
-                            post(new Runnable() {
-                                @Override
-                                public void run() {
-                                    parent.dispatchTouchEvent(event);
-                                }
-                            });
-                        }
-                        return false;
-                    }
-                    break;
-            }
+        if (mHelper.onTouchEvent(ev)) {
+            return false;
         }
         return super.onTouchEvent(ev);
     }
@@ -200,18 +86,93 @@ public class ObservableListView extends ListView implements Scrollable {
     @Override
     public void setOnScrollListener(OnScrollListener l) {
         // Don't set l to super.setOnScrollListener().
-        // l receives all events through mScrollListener.
-        mOriginalScrollListener = l;
+        // l receives all events through the listener of the helper.
+        mHelper.setOnScrollListener(l);
+    }
+
+    @Override
+    public void setAdapter(ListAdapter adapter) {
+        super.setAdapter(adapter);
+        mHelper.setAdapter(adapter);
     }
 
     @Override
     public void setScrollViewCallbacks(ObservableScrollViewCallbacks listener) {
-        mCallbacks = listener;
+        mHelper.setScrollViewCallbacks(listener);
     }
 
     @Override
     public void setTouchInterceptionViewGroup(ViewGroup viewGroup) {
-        mTouchInterceptionViewGroup = viewGroup;
+        mHelper.setTouchInterceptionViewGroup(viewGroup);
+    }
+
+    @Override
+    public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mHelper.setOnApproachingEndListener(listener);
+    }
+
+    @Override
+    public void setApproachingEndLookahead(int pixels, int millis) {
+        mHelper.setApproachingEndLookahead(pixels, millis);
+    }
+
+    @Override
+    public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mHelper.addOnBoundaryCrossedListener(boundaries, listener);
+    }
+
+    @Override
+    public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mHelper.removeOnBoundaryCrossedListener(listener);
+    }
+
+    @Override
+    public void setOnScrollEventListener(OnScrollEventListener listener) {
+        mHelper.setOnScrollEventListener(listener);
+    }
+
+    @Override
+    public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mHelper.setScrollSampleExporter(exporter);
+    }
+
+    @Override
+    public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mHelper.setOnScrollPhaseChangedListener(listener);
+    }
+
+    @Override
+    public ScrollPhase getScrollPhase() {
+        return mHelper.getScrollPhase();
+    }
+
+    @Override
+    public void addAnimatedView(View view) {
+        mHelper.addAnimatedView(view);
+    }
+
+    @Override
+    public void removeAnimatedView(View view) {
+        mHelper.removeAnimatedView(view);
+    }
+
+    /**
+     * Sets whether the scroll position should be restored with the stable IDs of the items.
+     * If this is enabled and the adapter has stable IDs, the ID of the first visible item
+     * and the heights of the items keyed by their IDs are saved instead of the positions.
+     * When restored, the first visible item is searched in the data set of the adapter
+     * and the ListView is laid out from it, so the scroll position is correct
+     * even if the data set is changed while the process is dead.
+     * If the item is not found, the scroll position is restored with the positions.
+     *
+     * @param enabled true to restore the scroll position with the stable IDs
+     */
+    public void setStableIdRestorationEnabled(boolean enabled) {
+        mHelper.setStableIdRestorationEnabled(enabled);
+    }
+
+    public boolean isStableIdRestorationEnabled() {
+        return mHelper.isStableIdRestorationEnabled();
     }
 
     @Override
@@ -226,152 +187,52 @@ public class ObservableListView extends ListView implements Scrollable {
 
     @Override
     public int getCurrentScrollY() {
-        return mScrollY;
+        return mHelper.getCurrentScrollY();
     }
 
-    private void init() {
-        mChildrenHeights = new SparseIntArray();
-        super.setOnScrollListener(mScrollListener);
-    }
-
-    private void onScrollChanged() {
-        if (mCallbacks != null) {
-            if (getChildCount() > 0) {
-                int firstVisiblePosition = getFirstVisiblePosition();
-                for (int i = getFirstVisiblePosition(), j = 0; i <= getLastVisiblePosition(); i++, j++) {
-                    if (mChildrenHeights.indexOfKey(i) < 0 || getChildAt(j).getHeight() != mChildrenHeights.get(i)) {
-                        mChildrenHeights.put(i, getChildAt(j).getHeight());
-                    }
-                }
-
-                View firstVisibleChild = getChildAt(0);
-                if (firstVisibleChild != null) {
-                    if (mPrevFirstVisiblePosition < firstVisiblePosition) {
-                        // scroll down
-                        int skippedChildrenHeight = 0;
-                        if (firstVisiblePosition - mPrevFirstVisiblePosition != 1) {
-                            for (int i = firstVisiblePosition - 1; i > mPrevFirstVisiblePosition; i--) {
-                                if (0 < mChildrenHeights.indexOfKey(i)) {
-                                    skippedChildrenHeight += mChildrenHeights.get(i);
-                                } else {
-                                    // Approximate each item's height to the first visible child.
-                                    // It may be incorrect, but without this, scrollY will be broken
-                                    // when scrolling from the bottom.
-                                    skippedChildrenHeight += firstVisibleChild.getHeight();
-                                }
-                            }
-                        }
-                        mPrevScrolledChildrenHeight += mPrevFirstVisibleChildHeight + skippedChildrenHeight;
-                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
-                    } else if (firstVisiblePosition < mPrevFirstVisiblePosition) {
-                        // scroll up
-                        int skippedChildrenHeight = 0;
-                        if (mPrevFirstVisiblePosition - firstVisiblePosition != 1) {
-                            for (int i = mPrevFirstVisiblePosition - 1; i > firstVisiblePosition; i--) {
-                                if (0 < mChildrenHeights.indexOfKey(i)) {
-                                    skippedChildrenHeight += mChildrenHeights.get(i);
-                                } else {
-                                    // Approximate each item's height to the first visible child.
-                                    // It may be incorrect, but without this, scrollY will be broken
-                                    // when scrolling from the bottom.
-                                    skippedChildrenHeight += firstVisibleChild.getHeight();
-                                }
-                            }
-                        }
-                        mPrevScrolledChildrenHeight -= firstVisibleChild.getHeight() + skippedChildrenHeight;
-                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
-                    } else if (firstVisiblePosition == 0) {
-                        mPrevFirstVisibleChildHeight = firstVisibleChild.getHeight();
-                    }
-                    if (mPrevFirstVisibleChildHeight < 0) {
-                        mPrevFirstVisibleChildHeight = 0;
-                    }
-                    mScrollY = mPrevScrolledChildrenHeight - firstVisibleChild.getTop();
-                    mPrevFirstVisiblePosition = firstVisiblePosition;
-
-                    mCallbacks.onScrollChanged(mScrollY, mFirstScroll, mDragging);
-                    if (mFirstScroll) {
-                        mFirstScroll = false;
-                    }
-
-                    if (mPrevScrollY < mScrollY) {
-                        mScrollState = ScrollState.UP;
-                    } else if (mScrollY < mPrevScrollY) {
-                        mScrollState = ScrollState.DOWN;
-                    } else {
-                        mScrollState = ScrollState.STOP;
-                    }
-                    mPrevScrollY = mScrollY;
-                }
-            }
-        }
+    @Override
+    public int getMaxScrollY() {
+        return mHelper.getMaxScrollY();
     }
 
-    static class SavedState extends BaseSavedState {
-        int prevFirstVisiblePosition;
-        int prevFirstVisibleChildHeight = -1;
-        int prevScrolledChildrenHeight;
-        int prevScrollY;
-        int scrollY;
-        SparseIntArray childrenHeights;
+    @Override
+    public float getScrollProgress() {
+        return mHelper.getScrollProgress();
+    }
 
-        /**
-         * Called by onSaveInstanceState.
-         */
-        private SavedState(Parcelable superState) {
-            super(superState);
-        }
+    void setFastScroller(FastScroller fastScroller) {
+        mHelper.setFastScroller(fastScroller);
+    }
 
-        /**
-         * Called by CREATOR.
-         */
-        private SavedState(Parcel in) {
-            super(in);
-            prevFirstVisiblePosition = in.readInt();
-            prevFirstVisibleChildHeight = in.readInt();
-            prevScrolledChildrenHeight = in.readInt();
-            prevScrollY = in.readInt();
-            scrollY = in.readInt();
-            childrenHeights = new SparseIntArray();
-            final int numOfChildren = in.readInt();
-            if (0 < numOfChildren) {
-                for (int i = 0; i < numOfChildren; i++) {
-                    final int key = in.readInt();
-                    final int value = in.readInt();
-                    childrenHeights.put(key, value);
-                }
-            }
-        }
+    void setViewabilityTracker(ViewabilityTracker tracker) {
+        mHelper.setViewabilityTracker(tracker);
+    }
 
-        @Override
-        public void writeToParcel(Parcel out, int flags) {
-            super.writeToParcel(out, flags);
-            out.writeInt(prevFirstVisiblePosition);
-            out.writeInt(prevFirstVisibleChildHeight);
-            out.writeInt(prevScrolledChildrenHeight);
-            out.writeInt(prevScrollY);
-            out.writeInt(scrollY);
-            final int numOfChildren = childrenHeights == null ? 0 : childrenHeights.size();
-            out.writeInt(numOfChildren);
-            if (0 < numOfChildren) {
-                for (int i = 0; i < numOfChildren; i++) {
-                    out.writeInt(childrenHeights.keyAt(i));
-                    out.writeInt(childrenHeights.valueAt(i));
-                }
-            }
-        }
+    void scrollToEstimatedY(int y) {
+        mHelper.scrollToEstimatedY(y);
+    }
+
+    void saveScrollSnapshot(ScrollSnapshot out, int maxHeights) {
+        mHelper.saveScrollSnapshot(out, maxHeights);
+    }
+
+    void restoreScrollSnapshot(ScrollSnapshot snapshot) {
+        mHelper.setPendingScrollSnapshot(snapshot);
+    }
 
-        public static final Parcelable.Creator<SavedState> CREATOR
-                = new Parcelable.Creator<SavedState>() {
+    private void init() {
+        mHelper = new ObservableAbsListViewHelper(this) {
             @Override
-            public SavedState createFromParcel(Parcel in) {
-                return new SavedState(in);
+            int estimateContentHeight(int itemsHeight, int itemCount) {
+                return itemsHeight + Math.max(0, itemCount - 1) * getDividerHeight()
+                        + getPaddingTop() + getPaddingBottom();
             }
 
             @Override
-            public SavedState[] newArray(int size) {
-                return new SavedState[size];
+            void setSelectionFromTop(int position, int y) {
+                ObservableListView.this.setSelectionFromTop(position, y);
             }
         };
+        super.setOnScrollListener(mHelper.getScrollListener());
     }
 }
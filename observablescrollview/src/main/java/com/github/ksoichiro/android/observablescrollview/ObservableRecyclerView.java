@@ -40,16 +40,77 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
     private int mPrevScrolledChildrenHeight;
     private int mPrevScrollY;
     private int mScrollY;
-    private SparseIntArray mChildrenHeights;
+    private ItemHeightIndex mHeightIndex;
 
     // Fields that don't need to be saved onSaveInstanceState
     private ObservableScrollViewCallbacks mCallbacks;
+    private ScrollDispatcher mScrollDispatcher = new ScrollDispatcher();
+    private AnimatedViewLayers mAnimatedViewLayers = new AnimatedViewLayers(this);
+    private ScrollPhaseTracker mScrollPhaseTracker = new ScrollPhaseTracker(this);
     private ScrollState mScrollState;
     private boolean mFirstScroll;
     private boolean mDragging;
     private boolean mIntercepted;
-    private MotionEvent mPrevMoveEvent;
+    private TouchSampleFilter mMoveFilter = new TouchSampleFilter();
     private ViewGroup mTouchInterceptionViewGroup;
+    private int mMaxScrollY;
+    private boolean mStableIdRestorationEnabled;
+    private StableIdState mPendingStableIdState;
+    private ScrollSnapshot mPendingScrollSnapshot;
+    private ViewabilityTracker mViewabilityTracker;
+    private Adapter mObservedAdapter;
+    private AdapterDataObserver mAdapterDataObserver = new AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            mHeightIndex.invalidateItemTypes();
+        }
+
+        // The view types are updated only for the notified range,
+        // so the whole adapter is not scanned again in updateMaxScrollY().
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            updateItemTypes(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mHeightIndex.insertPositions(positionStart, itemCount);
+            updateItemTypes(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mHeightIndex.removePositions(positionStart, itemCount);
+        }
+    };
+    private OnScrollListener mOriginalScrollListener;
+    private OnScrollListener mScrollListener = new OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(int newState) {
+            switch (newState) {
+                case SCROLL_STATE_IDLE:
+                    mScrollPhaseTracker.onNativeIdle();
+                    break;
+                case SCROLL_STATE_DRAGGING:
+                    mScrollPhaseTracker.onNativeDragging();
+                    break;
+                case SCROLL_STATE_SETTLING:
+                    mScrollPhaseTracker.onNativeSettling();
+                    break;
+            }
+            if (mOriginalScrollListener != null) {
+                mOriginalScrollListener.onScrollStateChanged(newState);
+            }
+        }
+
+        @Override
+        public void onScrolled(int dx, int dy) {
+            if (mOriginalScrollListener != null) {
+                mOriginalScrollListener.onScrolled(dx, dy);
+            }
+        }
+    };
 
     public ObservableRecyclerView(Context context) {
         super(context);
@@ -74,7 +135,8 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         mPrevScrolledChildrenHeight = ss.prevScrolledChildrenHeight;
         mPrevScrollY = ss.prevScrollY;
         mScrollY = ss.scrollY;
-        mChildrenHeights = ss.childrenHeights;
+        mHeightIndex.restore(ss.childrenHeights);
+        mPendingStableIdState = mStableIdRestorationEnabled ? ss.stableIdState : null;
         super.onRestoreInstanceState(ss.getSuperState());
     }
 
@@ -87,21 +149,29 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         ss.prevScrolledChildrenHeight = mPrevScrolledChildrenHeight;
         ss.prevScrollY = mPrevScrollY;
         ss.scrollY = mScrollY;
-        ss.childrenHeights = mChildrenHeights;
+        // Heights keyed by the positions are also saved,
+        // because they are used when the anchor item can't be found on restore.
+        ss.childrenHeights = mHeightIndex.getHeights();
+        if (mStableIdRestorationEnabled) {
+            ss.stableIdState = createStableIdState();
+        }
         return ss;
     }
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
-        if (mCallbacks != null) {
-            if (getChildCount() > 0) {
+        mAnimatedViewLayers.onScrollChanged();
+        if (mCallbacks != null || mScrollDispatcher.hasListeners() || mViewabilityTracker != null) {
+            if (getChildCount() > 0 && getAdapter() != null) {
+                Adapter adapter = getAdapter();
                 int firstVisiblePosition = getChildPosition(getChildAt(0));
                 int lastVisiblePosition = getChildPosition(getChildAt(getChildCount() - 1));
                 for (int i = firstVisiblePosition, j = 0; i <= lastVisiblePosition; i++, j++) {
-                    if (mChildrenHeights.indexOfKey(i) < 0 || getChildAt(j).getHeight() != mChildrenHeights.get(i)) {
-                        mChildrenHeights.put(i, getChildAt(j).getHeight());
-                    }
+                    mHeightIndex.put(i, getChildAt(j).getHeight(), adapter.getItemViewType(i));
+                }
+                if (mViewabilityTracker != null) {
+                    updateViewability();
                 }
 
                 View firstVisibleChild = getChildAt(0);
@@ -111,8 +181,8 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                         int skippedChildrenHeight = 0;
                         if (firstVisiblePosition - mPrevFirstVisiblePosition != 1) {
                             for (int i = firstVisiblePosition - 1; i > mPrevFirstVisiblePosition; i--) {
-                                if (0 < mChildrenHeights.indexOfKey(i)) {
-                                    skippedChildrenHeight += mChildrenHeights.get(i);
+                                if (mHeightIndex.contains(i)) {
+                                    skippedChildrenHeight += mHeightIndex.get(i);
                                 } else {
                                     // Approximate each item's height to the first visible child.
                                     // It may be incorrect, but without this, scrollY will be broken
@@ -128,8 +198,8 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                         int skippedChildrenHeight = 0;
                         if (mPrevFirstVisiblePosition - firstVisiblePosition != 1) {
                             for (int i = mPrevFirstVisiblePosition - 1; i > firstVisiblePosition; i--) {
-                                if (0 < mChildrenHeights.indexOfKey(i)) {
-                                    skippedChildrenHeight += mChildrenHeights.get(i);
+                                if (mHeightIndex.contains(i)) {
+                                    skippedChildrenHeight += mHeightIndex.get(i);
                                 } else {
                                     // Approximate each item's height to the first visible child.
                                     // It may be incorrect, but without this, scrollY will be broken
@@ -148,8 +218,13 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                     }
                     mScrollY = mPrevScrolledChildrenHeight - firstVisibleChild.getTop();
                     mPrevFirstVisiblePosition = firstVisiblePosition;
+                    updateMaxScrollY();
 
-                    mCallbacks.onScrollChanged(mScrollY, mFirstScroll, mDragging);
+                    if (mCallbacks != null) {
+                        mCallbacks.onScrollChanged(mScrollY, mFirstScroll, mDragging);
+                    }
+                    mScrollDispatcher.dispatchScrollChanged(mScrollY, mMaxScrollY, mFirstScroll, mDragging,
+                            mScrollPhaseTracker.getPhase(), firstVisiblePosition, adapter.getItemCount());
                     if (mFirstScroll) {
                         mFirstScroll = false;
                     }
@@ -169,9 +244,37 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         }
     }
 
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        boolean restored = mPendingScrollSnapshot != null && restoreScrollSnapshot();
+        if (restored) {
+            // The snapshot is newer than the saved state
+            mPendingStableIdState = null;
+        } else {
+            restored = mPendingStableIdState != null && restoreStableIdState();
+        }
+        super.onLayout(changed, l, t, r, b);
+        if (restored) {
+            // Notify the restored scroll position without waiting for the user's scroll
+            onScrollChanged(getScrollX(), getScrollY(), getScrollX(), getScrollY());
+        } else if (mViewabilityTracker != null) {
+            // Items can be shown or resized by layout without scroll
+            updateViewability();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mViewabilityTracker != null) {
+            mViewabilityTracker.onHostDetachedFromWindow();
+        }
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
                     // Whether or not motion events are consumed by children,
@@ -181,7 +284,10 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                     // Also, applications might implement initialization codes to onDownMotionEvent,
                     // so call it here.
                     mFirstScroll = mDragging = true;
-                    mCallbacks.onDownMotionEvent();
+                    mMoveFilter.reset(ev);
+                    if (mCallbacks != null) {
+                        mCallbacks.onDownMotionEvent();
+                    }
                     break;
             }
         }
@@ -190,20 +296,25 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
                     mIntercepted = false;
                     mDragging = false;
-                    mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    // Don't take the difference from the last position of this gesture
+                    mMoveFilter.clear();
+                    if (mCallbacks != null) {
+                        mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    }
                     break;
                 case MotionEvent.ACTION_MOVE:
-                    if (mPrevMoveEvent == null) {
-                        mPrevMoveEvent = ev;
-                    }
-                    float diffY = ev.getY() - mPrevMoveEvent.getY();
-                    mPrevMoveEvent = MotionEvent.obtainNoHistory(ev);
+                    // Difference of the filtered position including the historical samples,
+                    // which doesn't depend on how many samples are batched in this event.
+                    mMoveFilter.add(ev);
+                    float diffY = mMoveFilter.getDeltaY();
+                    mMoveFilter.setOrigin();
                     if (getCurrentScrollY() - diffY <= 0) {
                         // Can't scroll anymore.
 
@@ -256,6 +367,26 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         return super.onTouchEvent(ev);
     }
 
+    @Override
+    public void setOnScrollListener(OnScrollListener listener) {
+        // Don't set listener to super.setOnScrollListener().
+        // listener receives all events through mScrollListener.
+        mOriginalScrollListener = listener;
+    }
+
+    @Override
+    public void setAdapter(Adapter adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mAdapterDataObserver);
+        }
+        super.setAdapter(adapter);
+        mObservedAdapter = adapter;
+        if (mObservedAdapter != null) {
+            mObservedAdapter.registerAdapterDataObserver(mAdapterDataObserver);
+        }
+        mHeightIndex.invalidateItemTypes();
+    }
+
     @Override
     public void setScrollViewCallbacks(ObservableScrollViewCallbacks listener) {
         mCallbacks = listener;
@@ -266,6 +397,75 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         mTouchInterceptionViewGroup = viewGroup;
     }
 
+    @Override
+    public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mScrollDispatcher.setOnApproachingEndListener(listener);
+    }
+
+    @Override
+    public void setApproachingEndLookahead(int pixels, int millis) {
+        mScrollDispatcher.setApproachingEndLookahead(pixels, millis);
+    }
+
+    @Override
+    public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.addOnBoundaryCrossedListener(boundaries, listener, mScrollY);
+    }
+
+    @Override
+    public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.removeOnBoundaryCrossedListener(listener);
+    }
+
+    @Override
+    public void setOnScrollEventListener(OnScrollEventListener listener) {
+        mScrollDispatcher.setOnScrollEventListener(listener, mScrollY);
+    }
+
+    @Override
+    public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mScrollDispatcher.setScrollSampleExporter(exporter);
+    }
+
+    @Override
+    public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mScrollPhaseTracker.setOnScrollPhaseChangedListener(listener);
+    }
+
+    @Override
+    public ScrollPhase getScrollPhase() {
+        return mScrollPhaseTracker.getPhase();
+    }
+
+    @Override
+    public void addAnimatedView(View view) {
+        mAnimatedViewLayers.add(view);
+    }
+
+    @Override
+    public void removeAnimatedView(View view) {
+        mAnimatedViewLayers.remove(view);
+    }
+
+    /**
+     * Sets whether the scroll position should be restored with the stable IDs of the items.
+     * If this is enabled and the adapter has stable IDs, the ID of the first visible item
+     * and the heights of the items keyed by their IDs are saved instead of the positions.
+     * When restored, the first visible item is searched in the data set of the adapter
+     * and the RecyclerView is laid out from it, so the scroll position is correct
+     * even if the data set is changed while the process is dead.
+     * If the item is not found, the scroll position is restored with the positions.
+     *
+     * @param enabled true to restore the scroll position with the stable IDs
+     */
+    public void setStableIdRestorationEnabled(boolean enabled) {
+        mStableIdRestorationEnabled = enabled;
+    }
+
+    public boolean isStableIdRestorationEnabled() {
+        return mStableIdRestorationEnabled;
+    }
+
     @Override
     public void scrollVerticallyTo(int y) {
         View firstVisibleChild = getChildAt(0);
@@ -304,8 +504,260 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         return mScrollY;
     }
 
+    @Override
+    public int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    @Override
+    public float getScrollProgress() {
+        if (mMaxScrollY <= 0) {
+            return 0;
+        }
+        return ScrollUtils.getFloat((float) mScrollY / mMaxScrollY, 0, 1);
+    }
+
+    void setFastScroller(FastScroller fastScroller) {
+        mScrollDispatcher.setFastScroller(fastScroller);
+    }
+
+    /**
+     * Saves the scroll position and the heights around the first visible item.
+     *
+     * @param out        snapshot to save to
+     * @param maxHeights maximum number of the heights to save
+     */
+    void saveScrollSnapshot(ScrollSnapshot out, int maxHeights) {
+        if (mPendingScrollSnapshot != null) {
+            // Not laid out since the snapshot was restored, so keep it
+            out.set(mPendingScrollSnapshot);
+            return;
+        }
+        View firstVisibleChild = getChildAt(0);
+        if (firstVisibleChild == null) {
+            out.set(mScrollY);
+            return;
+        }
+        out.set(mScrollY, getChildPosition(firstVisibleChild), firstVisibleChild.getTop(), mHeightIndex, maxHeights);
+    }
+
+    /**
+     * Restores the snapshot in the next layout.
+     *
+     * @param snapshot snapshot to restore
+     */
+    void restoreScrollSnapshot(ScrollSnapshot snapshot) {
+        mPendingScrollSnapshot = snapshot;
+        requestLayout();
+    }
+
+    void setViewabilityTracker(ViewabilityTracker tracker) {
+        mViewabilityTracker = tracker;
+        if (tracker != null) {
+            requestLayout();
+        }
+    }
+
+    private void updateViewability() {
+        // Children are not always in the order of the positions, e.g. while they are animated,
+        // and the removed ones don't have positions.
+        final int childCount = getChildCount();
+        int firstVisiblePosition = Integer.MAX_VALUE;
+        int lastVisiblePosition = NO_POSITION;
+        for (int i = 0; i < childCount; i++) {
+            int position = getChildPosition(getChildAt(i));
+            if (position != NO_POSITION) {
+                firstVisiblePosition = Math.min(firstVisiblePosition, position);
+                lastVisiblePosition = Math.max(lastVisiblePosition, position);
+            }
+        }
+        if (lastVisiblePosition == NO_POSITION) {
+            return;
+        }
+        mViewabilityTracker.beginUpdate(firstVisiblePosition, lastVisiblePosition, 0, getHeight());
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            int position = getChildPosition(child);
+            if (position != NO_POSITION) {
+                mViewabilityTracker.updateItem(position, getChildItemId(child), child.getTop(), child.getHeight());
+            }
+        }
+        mViewabilityTracker.endUpdate();
+    }
+
+    /**
+     * Scrolls to the scroll position estimated with the height index.
+     * This jumps to the item without laying out the items in between,
+     * and keeps scrollY consistent with the offsets of the index.
+     *
+     * @param y target scroll position
+     */
+    void scrollToEstimatedY(int y) {
+        Adapter adapter = getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        updateMaxScrollY();
+        int position = mHeightIndex.findPositionAt(y);
+        int offset = mHeightIndex.getEstimatedOffset(position);
+        mPrevFirstVisiblePosition = position;
+        mPrevScrolledChildrenHeight = offset;
+        if (mHeightIndex.contains(position)) {
+            mPrevFirstVisibleChildHeight = mHeightIndex.get(position);
+        } else {
+            mPrevFirstVisibleChildHeight = mHeightIndex.getEstimatedHeight(adapter.getItemViewType(position));
+        }
+        // Top of the item is relative to the top padding
+        LayoutManager lm = getLayoutManager();
+        if (lm != null && lm instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) lm).scrollToPositionWithOffset(position, offset - y - getPaddingTop());
+        } else {
+            scrollToPosition(position);
+        }
+    }
+
     private void init() {
-        mChildrenHeights = new SparseIntArray();
+        mHeightIndex = new ItemHeightIndex();
+        super.setOnScrollListener(mScrollListener);
+    }
+
+
+    private StableIdState createStableIdState() {
+        Adapter adapter = getAdapter();
+        if (adapter == null || !adapter.hasStableIds() || getChildCount() == 0) {
+            return null;
+        }
+        final int count = adapter.getItemCount();
+        SparseIntArray heights = mHeightIndex.getHeights();
+        // Keys are sorted, so skip the heights for the positions out of the data set
+        int size = 0;
+        while (size < heights.size() && heights.keyAt(size) < count) {
+            size++;
+        }
+        long[] ids = new long[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = adapter.getItemId(heights.keyAt(i));
+            values[i] = heights.valueAt(i);
+        }
+        return new StableIdState(adapter.getItemId(getChildPosition(getChildAt(0))), getChildAt(0).getTop(), ids, values);
+    }
+
+    /**
+     * Restores the scroll position from the pending state saved with the stable IDs.
+     * This should be called before the children are laid out,
+     * so that the RecyclerView is laid out from the anchor item in the same layout pass.
+     *
+     * @return true if the scroll position is restored
+     */
+    private boolean restoreStableIdState() {
+        Adapter adapter = getAdapter();
+        if (adapter == null || adapter.getItemCount() == 0) {
+            // Wait for the data set
+            return false;
+        }
+        StableIdState state = mPendingStableIdState;
+        mPendingStableIdState = null;
+        if (!adapter.hasStableIds()) {
+            return false;
+        }
+        final int count = adapter.getItemCount();
+        SparseIntArray heights = new SparseIntArray();
+        int anchorPosition = -1;
+        for (int i = 0; i < count; i++) {
+            long id = adapter.getItemId(i);
+            if (anchorPosition < 0 && id == state.anchorId) {
+                anchorPosition = i;
+            }
+            state.putHeight(i, id, heights);
+        }
+        if (anchorPosition < 0) {
+            // The anchor item has been removed: use the positions restored by the super class
+            return false;
+        }
+        mHeightIndex.restore(heights);
+        updateMaxScrollY();
+        int offset = mHeightIndex.getEstimatedOffset(anchorPosition);
+        mPrevFirstVisiblePosition = anchorPosition;
+        mPrevScrolledChildrenHeight = offset;
+        mPrevFirstVisibleChildHeight = heights.get(anchorPosition,
+                mHeightIndex.getEstimatedHeight(adapter.getItemViewType(anchorPosition)));
+        mScrollY = offset - state.anchorOffset;
+        mPrevScrollY = mScrollY;
+        // Top of the item is relative to the top padding
+        LayoutManager lm = getLayoutManager();
+        if (lm != null && lm instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) lm).scrollToPositionWithOffset(anchorPosition, state.anchorOffset - getPaddingTop());
+        } else {
+            scrollToPosition(anchorPosition);
+        }
+        return true;
+    }
+
+    /**
+     * Restores the scroll position from the pending snapshot.
+     * This should be called before the children are laid out,
+     * so that the RecyclerView is laid out from the anchor item in the same layout pass.
+     *
+     * @return true if the scroll position is restored
+     */
+    private boolean restoreScrollSnapshot() {
+        Adapter adapter = getAdapter();
+        if (adapter == null || adapter.getItemCount() == 0) {
+            // Wait for the data set
+            return false;
+        }
+        ScrollSnapshot snapshot = mPendingScrollSnapshot;
+        mPendingScrollSnapshot = null;
+        final int count = adapter.getItemCount();
+        if (snapshot.anchorPosition == ScrollSnapshot.NO_POSITION || count <= snapshot.anchorPosition) {
+            return false;
+        }
+        final int anchorPosition = snapshot.anchorPosition;
+        mHeightIndex.restore(snapshot.createHeights(count));
+        updateMaxScrollY();
+        mPrevFirstVisiblePosition = anchorPosition;
+        mPrevScrolledChildrenHeight = snapshot.scrollY + snapshot.anchorOffset;
+        mPrevFirstVisibleChildHeight = snapshot.getHeight(anchorPosition,
+                mHeightIndex.getEstimatedHeight(adapter.getItemViewType(anchorPosition)));
+        mScrollY = snapshot.scrollY;
+        mPrevScrollY = mScrollY;
+        // Top of the item is relative to the top padding
+        LayoutManager lm = getLayoutManager();
+        if (lm != null && lm instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) lm).scrollToPositionWithOffset(anchorPosition, snapshot.anchorOffset - getPaddingTop());
+        } else {
+            scrollToPosition(anchorPosition);
+        }
+        return true;
+    }
+
+    private void updateItemTypes(int positionStart, int itemCount) {
+        Adapter adapter = getAdapter();
+        if (adapter == null || mHeightIndex.needsItemTypes()) {
+            return;
+        }
+        int end = Math.min(positionStart + itemCount, adapter.getItemCount());
+        for (int i = positionStart; i < end; i++) {
+            mHeightIndex.setItemType(i, adapter.getItemViewType(i));
+        }
+    }
+
+    private void updateMaxScrollY() {
+        Adapter adapter = getAdapter();
+        if (adapter == null) {
+            mMaxScrollY = 0;
+            return;
+        }
+        if (mHeightIndex.needsItemTypes() || adapter.getItemCount() != mHeightIndex.getItemCount()) {
+            final int count = adapter.getItemCount();
+            mHeightIndex.beginItemTypes(count);
+            for (int i = 0; i < count; i++) {
+                mHeightIndex.addItemType(adapter.getItemViewType(i));
+            }
+        }
+        int contentHeight = mHeightIndex.getEstimatedTotalHeight() + getPaddingTop() + getPaddingBottom();
+        mMaxScrollY = Math.max(0, contentHeight - getHeight());
     }
 
     /**
@@ -331,6 +783,7 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
         int prevScrollY;
         int scrollY;
         SparseIntArray childrenHeights;
+        StableIdState stableIdState;
 
         // This keeps the parent(RecyclerView)'s state
         Parcelable superState;
@@ -372,6 +825,9 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                     childrenHeights.put(key, value);
                 }
             }
+            if (in.readInt() != 0) {
+                stableIdState = new StableIdState(in);
+            }
         }
 
         @Override
@@ -396,6 +852,10 @@ public class ObservableRecyclerView extends RecyclerView implements Scrollable {
                     out.writeInt(childrenHeights.valueAt(i));
                 }
             }
+            out.writeInt(stableIdState == null ? 0 : 1);
+            if (stableIdState != null) {
+                stableIdState.writeToParcel(out);
+            }
         }
 
         public Parcelable getSuperState() {
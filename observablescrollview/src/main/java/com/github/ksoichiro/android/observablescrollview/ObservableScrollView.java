@@ -36,12 +36,16 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
 
     // Fields that don't need to be saved onSaveInstanceState
     private ObservableScrollViewCallbacks mCallbacks;
+    private ScrollDispatcher mScrollDispatcher = new ScrollDispatcher();
+    private AnimatedViewLayers mAnimatedViewLayers = new AnimatedViewLayers(this);
+    private ScrollPhaseTracker mScrollPhaseTracker = new ScrollPhaseTracker(this);
     private ScrollState mScrollState;
     private boolean mFirstScroll;
     private boolean mDragging;
     private boolean mIntercepted;
-    private MotionEvent mPrevMoveEvent;
+    private TouchSampleFilter mMoveFilter = new TouchSampleFilter();
     private ViewGroup mTouchInterceptionViewGroup;
+    private int mMaxScrollY;
 
     public ObservableScrollView(Context context) {
         super(context);
@@ -72,13 +76,25 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
         return ss;
     }
 
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        updateMaxScrollY();
+    }
+
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onScrollChanged();
+        mScrollPhaseTracker.onScrollChanged();
+        if (mCallbacks != null || mScrollDispatcher.hasListeners()) {
             mScrollY = t;
 
-            mCallbacks.onScrollChanged(t, mFirstScroll, mDragging);
+            if (mCallbacks != null) {
+                mCallbacks.onScrollChanged(t, mFirstScroll, mDragging);
+            }
+            mScrollDispatcher.dispatchScrollChanged(t, mMaxScrollY, mFirstScroll, mDragging,
+                    mScrollPhaseTracker.getPhase(), ScrollSampleExporter.NO_POSITION, ScrollSampleExporter.NO_POSITION);
             if (mFirstScroll) {
                 mFirstScroll = false;
             }
@@ -100,7 +116,9 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        mScrollPhaseTracker.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
                     // Whether or not motion events are consumed by children,
@@ -110,7 +128,10 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
                     // Also, applications might implement initialization codes to onDownMotionEvent,
                     // so call it here.
                     mFirstScroll = mDragging = true;
-                    mCallbacks.onDownMotionEvent();
+                    mMoveFilter.reset(ev);
+                    if (mCallbacks != null) {
+                        mCallbacks.onDownMotionEvent();
+                    }
                     break;
             }
         }
@@ -119,20 +140,26 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        mScrollPhaseTracker.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
                     mIntercepted = false;
                     mDragging = false;
-                    mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    // Don't take the difference from the last position of this gesture
+                    mMoveFilter.clear();
+                    if (mCallbacks != null) {
+                        mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    }
                     break;
                 case MotionEvent.ACTION_MOVE:
-                    if (mPrevMoveEvent == null) {
-                        mPrevMoveEvent = ev;
-                    }
-                    float diffY = ev.getY() - mPrevMoveEvent.getY();
-                    mPrevMoveEvent = MotionEvent.obtainNoHistory(ev);
+                    // Difference of the filtered position including the historical samples,
+                    // which doesn't depend on how many samples are batched in this event.
+                    mMoveFilter.add(ev);
+                    float diffY = mMoveFilter.getDeltaY();
+                    mMoveFilter.setOrigin();
                     if (getCurrentScrollY() - diffY <= 0) {
                         // Can't scroll anymore.
 
@@ -195,6 +222,56 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
         mTouchInterceptionViewGroup = viewGroup;
     }
 
+    @Override
+    public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mScrollDispatcher.setOnApproachingEndListener(listener);
+    }
+
+    @Override
+    public void setApproachingEndLookahead(int pixels, int millis) {
+        mScrollDispatcher.setApproachingEndLookahead(pixels, millis);
+    }
+
+    @Override
+    public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.addOnBoundaryCrossedListener(boundaries, listener, mScrollY);
+    }
+
+    @Override
+    public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.removeOnBoundaryCrossedListener(listener);
+    }
+
+    @Override
+    public void setOnScrollEventListener(OnScrollEventListener listener) {
+        mScrollDispatcher.setOnScrollEventListener(listener, mScrollY);
+    }
+
+    @Override
+    public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mScrollDispatcher.setScrollSampleExporter(exporter);
+    }
+
+    @Override
+    public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mScrollPhaseTracker.setOnScrollPhaseChangedListener(listener);
+    }
+
+    @Override
+    public ScrollPhase getScrollPhase() {
+        return mScrollPhaseTracker.getPhase();
+    }
+
+    @Override
+    public void addAnimatedView(View view) {
+        mAnimatedViewLayers.add(view);
+    }
+
+    @Override
+    public void removeAnimatedView(View view) {
+        mAnimatedViewLayers.remove(view);
+    }
+
     @Override
     public void scrollVerticallyTo(int y) {
         scrollTo(0, y);
@@ -205,6 +282,28 @@ public class ObservableScrollView extends ScrollView implements Scrollable {
         return mScrollY;
     }
 
+    @Override
+    public int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    @Override
+    public float getScrollProgress() {
+        if (mMaxScrollY <= 0) {
+            return 0;
+        }
+        return ScrollUtils.getFloat((float) mScrollY / mMaxScrollY, 0, 1);
+    }
+
+    private void updateMaxScrollY() {
+        if (getChildCount() == 0) {
+            mMaxScrollY = 0;
+            return;
+        }
+        // Same as ScrollView#getScrollRange(), which is not visible from subclasses.
+        mMaxScrollY = Math.max(0, getChildAt(0).getHeight() - (getHeight() - getPaddingBottom() - getPaddingTop()));
+    }
+
     static class SavedState extends BaseSavedState {
         int prevScrollY;
         int scrollY;
@@ -36,12 +36,16 @@ public class ObservableWebView extends WebView implements Scrollable {
 
     // Fields that don't need to be saved onSaveInstanceState
     private ObservableScrollViewCallbacks mCallbacks;
+    private ScrollDispatcher mScrollDispatcher = new ScrollDispatcher();
+    private AnimatedViewLayers mAnimatedViewLayers = new AnimatedViewLayers(this);
+    private ScrollPhaseTracker mScrollPhaseTracker = new ScrollPhaseTracker(this);
     private ScrollState mScrollState;
     private boolean mFirstScroll;
     private boolean mDragging;
     private boolean mIntercepted;
-    private MotionEvent mPrevMoveEvent;
+    private TouchSampleFilter mMoveFilter = new TouchSampleFilter();
     private ViewGroup mTouchInterceptionViewGroup;
+    private int mMaxScrollY;
 
     public ObservableWebView(Context context) {
         super(context);
@@ -72,13 +76,28 @@ public class ObservableWebView extends WebView implements Scrollable {
         return ss;
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int ow, int oh) {
+        super.onSizeChanged(w, h, ow, oh);
+        updateMaxScrollY();
+    }
+
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onScrollChanged();
+        mScrollPhaseTracker.onScrollChanged();
+        // Contents of WebView can grow without layout (e.g. while loading),
+        // so this should be updated here.
+        updateMaxScrollY();
+        if (mCallbacks != null || mScrollDispatcher.hasListeners()) {
             mScrollY = t;
 
-            mCallbacks.onScrollChanged(t, mFirstScroll, mDragging);
+            if (mCallbacks != null) {
+                mCallbacks.onScrollChanged(t, mFirstScroll, mDragging);
+            }
+            mScrollDispatcher.dispatchScrollChanged(t, mMaxScrollY, mFirstScroll, mDragging,
+                    mScrollPhaseTracker.getPhase(), ScrollSampleExporter.NO_POSITION, ScrollSampleExporter.NO_POSITION);
             if (mFirstScroll) {
                 mFirstScroll = false;
             }
@@ -96,7 +115,9 @@ public class ObservableWebView extends WebView implements Scrollable {
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        mScrollPhaseTracker.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
                     // Whether or not motion events are consumed by children,
@@ -106,7 +127,10 @@ public class ObservableWebView extends WebView implements Scrollable {
                     // Also, applications might implement initialization codes to onDownMotionEvent,
                     // so call it here.
                     mFirstScroll = mDragging = true;
-                    mCallbacks.onDownMotionEvent();
+                    mMoveFilter.reset(ev);
+                    if (mCallbacks != null) {
+                        mCallbacks.onDownMotionEvent();
+                    }
                     break;
             }
         }
@@ -115,7 +139,9 @@ public class ObservableWebView extends WebView implements Scrollable {
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        if (mCallbacks != null) {
+        mAnimatedViewLayers.onTouchEvent(ev);
+        mScrollPhaseTracker.onTouchEvent(ev);
+        if (mCallbacks != null || mScrollDispatcher.hasScrollEventListener()) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
                     break;
@@ -123,14 +149,18 @@ public class ObservableWebView extends WebView implements Scrollable {
                 case MotionEvent.ACTION_CANCEL:
                     mIntercepted = false;
                     mDragging = false;
-                    mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    // Don't take the difference from the last position of this gesture
+                    mMoveFilter.clear();
+                    if (mCallbacks != null) {
+                        mCallbacks.onUpOrCancelMotionEvent(mScrollState);
+                    }
                     break;
                 case MotionEvent.ACTION_MOVE:
-                    if (mPrevMoveEvent == null) {
-                        mPrevMoveEvent = ev;
-                    }
-                    float diffY = ev.getY() - mPrevMoveEvent.getY();
-                    mPrevMoveEvent = MotionEvent.obtainNoHistory(ev);
+                    // Difference of the filtered position including the historical samples,
+                    // which doesn't depend on how many samples are batched in this event.
+                    mMoveFilter.add(ev);
+                    float diffY = mMoveFilter.getDeltaY();
+                    mMoveFilter.setOrigin();
                     if (getCurrentScrollY() - diffY <= 0) {
                         // Can't scroll anymore.
 
@@ -193,6 +223,56 @@ public class ObservableWebView extends WebView implements Scrollable {
         mTouchInterceptionViewGroup = viewGroup;
     }
 
+    @Override
+    public void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mScrollDispatcher.setOnApproachingEndListener(listener);
+    }
+
+    @Override
+    public void setApproachingEndLookahead(int pixels, int millis) {
+        mScrollDispatcher.setApproachingEndLookahead(pixels, millis);
+    }
+
+    @Override
+    public void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.addOnBoundaryCrossedListener(boundaries, listener, mScrollY);
+    }
+
+    @Override
+    public void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        mScrollDispatcher.removeOnBoundaryCrossedListener(listener);
+    }
+
+    @Override
+    public void setOnScrollEventListener(OnScrollEventListener listener) {
+        mScrollDispatcher.setOnScrollEventListener(listener, mScrollY);
+    }
+
+    @Override
+    public void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mScrollDispatcher.setScrollSampleExporter(exporter);
+    }
+
+    @Override
+    public void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mScrollPhaseTracker.setOnScrollPhaseChangedListener(listener);
+    }
+
+    @Override
+    public ScrollPhase getScrollPhase() {
+        return mScrollPhaseTracker.getPhase();
+    }
+
+    @Override
+    public void addAnimatedView(View view) {
+        mAnimatedViewLayers.add(view);
+    }
+
+    @Override
+    public void removeAnimatedView(View view) {
+        mAnimatedViewLayers.remove(view);
+    }
+
     @Override
     public void scrollVerticallyTo(int y) {
         scrollTo(0, y);
@@ -203,6 +283,23 @@ public class ObservableWebView extends WebView implements Scrollable {
         return mScrollY;
     }
 
+    @Override
+    public int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    @Override
+    public float getScrollProgress() {
+        if (mMaxScrollY <= 0) {
+            return 0;
+        }
+        return ScrollUtils.getFloat((float) mScrollY / mMaxScrollY, 0, 1);
+    }
+
+    private void updateMaxScrollY() {
+        mMaxScrollY = Math.max(0, computeVerticalScrollRange() - getHeight());
+    }
+
     static class SavedState extends BaseSavedState {
         int prevScrollY;
         int scrollY;
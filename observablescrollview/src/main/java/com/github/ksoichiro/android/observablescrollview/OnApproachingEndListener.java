@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Listener to be notified when the Scrollable widget is approaching the end of its contents.
+ * This is useful to start loading the next page of the infinite lists.
+ */
+public interface OnApproachingEndListener {
+    /**
+     * Called when the remaining scroll distance becomes less than the lookahead.
+     * This is called only once while the scroll position stays in the lookahead,
+     * and it will be called again after the contents grow (the items are added to the adapter
+     * for the widgets with adapters)
+     * or the widget is scrolled back out of the lookahead.
+     *
+     * @param remainingY estimated distance in pixels to the end of the contents
+     */
+    public void onApproachingEnd(int remainingY);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Listener to be notified when the scroll position of the Scrollable widget
+ * crosses one of the registered boundaries.
+ * This is useful if you only need to know whether the scroll position is
+ * above or below some thresholds, e.g. to show/hide a header.
+ */
+public interface OnBoundaryCrossedListener {
+    /**
+     * Called when the scroll position crosses the boundary.
+     * If the scroll position crosses several boundaries at once,
+     * this is called for each of them in the order they are crossed.
+     * A boundary is regarded as crossed in {@link ScrollState#UP} direction
+     * when the scroll position reaches it, and in {@link ScrollState#DOWN} direction
+     * when the scroll position becomes less than it.
+     *
+     * @param index     index of the boundary in the sorted boundaries
+     * @param direction {@link ScrollState#UP} if the scroll position is increased,
+     *                  {@link ScrollState#DOWN} if decreased
+     */
+    public void onBoundaryCrossed(int index, ScrollState direction);
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Listener to be notified with {@link ScrollEvent} when the scroll position is changed.
+ * This is an alternative to {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}
+ * for the listeners that need the delta or the velocity of the scroll.
+ */
+public interface OnScrollEventListener {
+    /**
+     * Called when the scroll position is changed,
+     * just after {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}.
+     *
+     * @param event scroll event. This is reused in the next call, so don't keep it
+     */
+    public void onScrollEvent(ScrollEvent event);
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Listener to be notified when the scroll phase of the Scrollable widget is changed.
+ * This is useful to defer expensive work such as decoding images
+ * until the widget becomes {@link ScrollPhase#IDLE}.
+ */
+public interface OnScrollPhaseChangedListener {
+    /**
+     * Called when the scroll phase is changed.
+     * This is called only when the phase is actually changed,
+     * not in every scroll change event.
+     *
+     * @param phase new scroll phase
+     */
+    public void onScrollPhaseChanged(ScrollPhase phase);
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the scroll positions of the Scrollables in the pages that are destroyed,
+ * e.g. the pages of a FragmentStatePagerAdapter, and restores them when the pages are created again.
+ * <p/>
+ * Passing the scroll position through the arguments of the fragments restores only the position,
+ * and the Scrollables have to measure their items again to estimate the scroll position.
+ * This class saves the first visible item, its offset and the heights of the items around it
+ * for ObservableListView, ObservableGridView, ObservableExpandableListView and ObservableRecyclerView,
+ * so they are laid out from the same item with the same scroll position in the first layout.
+ * ObservableExpandableListView is restored by the flat positions,
+ * so the same groups should be expanded before the snapshot is restored.
+ * For the other Scrollables, only the scroll position is saved,
+ * and it's restored with {@link LayoutReadyScheduler}, which drops it if the view is detached before layout.
+ * <p/>
+ * The snapshots are keyed by the page index or ID, and kept in primitive fields and arrays.
+ * A restored snapshot is kept in place and marked as restored, not removed,
+ * so the same instance and its array are reused when the same page is saved again.
+ * This should be used only from the UI thread.
+ */
+public class PageScrollStateStore {
+
+    private static final int DEFAULT_MAX_HEIGHTS = 64;
+
+    private final int mMaxHeights;
+    private long[] mKeys;
+    private ScrollSnapshot[] mSnapshots;
+    private int mSize;
+
+    public PageScrollStateStore() {
+        this(DEFAULT_MAX_HEIGHTS);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param maxHeights maximum number of the item heights to keep for each page
+     */
+    public PageScrollStateStore(int maxHeights) {
+        mMaxHeights = Math.max(1, maxHeights);
+        mKeys = new long[4];
+        mSnapshots = new ScrollSnapshot[4];
+    }
+
+    /**
+     * Saves the scroll position of the Scrollable.
+     * Call this before the view of the page is destroyed,
+     * e.g. in {@code destroyItem} of the PagerAdapter.
+     *
+     * @param key        page index or ID
+     * @param scrollable Scrollable in the page
+     */
+    public void save(long key, Scrollable scrollable) {
+        if (scrollable == null) {
+            return;
+        }
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        ScrollSnapshot snapshot;
+        if (0 <= index) {
+            snapshot = mSnapshots[index];
+        } else {
+            snapshot = new ScrollSnapshot();
+            insert(~index, key, snapshot);
+        }
+        if (scrollable instanceof ObservableRecyclerView) {
+            ((ObservableRecyclerView) scrollable).saveScrollSnapshot(snapshot, mMaxHeights);
+        } else if (scrollable instanceof ObservableListView) {
+            ((ObservableListView) scrollable).saveScrollSnapshot(snapshot, mMaxHeights);
+        } else if (scrollable instanceof ObservableGridView) {
+            ((ObservableGridView) scrollable).saveScrollSnapshot(snapshot, mMaxHeights);
+        } else if (scrollable instanceof ObservableExpandableListView) {
+            ((ObservableExpandableListView) scrollable).saveScrollSnapshot(snapshot, mMaxHeights);
+        } else {
+            snapshot.set(scrollable.getCurrentScrollY());
+        }
+    }
+
+    /**
+     * Restores the scroll position to the Scrollable and marks the snapshot as restored.
+     * The snapshot is not restored again until the page is saved again.
+     * Call this after the view of the page is created again.
+     * The widgets that have adapters restore it in the next layout after the adapter is set,
+     * and the others are scrolled after they are laid out.
+     *
+     * @param key        page index or ID
+     * @param scrollable Scrollable in the page
+     * @return true if the snapshot for the key was found
+     */
+    public boolean restore(long key, final Scrollable scrollable) {
+        int index = indexOfSnapshot(key);
+        if (index < 0 || scrollable == null) {
+            return false;
+        }
+        ScrollSnapshot snapshot = mSnapshots[index];
+        // Widgets read it in their next layout, so it's overwritten only by the next save
+        snapshot.restored = true;
+        if (scrollable instanceof ObservableRecyclerView) {
+            ((ObservableRecyclerView) scrollable).restoreScrollSnapshot(snapshot);
+        } else if (scrollable instanceof ObservableListView) {
+            ((ObservableListView) scrollable).restoreScrollSnapshot(snapshot);
+        } else if (scrollable instanceof ObservableGridView) {
+            ((ObservableGridView) scrollable).restoreScrollSnapshot(snapshot);
+        } else if (scrollable instanceof ObservableExpandableListView) {
+            ((ObservableExpandableListView) scrollable).restoreScrollSnapshot(snapshot);
+        } else {
+            final int scrollY = snapshot.scrollY;
+            if (scrollable instanceof View) {
+                LayoutReadyScheduler.schedule((View) scrollable, new Runnable() {
+                    @Override
+                    public void run() {
+                        scrollable.scrollVerticallyTo(scrollY);
+                    }
+                });
+            } else {
+                scrollable.scrollVerticallyTo(scrollY);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the snapshot for the key is kept and not restored yet.
+     *
+     * @param key page index or ID
+     * @return true if the snapshot is kept
+     */
+    public boolean contains(long key) {
+        return 0 <= indexOfSnapshot(key);
+    }
+
+    /**
+     * Returns the saved scroll position.
+     * This can be used to decide the initial state of the other views, e.g. the header.
+     *
+     * @param key          page index or ID
+     * @param defaultValue value to return if the snapshot is not kept
+     * @return saved scroll position
+     */
+    public int getScrollY(long key, int defaultValue) {
+        int index = indexOfSnapshot(key);
+        return index < 0 ? defaultValue : mSnapshots[index].scrollY;
+    }
+
+    /**
+     * Removes the snapshot, e.g. when the page is removed from the adapter.
+     *
+     * @param key page index or ID
+     */
+    public void remove(long key) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (0 <= index) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Removes all the snapshots.
+     */
+    public void clear() {
+        Arrays.fill(mSnapshots, 0, mSize, null);
+        mSize = 0;
+    }
+
+    /**
+     * Returns the index of the snapshot that is not restored yet.
+     */
+    private int indexOfSnapshot(long key) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (0 <= index && mSnapshots[index].restored) {
+            return -1;
+        }
+        return index;
+    }
+
+    private void insert(int index, long key, ScrollSnapshot snapshot) {
+        if (mSize == mKeys.length) {
+            long[] keys = new long[mSize * 2];
+            ScrollSnapshot[] snapshots = new ScrollSnapshot[mSize * 2];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            System.arraycopy(mSnapshots, 0, snapshots, 0, mSize);
+            mKeys = keys;
+            mSnapshots = snapshots;
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mSnapshots, index, mSnapshots, index + 1, mSize - index);
+        mKeys[index] = key;
+        mSnapshots[index] = snapshot;
+        mSize++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+        System.arraycopy(mSnapshots, index + 1, mSnapshots, index, mSize - index - 1);
+        mSize--;
+        mSnapshots[mSize] = null;
+    }
+}
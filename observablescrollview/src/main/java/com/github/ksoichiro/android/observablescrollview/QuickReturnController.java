@@ -0,0 +1,400 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewTreeObserver;
+
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+import com.nineoldandroids.animation.ValueAnimator;
+import com.nineoldandroids.view.ViewHelper;
+
+/**
+ * Shows and hides a view (e.g. Toolbar) in response to scrolling, known as "Quick return" pattern.
+ * <p/>
+ * While the Scrollable is dragged, the view follows the finger 1:1.
+ * When it's released, the view is shown or hidden with animation
+ * according to the scroll state and the velocity of the last scroll.
+ * One animator is created for each controller and reused for every animation,
+ * and the translation of the view and the height of the hidden part are cached in this controller,
+ * so it doesn't allocate any objects or read the view while scrolling.
+ * Therefore the target view shouldn't be translated by anything other than this controller.
+ * <p/>
+ * Use {@link #attachTo(Scrollable)} or set this as the callbacks of a Scrollable.
+ * If the callbacks are also needed for other purposes, call the methods of
+ * {@link ObservableScrollViewCallbacks} of this controller from your callbacks.
+ * This should be used only from the UI thread.
+ */
+public class QuickReturnController implements ObservableScrollViewCallbacks {
+    /**
+     * The target view is not moving.
+     */
+    public static final int STATE_IDLE = 0;
+
+    /**
+     * The target view is following the finger.
+     */
+    public static final int STATE_DRAGGING = 1;
+
+    /**
+     * The target view is being shown or hidden with animation.
+     */
+    public static final int STATE_SETTLING = 2;
+
+    private static final long DEFAULT_ANIMATION_DURATION = 200;
+
+    /**
+     * Velocity of the scroll older than this (in milliseconds) is ignored
+     * because the finger has stopped before it's released.
+     */
+    private static final long VELOCITY_TIMEOUT = 100;
+
+    /**
+     * Callbacks for QuickReturnController.
+     */
+    public interface QuickReturnListener {
+        /**
+         * Called when the target view moved.
+         *
+         * @param translationY translation of the target view, from -hideHeight to 0
+         */
+        void onTranslationChanged(float translationY);
+
+        /**
+         * Called when the target view starts to be shown or hidden completely.
+         * This is called when the animation starts, not when it finishes.
+         *
+         * @param shown true if the target view is going to be shown
+         */
+        void onVisibilityChanged(boolean shown);
+    }
+
+    private final View mTarget;
+    private final View mHiddenPart;
+    private int mHideHeight;
+    private QuickReturnListener mListener;
+    private ValueAnimator mAnimator;
+    private boolean mAnimationCanceled;
+    private int mMinimumFlingVelocity;
+    private int mState = STATE_IDLE;
+    private float mTranslationY;
+    private boolean mShown = true;
+    private boolean mDragging;
+    private boolean mFirstScroll;
+    private int mBaseScrollY;
+    private float mBaseTranslationY;
+    private int mLastScrollY;
+    private long mLastScrollTime;
+    private float mVelocity;
+
+    /**
+     * Creates a controller that hides the whole target view.
+     *
+     * @param target view to be shown and hidden
+     */
+    public QuickReturnController(View target) {
+        this(target, target);
+    }
+
+    /**
+     * Creates a controller that hides a part of the target view.
+     * This is useful when the target contains a Toolbar and tabs
+     * and only the Toolbar should be hidden.
+     *
+     * @param target     view to be moved
+     * @param hiddenPart view whose height is used as the distance to hide the target
+     */
+    public QuickReturnController(View target, View hiddenPart) {
+        mTarget = target;
+        mHiddenPart = hiddenPart;
+        mHideHeight = hiddenPart.getHeight();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            addOnLayoutChangeListener(hiddenPart);
+        } else {
+            hiddenPart.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    mHideHeight = mHiddenPart.getHeight();
+                }
+            });
+        }
+        mTranslationY = ViewHelper.getTranslationY(target);
+        mShown = mTranslationY == 0;
+        mMinimumFlingVelocity = ViewConfiguration.get(target.getContext()).getScaledMinimumFlingVelocity();
+        mAnimator = ValueAnimator.ofFloat(0, 1);
+        mAnimator.setDuration(DEFAULT_ANIMATION_DURATION);
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                applyTranslationY((Float) animation.getAnimatedValue());
+            }
+        });
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mAnimationCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (!mAnimationCanceled) {
+                    mState = STATE_IDLE;
+                }
+                mAnimationCanceled = false;
+            }
+        });
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void addOnLayoutChangeListener(View hiddenPart) {
+        hiddenPart.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                mHideHeight = bottom - top;
+            }
+        });
+    }
+
+    /**
+     * Sets this controller as the callbacks of the Scrollable.
+     *
+     * @param scrollable Scrollable that controls the target view
+     */
+    public void attachTo(Scrollable scrollable) {
+        scrollable.setScrollViewCallbacks(this);
+    }
+
+    public void setQuickReturnListener(QuickReturnListener listener) {
+        mListener = listener;
+    }
+
+    public void setAnimationDuration(long duration) {
+        mAnimator.setDuration(duration);
+    }
+
+    /**
+     * Returns the state of this controller.
+     *
+     * @return one of {@link #STATE_IDLE}, {@link #STATE_DRAGGING} and {@link #STATE_SETTLING}
+     */
+    public int getState() {
+        return mState;
+    }
+
+    public float getTranslationY() {
+        return mTranslationY;
+    }
+
+    /**
+     * Returns the distance to hide the target view.
+     * This is updated when the hidden part is laid out.
+     *
+     * @return height of the hidden part
+     */
+    public int getHideHeight() {
+        return mHideHeight;
+    }
+
+    /**
+     * Returns whether the target view is completely shown.
+     *
+     * @return true if the target view is not translated
+     */
+    public boolean isShown() {
+        return mTranslationY == 0;
+    }
+
+    /**
+     * Returns whether the target view is completely hidden.
+     *
+     * @return true if the target view is translated by the hide height
+     */
+    public boolean isHidden() {
+        return mTranslationY == -getHideHeight();
+    }
+
+    /**
+     * Shows the target view with animation.
+     */
+    public void show() {
+        animateTo(0);
+    }
+
+    /**
+     * Hides the target view with animation.
+     */
+    public void hide() {
+        animateTo(-getHideHeight());
+    }
+
+    /**
+     * Moves the target view by the distance as if it's dragged.
+     * This can be used when the drag is handled by other than the Scrollable,
+     * e.g. {@link TouchInterceptionFrameLayout}.
+     * Call {@link #settle(ScrollState, int)} when the drag finishes.
+     *
+     * @param diffY distance to move. Positive value shows the target view
+     */
+    public void moveBy(float diffY) {
+        startDragging();
+        trackVelocity(-diffY);
+        applyTranslationY(ScrollUtils.getFloat(mTranslationY + diffY, -getHideHeight(), 0));
+    }
+
+    /**
+     * Shows or hides the target view after the drag.
+     * If the last scroll was a fling, the target view moves in its direction.
+     * Otherwise it moves according to the scroll state,
+     * or to the nearest end if the state is {@link ScrollState#STOP}.
+     * The target view is always shown if the Scrollable is scrolled less than the hide height.
+     *
+     * @param scrollState state of the last scroll
+     * @param scrollY     current scroll position of the Scrollable
+     */
+    public void settle(ScrollState scrollState, int scrollY) {
+        int hideHeight = getHideHeight();
+        boolean hide;
+        if (SystemClock.uptimeMillis() - mLastScrollTime <= VELOCITY_TIMEOUT
+                && mMinimumFlingVelocity <= Math.abs(mVelocity)) {
+            hide = 0 < mVelocity;
+        } else if (scrollState == ScrollState.UP) {
+            hide = true;
+        } else if (scrollState == ScrollState.DOWN) {
+            hide = false;
+        } else {
+            hide = mTranslationY < -hideHeight / 2f;
+        }
+        if (hide && hideHeight <= scrollY) {
+            hide();
+        } else {
+            show();
+        }
+    }
+
+    @Override
+    public void onScrollChanged(int scrollY, boolean firstScroll, boolean dragging) {
+        // Use the flag set by onDownMotionEvent instead of the argument,
+        // so that the down motion event can be notified from another Scrollable
+        // (e.g. WebView inside a ScrollView).
+        if (!mDragging) {
+            mLastScrollY = scrollY;
+            return;
+        }
+        if (mFirstScroll) {
+            mFirstScroll = false;
+            startDragging();
+            mBaseScrollY = scrollY;
+            mBaseTranslationY = mTranslationY;
+        }
+        trackVelocity(scrollY - mLastScrollY);
+        mLastScrollY = scrollY;
+        int hideHeight = getHideHeight();
+        float translationY = mBaseTranslationY - (scrollY - mBaseScrollY);
+        if (translationY < -hideHeight || 0 < translationY) {
+            // Reset the base so that the target view follows immediately
+            // when the scroll direction is reversed.
+            translationY = ScrollUtils.getFloat(translationY, -hideHeight, 0);
+            mBaseScrollY = scrollY;
+            mBaseTranslationY = translationY;
+        }
+        applyTranslationY(translationY);
+    }
+
+    @Override
+    public void onDownMotionEvent() {
+        mDragging = mFirstScroll = true;
+    }
+
+    @Override
+    public void onUpOrCancelMotionEvent(ScrollState scrollState) {
+        if (!mDragging) {
+            return;
+        }
+        mDragging = false;
+        if (mState == STATE_DRAGGING) {
+            settle(scrollState, mLastScrollY);
+        }
+    }
+
+    private void startDragging() {
+        if (mState == STATE_DRAGGING) {
+            return;
+        }
+        if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+        mState = STATE_DRAGGING;
+        mLastScrollTime = 0;
+        mVelocity = 0;
+    }
+
+    /**
+     * Updates the velocity of the scroll.
+     *
+     * @param diffScrollY scrolled distance since the last call. Positive value hides the target view
+     */
+    private void trackVelocity(float diffScrollY) {
+        long now = SystemClock.uptimeMillis();
+        if (mLastScrollTime != 0 && mLastScrollTime < now) {
+            // Average with the previous one to smooth out the uneven intervals of the events.
+            float velocity = diffScrollY * 1000f / (now - mLastScrollTime);
+            mVelocity = (mVelocity + velocity) / 2;
+        }
+        mLastScrollTime = now;
+    }
+
+    private void animateTo(float translationY) {
+        if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+        setShown(translationY == 0);
+        if (mTranslationY == translationY) {
+            mState = STATE_IDLE;
+            return;
+        }
+        mAnimator.setFloatValues(mTranslationY, translationY);
+        mState = STATE_SETTLING;
+        mAnimator.start();
+    }
+
+    private void applyTranslationY(float translationY) {
+        if (mTranslationY == translationY) {
+            return;
+        }
+        mTranslationY = translationY;
+        ViewHelper.setTranslationY(mTarget, translationY);
+        if (mListener != null) {
+            mListener.onTranslationChanged(translationY);
+        }
+    }
+
+    private void setShown(boolean shown) {
+        if (mShown == shown) {
+            return;
+        }
+        mShown = shown;
+        if (mListener != null) {
+            mListener.onVisibilityChanged(shown);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+
+/**
+ * Dispatches the scroll positions calculated by the Scrollable widgets
+ * to the listeners other than {@link ObservableScrollViewCallbacks}.
+ * Each widget has one instance of this class and calls it
+ * after it updates its scrollY, so the listeners work in the same way for all the widgets.
+ */
+final class ScrollDispatcher {
+    // Velocity samples older than this are not smoothed with the new one
+    private static final long VELOCITY_RESET_MILLIS = 100;
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private int mPrevScrollY;
+    private long mPrevScrollTime;
+    private float mVelocity;
+
+    private OnScrollEventListener mScrollEventListener;
+    private final ScrollEvent mScrollEvent = new ScrollEvent();
+    private int mPrevEventScrollY;
+
+    private OnApproachingEndListener mApproachingEndListener;
+    private int mLookaheadPixels;
+    private int mLookaheadMillis;
+    private boolean mApproachingEndArmed = true;
+    private int mApproachingEndThreshold;
+    private int mApproachingEndMaxScrollY;
+    private int mApproachingEndItemCount;
+
+    // Replaced with a new array when the listeners are changed,
+    // so that the listeners can be removed while they are notified.
+    private BoundarySet[] mBoundarySets;
+
+    private FastScroller mFastScroller;
+
+    private ScrollSampleExporter mSampleExporter;
+
+    boolean hasListeners() {
+        return mApproachingEndListener != null || mBoundarySets != null || mFastScroller != null
+                || mScrollEventListener != null || mSampleExporter != null;
+    }
+
+    boolean hasScrollEventListener() {
+        return mScrollEventListener != null;
+    }
+
+    /**
+     * Sets the listener of {@link ScrollEvent}.
+     *
+     * @param listener       listener to set
+     * @param currentScrollY current scroll position, from which the first delta is calculated
+     */
+    void setOnScrollEventListener(OnScrollEventListener listener, int currentScrollY) {
+        mScrollEventListener = listener;
+        mPrevEventScrollY = currentScrollY;
+    }
+
+    void setOnApproachingEndListener(OnApproachingEndListener listener) {
+        mApproachingEndListener = listener;
+        mApproachingEndArmed = true;
+    }
+
+    void setApproachingEndLookahead(int pixels, int millis) {
+        mLookaheadPixels = Math.max(0, pixels);
+        mLookaheadMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Adds the boundaries to be observed.
+     *
+     * @param boundaries      boundaries of the scroll position, sorted or not
+     * @param listener        listener to be notified
+     * @param currentScrollY  current scroll position, which decides the initial region
+     */
+    void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener, int currentScrollY) {
+        if (boundaries == null || listener == null) {
+            return;
+        }
+        int size = mBoundarySets == null ? 0 : mBoundarySets.length;
+        BoundarySet[] boundarySets = new BoundarySet[size + 1];
+        if (0 < size) {
+            System.arraycopy(mBoundarySets, 0, boundarySets, 0, size);
+        }
+        boundarySets[size] = new BoundarySet(boundaries, listener, currentScrollY);
+        mBoundarySets = boundarySets;
+    }
+
+    void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener) {
+        if (mBoundarySets == null) {
+            return;
+        }
+        int remaining = 0;
+        for (BoundarySet boundarySet : mBoundarySets) {
+            if (boundarySet.listener == listener) {
+                // Might be in the middle of the dispatch
+                boundarySet.removed = true;
+            } else {
+                remaining++;
+            }
+        }
+        if (remaining == mBoundarySets.length) {
+            return;
+        }
+        if (remaining == 0) {
+            mBoundarySets = null;
+            return;
+        }
+        BoundarySet[] boundarySets = new BoundarySet[remaining];
+        int i = 0;
+        for (BoundarySet boundarySet : mBoundarySets) {
+            if (!boundarySet.removed) {
+                boundarySets[i++] = boundarySet;
+            }
+        }
+        mBoundarySets = boundarySets;
+    }
+
+    void setFastScroller(FastScroller fastScroller) {
+        mFastScroller = fastScroller;
+    }
+
+    void setScrollSampleExporter(ScrollSampleExporter exporter) {
+        mSampleExporter = exporter;
+    }
+
+    /**
+     * Returns the estimated scroll velocity.
+     *
+     * @return velocity in pixels per millisecond, positive when scrolling down
+     */
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * Notifies the new scroll position to the listeners.
+     *
+     * @param scrollY              current scroll position
+     * @param maxScrollY           current maximum scroll position
+     * @param firstScroll          same as the parameter of {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}
+     * @param dragging             same as the parameter of {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}
+     * @param phase                current scroll phase
+     * @param firstVisiblePosition adapter position of the first visible item,
+     *                             or {@link ScrollSampleExporter#NO_POSITION} if the widget doesn't have items
+     * @param itemCount            number of the items in the adapter,
+     *                             or {@link ScrollSampleExporter#NO_POSITION} if the widget doesn't have items
+     */
+    void dispatchScrollChanged(int scrollY, int maxScrollY, boolean firstScroll, boolean dragging, ScrollPhase phase,
+                               int firstVisiblePosition, int itemCount) {
+        updateVelocity(scrollY);
+        if (mSampleExporter != null) {
+            mSampleExporter.offer(mPrevScrollTime, scrollY, firstVisiblePosition, phase);
+        }
+        if (mScrollEventListener != null) {
+            mScrollEvent.set(scrollY, scrollY - mPrevEventScrollY, maxScrollY, mPrevScrollTime, mVelocity,
+                    phase, firstScroll, dragging);
+            mPrevEventScrollY = scrollY;
+            mScrollEventListener.onScrollEvent(mScrollEvent);
+        }
+        if (mBoundarySets != null) {
+            // Listeners might add or remove the listeners
+            BoundarySet[] boundarySets = mBoundarySets;
+            for (BoundarySet boundarySet : boundarySets) {
+                if (!boundarySet.removed) {
+                    boundarySet.dispatch(scrollY);
+                }
+            }
+        }
+        if (mApproachingEndListener != null) {
+            dispatchApproachingEnd(scrollY, maxScrollY, itemCount);
+        }
+        if (mFastScroller != null) {
+            mFastScroller.onScrollChanged(scrollY, maxScrollY);
+        }
+    }
+
+    private void updateVelocity(int scrollY) {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - mPrevScrollTime;
+        if (elapsed <= 0) {
+            // Consecutive events in the same millisecond: wait for the next one
+            return;
+        }
+        float velocity = (float) (scrollY - mPrevScrollY) / elapsed;
+        if (VELOCITY_RESET_MILLIS < elapsed) {
+            mVelocity = velocity;
+        } else {
+            mVelocity = VELOCITY_SMOOTHING * velocity + (1 - VELOCITY_SMOOTHING) * mVelocity;
+        }
+        mPrevScrollY = scrollY;
+        mPrevScrollTime = now;
+    }
+
+    private void dispatchApproachingEnd(int scrollY, int maxScrollY, int itemCount) {
+        int remainingY = Math.max(0, maxScrollY - scrollY);
+        if (!mApproachingEndArmed) {
+            // Arm again when the contents have grown (e.g. next page is loaded)
+            // or when the widget is scrolled back out of the lookahead.
+            // maxScrollY of the widgets with items is an estimate that grows
+            // while the items near the end are measured, so the item count is compared instead.
+            boolean grown = itemCount == ScrollSampleExporter.NO_POSITION
+                    ? mApproachingEndMaxScrollY < maxScrollY
+                    : mApproachingEndItemCount < itemCount;
+            if (grown || mApproachingEndThreshold < remainingY) {
+                mApproachingEndArmed = true;
+            } else {
+                return;
+            }
+        }
+        int threshold = Math.max(mLookaheadPixels, (int) (Math.max(0, mVelocity) * mLookaheadMillis));
+        if (remainingY <= threshold) {
+            mApproachingEndArmed = false;
+            mApproachingEndThreshold = threshold;
+            mApproachingEndMaxScrollY = maxScrollY;
+            mApproachingEndItemCount = itemCount;
+            mApproachingEndListener.onApproachingEnd(remainingY);
+        }
+    }
+
+    /**
+     * Sorted boundaries and the region that the last scroll position was in.
+     * Region is the number of the boundaries that are less than or equal to the scroll position,
+     * so it's not changed while the scroll position stays between two boundaries
+     * and the crossings can be detected only with comparisons in most cases.
+     */
+    private static final class BoundarySet {
+        final int[] boundaries;
+        final OnBoundaryCrossedListener listener;
+        int region;
+        boolean removed;
+
+        BoundarySet(int[] boundaries, OnBoundaryCrossedListener listener, int scrollY) {
+            this.boundaries = boundaries.clone();
+            Arrays.sort(this.boundaries);
+            this.listener = listener;
+            this.region = findRegion(scrollY);
+        }
+
+        void dispatch(int scrollY) {
+            // Still in the same region: nothing to do
+            if ((region == 0 || boundaries[region - 1] <= scrollY)
+                    && (region == boundaries.length || scrollY < boundaries[region])) {
+                return;
+            }
+            int newRegion = findRegion(scrollY);
+            int oldRegion = region;
+            region = newRegion;
+            if (oldRegion < newRegion) {
+                for (int i = oldRegion; i < newRegion && !removed; i++) {
+                    listener.onBoundaryCrossed(i, ScrollState.UP);
+                }
+            } else {
+                for (int i = oldRegion - 1; newRegion <= i && !removed; i--) {
+                    listener.onBoundaryCrossed(i, ScrollState.DOWN);
+                }
+            }
+        }
+
+        /**
+         * Returns the number of the boundaries that are less than or equal to the scroll position.
+         *
+         * @param scrollY scroll position
+         * @return region of the scroll position
+         */
+        int findRegion(int scrollY) {
+            int low = 0;
+            int high = boundaries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (boundaries[mid] <= scrollY) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
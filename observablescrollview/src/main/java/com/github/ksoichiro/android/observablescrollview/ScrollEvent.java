@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Scroll change event passed to {@link OnScrollEventListener}.
+ * <p/>
+ * Each Scrollable widget has only one instance of this class and fills it
+ * in every scroll change, so the listener doesn't have to keep the previous scroll position
+ * to calculate the delta. The instance is reused and overwritten in the next scroll change,
+ * so don't keep it outside of the listener. Copy the values instead.
+ */
+public final class ScrollEvent {
+    private int mScrollY;
+    private int mDeltaY;
+    private int mMaxScrollY;
+    private long mEventTime;
+    private float mVelocity;
+    private ScrollPhase mPhase = ScrollPhase.IDLE;
+    private boolean mFirstScroll;
+    private boolean mDragging;
+
+    ScrollEvent() {
+    }
+
+    void set(int scrollY, int deltaY, int maxScrollY, long eventTime, float velocity,
+             ScrollPhase phase, boolean firstScroll, boolean dragging) {
+        mScrollY = scrollY;
+        mDeltaY = deltaY;
+        mMaxScrollY = maxScrollY;
+        mEventTime = eventTime;
+        mVelocity = velocity;
+        mPhase = phase;
+        mFirstScroll = firstScroll;
+        mDragging = dragging;
+    }
+
+    /**
+     * Returns the scroll position in Y axis.
+     *
+     * @return same as {@link Scrollable#getCurrentScrollY()}
+     */
+    public int getScrollY() {
+        return mScrollY;
+    }
+
+    /**
+     * Returns the difference from the scroll position of the previous event.
+     *
+     * @return delta in pixels, positive when scrolled down (the contents moved up)
+     */
+    public int getDeltaY() {
+        return mDeltaY;
+    }
+
+    /**
+     * Returns the maximum scroll position when this event occurred.
+     *
+     * @return same as {@link Scrollable#getMaxScrollY()}
+     */
+    public int getMaxScrollY() {
+        return mMaxScrollY;
+    }
+
+    /**
+     * Returns the time when this event occurred.
+     *
+     * @return time in the {@link android.os.SystemClock#uptimeMillis()} time base
+     */
+    public long getEventTime() {
+        return mEventTime;
+    }
+
+    /**
+     * Returns the estimated scroll velocity, smoothed with the previous events.
+     *
+     * @return velocity in pixels per millisecond, positive when scrolled down
+     */
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * Returns the scroll phase when this event occurred.
+     *
+     * @return same as {@link Scrollable#getScrollPhase()}
+     */
+    public ScrollPhase getPhase() {
+        return mPhase;
+    }
+
+    /**
+     * Returns whether this is the first event in the consecutive motion events.
+     *
+     * @return same as {@code firstScroll} of {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}
+     */
+    public boolean isFirstScroll() {
+        return mFirstScroll;
+    }
+
+    /**
+     * Returns whether the widget is dragged.
+     *
+     * @return same as {@code dragging} of {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}
+     */
+    public boolean isDragging() {
+        return mDragging;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Constants that indicates the phase of the scroll of the Scrollable widgets.
+ * Unlike {@link ScrollState}, this tells what is moving the contents,
+ * so it can be used to defer expensive work until the widget becomes idle.
+ *
+ * @see Scrollable#setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener)
+ */
+public enum ScrollPhase {
+    /**
+     * Widget is not scrolling.
+     */
+    IDLE,
+
+    /**
+     * Widget is scrolled by the user's finger.
+     */
+    DRAGGING,
+
+    /**
+     * Widget is scrolling in the inertia after the user lifted the finger.
+     */
+    FLINGING,
+
+    /**
+     * Widget is scrolling to the position without touch events,
+     * e.g. by smoothScrollToPosition().
+     */
+    SETTLING,
+}
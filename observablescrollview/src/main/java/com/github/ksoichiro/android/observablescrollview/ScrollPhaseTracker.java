@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * State machine of {@link ScrollPhase}.
+ * <p/>
+ * The widgets that report their own scroll states (AbsListView and RecyclerView)
+ * should pass them to {@link #onNativeIdle()}, {@link #onNativeDragging()} and {@link #onNativeSettling()}.
+ * The other widgets should pass the touch events and the scroll changes instead,
+ * then the phase is estimated from them and the widget is regarded as idle
+ * if the scroll is not changed for a while.
+ * Each widget has one instance of this class.
+ */
+final class ScrollPhaseTracker {
+    // The scroll is regarded as settled if it's not changed for this duration
+    private static final long IDLE_DELAY_MILLIS = 100;
+
+    private final View mHost;
+    private OnScrollPhaseChangedListener mListener;
+    private ScrollPhase mPhase = ScrollPhase.IDLE;
+    private boolean mTouching;
+    private long mLastScrollTime;
+    private boolean mIdleCheckPosted;
+    private final Runnable mIdleCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIdleCheckPosted = false;
+            if (mTouching || mPhase == ScrollPhase.IDLE) {
+                return;
+            }
+            long elapsed = SystemClock.uptimeMillis() - mLastScrollTime;
+            if (elapsed < IDLE_DELAY_MILLIS) {
+                // Scrolled after this was posted: check again instead of reposting in every scroll
+                postIdleCheck(IDLE_DELAY_MILLIS - elapsed);
+            } else {
+                setPhase(ScrollPhase.IDLE);
+            }
+        }
+    };
+
+    ScrollPhaseTracker(View host) {
+        mHost = host;
+    }
+
+    void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener) {
+        mListener = listener;
+    }
+
+    ScrollPhase getPhase() {
+        return mPhase;
+    }
+
+    /**
+     * Should be called from both onInterceptTouchEvent and onTouchEvent,
+     * because children might consume the touch events.
+     *
+     * @param ev touch event
+     */
+    void onTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouching = true;
+                // Touching stops the fling
+                setPhase(ScrollPhase.IDLE);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mTouching = false;
+                if (mPhase == ScrollPhase.DRAGGING) {
+                    // Becomes FLINGING if scrolled before the check, IDLE otherwise
+                    mLastScrollTime = SystemClock.uptimeMillis();
+                    postIdleCheck(IDLE_DELAY_MILLIS);
+                }
+                break;
+        }
+    }
+
+    void onScrollChanged() {
+        if (mTouching) {
+            setPhase(ScrollPhase.DRAGGING);
+            return;
+        }
+        if (mPhase == ScrollPhase.DRAGGING) {
+            setPhase(ScrollPhase.FLINGING);
+        } else if (mPhase == ScrollPhase.IDLE) {
+            setPhase(ScrollPhase.SETTLING);
+        }
+        mLastScrollTime = SystemClock.uptimeMillis();
+        if (!mIdleCheckPosted) {
+            postIdleCheck(IDLE_DELAY_MILLIS);
+        }
+    }
+
+    void onNativeIdle() {
+        setPhase(ScrollPhase.IDLE);
+    }
+
+    void onNativeDragging() {
+        setPhase(ScrollPhase.DRAGGING);
+    }
+
+    /**
+     * Called when the widget starts scrolling by itself.
+     * This is a fling if it follows the dragging, and settling otherwise.
+     */
+    void onNativeSettling() {
+        setPhase(mPhase == ScrollPhase.DRAGGING ? ScrollPhase.FLINGING : ScrollPhase.SETTLING);
+    }
+
+    private void postIdleCheck(long delay) {
+        mHost.removeCallbacks(mIdleCheckRunnable);
+        mHost.postDelayed(mIdleCheckRunnable, delay);
+        mIdleCheckPosted = true;
+    }
+
+    private void setPhase(ScrollPhase phase) {
+        if (mPhase == phase) {
+            return;
+        }
+        mPhase = phase;
+        if (mListener != null) {
+            mListener.onScrollPhaseChanged(phase);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+/**
+ * Batch of the scroll samples drained from {@link ScrollSampleExporter}.
+ * <p/>
+ * The samples are stored in the primitive arrays allocated in the constructor,
+ * so the consumer can reuse one batch for all the drains.
+ * The batch is overwritten in the next drain, so copy the values if you need them later.
+ */
+public final class ScrollSampleBatch {
+    private static final ScrollPhase[] PHASES = ScrollPhase.values();
+
+    final long[] mTimes;
+    final int[] mScrollYs;
+    final int[] mFirstVisiblePositions;
+    final byte[] mPhases;
+    int mCount;
+
+    /**
+     * Creates a batch.
+     *
+     * @param capacity maximum number of the samples to be drained at once
+     */
+    public ScrollSampleBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        mTimes = new long[capacity];
+        mScrollYs = new int[capacity];
+        mFirstVisiblePositions = new int[capacity];
+        mPhases = new byte[capacity];
+    }
+
+    public int getCapacity() {
+        return mTimes.length;
+    }
+
+    /**
+     * Returns the number of the samples in this batch.
+     *
+     * @return number of the samples, from 0 to {@link #getCapacity()}
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the time of the sample.
+     *
+     * @param index index of the sample, from 0 (oldest) to {@code getCount() - 1}
+     * @return time in the {@link android.os.SystemClock#uptimeMillis()} time base
+     */
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    /**
+     * Returns the scroll position of the sample.
+     *
+     * @param index index of the sample, from 0 (oldest) to {@code getCount() - 1}
+     * @return scroll position in Y axis
+     */
+    public int getScrollY(int index) {
+        return mScrollYs[index];
+    }
+
+    /**
+     * Returns the adapter position of the first visible item of the sample.
+     *
+     * @param index index of the sample, from 0 (oldest) to {@code getCount() - 1}
+     * @return adapter position, or {@link ScrollSampleExporter#NO_POSITION}
+     * if the widget doesn't have items
+     */
+    public int getFirstVisiblePosition(int index) {
+        return mFirstVisiblePositions[index];
+    }
+
+    /**
+     * Returns the scroll phase of the sample.
+     *
+     * @param index index of the sample, from 0 (oldest) to {@code getCount() - 1}
+     * @return scroll phase
+     */
+    public ScrollPhase getPhase(int index) {
+        return PHASES[mPhases[index]];
+    }
+}
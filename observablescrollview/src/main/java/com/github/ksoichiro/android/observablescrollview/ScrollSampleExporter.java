@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.Process;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exports the scroll samples of the Scrollable widgets to a background thread.
+ * <p/>
+ * Each scroll change is written as a record of (time, scrollY, first visible position, phase)
+ * into a ring buffer of primitive arrays allocated in the constructor.
+ * The ring buffer is lock-free for a single producer and a single consumer:
+ * the UI thread writes the records with {@link #offer(long, int, int, ScrollPhase)},
+ * which is called by the widgets set with {@link Scrollable#setScrollSampleExporter(ScrollSampleExporter)},
+ * and the consumer thread reads them with {@link #drainTo(ScrollSampleBatch)}.
+ * So heavy work such as analytics doesn't run on the UI thread,
+ * which only stores a few values for each scroll change.
+ * <p/>
+ * The consumer thread parks while the buffer is empty
+ * and is unparked by the producer when a sample is written.
+ * <p/>
+ * If the consumer can't catch up and the buffer is full, new samples are dropped
+ * and counted with {@link #getDroppedCount()}.
+ * An exporter can be shared by the widgets as long as they are used in the same thread.
+ */
+public class ScrollSampleExporter {
+    /**
+     * Position of the samples from the widgets that don't have items,
+     * such as ObservableScrollView and ObservableWebView.
+     */
+    public static final int NO_POSITION = -1;
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * Consumer of the scroll samples called in the background thread.
+     */
+    public interface Consumer {
+        /**
+         * Called in the background thread with the samples written since the last call.
+         *
+         * @param batch samples from oldest to newest. This is reused in the next call, so don't keep it
+         */
+        public void onScrollSamples(ScrollSampleBatch batch);
+    }
+
+    private final int mMask;
+    private final long[] mTimes;
+    private final int[] mScrollYs;
+    private final int[] mFirstVisiblePositions;
+    private final byte[] mPhases;
+
+    // Index of the next record to be written, published by the producer
+    private final AtomicLong mHead = new AtomicLong();
+    // Index of the next record to be read, published by the consumer
+    private final AtomicLong mTail = new AtomicLong();
+    // Producer's copies to avoid reading the other thread's index in every offer
+    private long mProducerIndex;
+    private long mCachedTail;
+    private volatile long mDroppedCount;
+
+    private ConsumerThread mThread;
+    // Set by the consumer thread before it parks on the empty buffer
+    private volatile ConsumerThread mWaitingThread;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param capacity number of the records that the ring buffer can hold.
+     *                 This is rounded up to a power of 2
+     */
+    public ScrollSampleExporter(int capacity) {
+        if (capacity <= 0 || (1 << 30) < capacity) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mTimes = new long[size];
+        mScrollYs = new int[size];
+        mFirstVisiblePositions = new int[size];
+        mPhases = new byte[size];
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Returns the number of the samples dropped because the buffer was full.
+     *
+     * @return number of the dropped samples
+     */
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Writes a sample. This should be called only from one thread (usually the UI thread).
+     *
+     * @param time                 time of the sample
+     * @param scrollY              scroll position in Y axis
+     * @param firstVisiblePosition adapter position of the first visible item, or {@link #NO_POSITION}
+     * @param phase                scroll phase
+     * @return true if written, false if dropped because the buffer is full
+     */
+    public boolean offer(long time, int scrollY, int firstVisiblePosition, ScrollPhase phase) {
+        final long index = mProducerIndex;
+        if (mMask < index - mCachedTail) {
+            mCachedTail = mTail.get();
+            if (mMask < index - mCachedTail) {
+                mDroppedCount++;
+                return false;
+            }
+        }
+        final int i = (int) index & mMask;
+        mTimes[i] = time;
+        mScrollYs[i] = scrollY;
+        mFirstVisiblePositions[i] = firstVisiblePosition;
+        mPhases[i] = (byte) phase.ordinal();
+        mProducerIndex = index + 1;
+        // Volatile store: the record is visible to the consumer before the index,
+        // and the index is visible before mWaitingThread is read,
+        // so the consumer never parks after it missed this sample.
+        mHead.set(index + 1);
+        ConsumerThread waitingThread = mWaitingThread;
+        if (waitingThread != null) {
+            LockSupport.unpark(waitingThread);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the written samples to the batch, up to its capacity.
+     * This should be called only from one thread (the consumer thread).
+     *
+     * @param batch batch to be filled
+     * @return number of the samples moved
+     */
+    public int drainTo(ScrollSampleBatch batch) {
+        final long tail = mTail.get();
+        final int count = (int) Math.min(mHead.get() - tail, batch.getCapacity());
+        for (int n = 0; n < count; n++) {
+            final int i = (int) (tail + n) & mMask;
+            batch.mTimes[n] = mTimes[i];
+            batch.mScrollYs[n] = mScrollYs[i];
+            batch.mFirstVisiblePositions[n] = mFirstVisiblePositions[i];
+            batch.mPhases[n] = mPhases[i];
+        }
+        batch.mCount = count;
+        // Release the slots to the producer after they are read
+        mTail.lazySet(tail + count);
+        return count;
+    }
+
+    /**
+     * Starts a background thread that waits for the samples
+     * and passes them to the consumer in batches.
+     * The thread is a daemon thread with the background priority.
+     *
+     * @param consumer       consumer of the samples
+     * @param intervalMillis minimum interval of the batches in milliseconds.
+     *                       The samples written in this interval are passed together
+     */
+    public synchronized void start(Consumer consumer, long intervalMillis) {
+        if (mThread != null) {
+            throw new IllegalStateException("already started");
+        }
+        mThread = new ConsumerThread(consumer, intervalMillis);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the background thread started with {@link #start(Consumer, long)}.
+     * The samples written before this are passed to the consumer before the thread exits,
+     * and this waits for it, so the consumers of this exporter never run at once.
+     */
+    public synchronized void stop() {
+        ConsumerThread thread = mThread;
+        if (thread == null) {
+            return;
+        }
+        mThread = null;
+        thread.mStopped = true;
+        LockSupport.unpark(thread);
+        if (thread == Thread.currentThread()) {
+            // Called from the consumer: the thread exits after the callback returns
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    private class ConsumerThread extends Thread {
+        private final Consumer mConsumer;
+        private final long mIntervalNanos;
+        private volatile boolean mStopped;
+
+        ConsumerThread(Consumer consumer, long intervalMillis) {
+            super("ScrollSampleExporter");
+            mConsumer = consumer;
+            mIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, intervalMillis));
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            ScrollSampleBatch batch = new ScrollSampleBatch(DEFAULT_BATCH_SIZE);
+            while (true) {
+                boolean stopped = mStopped;
+                if (0 < drainTo(batch)) {
+                    do {
+                        mConsumer.onScrollSamples(batch);
+                    } while (0 < drainTo(batch));
+                    if (!stopped && 0 < mIntervalNanos) {
+                        // Wait to batch the next samples, stop() unparks this
+                        LockSupport.parkNanos(this, mIntervalNanos);
+                    }
+                    continue;
+                }
+                if (stopped) {
+                    // Everything written before stop() has been drained
+                    return;
+                }
+                mWaitingThread = this;
+                // Check again after publishing mWaitingThread,
+                // because the producer might have written a sample before it.
+                if (isEmpty() && !mStopped) {
+                    LockSupport.park(this);
+                }
+                mWaitingThread = null;
+            }
+        }
+    }
+}
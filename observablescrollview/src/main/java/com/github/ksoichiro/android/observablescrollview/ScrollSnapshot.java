@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.util.SparseIntArray;
+
+/**
+ * Scroll position of a Scrollable kept by {@link PageScrollStateStore}.
+ * <p/>
+ * The widgets that have adapters save the first visible item (anchor), its offset,
+ * and the heights of the items around the anchor, so they can lay out from the anchor
+ * and estimate the scroll position without measuring the items again.
+ * The heights are trimmed to a window around the anchor and kept in a primitive array
+ * that is reused when the snapshot is taken again.
+ * The other widgets save only the scroll position.
+ * <p/>
+ * The store keeps the snapshot after it's restored, marked as {@link #restored},
+ * so that the same instance and array are used when the page is saved again.
+ */
+final class ScrollSnapshot {
+    static final int NO_POSITION = -1;
+
+    /**
+     * Height for the items in the window that have not been measured.
+     */
+    private static final int NO_HEIGHT = -1;
+
+    int scrollY;
+    int anchorPosition = NO_POSITION;
+    int anchorOffset;
+    /**
+     * True if the snapshot has been restored and not saved again.
+     */
+    boolean restored;
+    private int mHeightsStart;
+    private int mHeightsCount;
+    private int[] mHeights;
+
+    /**
+     * Sets the scroll position without the anchor.
+     *
+     * @param scrollY scroll position
+     */
+    void set(int scrollY) {
+        this.scrollY = scrollY;
+        anchorPosition = NO_POSITION;
+        anchorOffset = 0;
+        mHeightsCount = 0;
+        restored = false;
+    }
+
+    /**
+     * Copies the other snapshot, e.g. the one that is waiting for the layout of the widget.
+     *
+     * @param src snapshot to copy
+     */
+    void set(ScrollSnapshot src) {
+        restored = false;
+        if (src == this) {
+            return;
+        }
+        scrollY = src.scrollY;
+        anchorPosition = src.anchorPosition;
+        anchorOffset = src.anchorOffset;
+        mHeightsStart = src.mHeightsStart;
+        mHeightsCount = src.mHeightsCount;
+        if (0 < mHeightsCount) {
+            if (mHeights == null || mHeights.length < mHeightsCount) {
+                mHeights = new int[src.mHeights.length];
+            }
+            System.arraycopy(src.mHeights, 0, mHeights, 0, mHeightsCount);
+        }
+    }
+
+    /**
+     * Sets the scroll position with the anchor and the heights around it.
+     *
+     * @param scrollY        scroll position
+     * @param anchorPosition adapter position of the first visible item
+     * @param anchorOffset   top of the first visible item
+     * @param heightIndex    heights of the items
+     * @param maxHeights     maximum number of the heights to keep
+     */
+    void set(int scrollY, int anchorPosition, int anchorOffset, ItemHeightIndex heightIndex, int maxHeights) {
+        this.scrollY = scrollY;
+        this.anchorPosition = anchorPosition;
+        this.anchorOffset = anchorOffset;
+        restored = false;
+        if (mHeights == null || mHeights.length < maxHeights) {
+            mHeights = new int[maxHeights];
+        }
+        // Keep more items below the anchor, where the user is likely to scroll to
+        mHeightsStart = Math.max(0, anchorPosition - maxHeights / 4);
+        mHeightsCount = 0;
+        for (int i = 0; i < maxHeights; i++) {
+            int position = mHeightsStart + i;
+            if (heightIndex.contains(position)) {
+                mHeights[i] = heightIndex.get(position);
+                mHeightsCount = i + 1;
+            } else {
+                mHeights[i] = NO_HEIGHT;
+            }
+        }
+    }
+
+    /**
+     * Returns the saved height of the item.
+     *
+     * @param position     adapter position of the item
+     * @param defaultValue value to return if the height is not saved
+     * @return height of the item
+     */
+    int getHeight(int position, int defaultValue) {
+        int i = position - mHeightsStart;
+        if (i < 0 || mHeightsCount <= i || mHeights[i] == NO_HEIGHT) {
+            return defaultValue;
+        }
+        return mHeights[i];
+    }
+
+    /**
+     * Creates the heights keyed by the adapter positions to be restored to {@link ItemHeightIndex}.
+     *
+     * @param itemCount number of the items in the current data set
+     * @return heights of the items
+     */
+    SparseIntArray createHeights(int itemCount) {
+        SparseIntArray heights = new SparseIntArray(mHeightsCount);
+        int end = Math.min(mHeightsCount, itemCount - mHeightsStart);
+        for (int i = 0; i < end; i++) {
+            if (mHeights[i] != NO_HEIGHT) {
+                heights.append(mHeightsStart + i, mHeights[i]);
+            }
+        }
+        return heights;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Synchronizes the scroll positions of the Scrollables that share one header,
+ * such as the pages of a ViewPager.
+ * <p/>
+ * This holds the canonical header offset, and when it's changed
+ * the registered Scrollables are only marked as pending.
+ * Each of them is scrolled to the target position lazily,
+ * when it becomes active with {@link #setActiveScrollable(Scrollable)}
+ * or {@link #applyPendingScroll(Scrollable)} is called for it.
+ * Therefore changing the header offset doesn't cause layouts of the invisible pages.
+ */
+public class ScrollSyncCoordinator {
+
+    private int mHeaderOffset;
+    private Scrollable mActiveScrollable;
+    private ArrayList<Scrollable> mScrollables;
+    // Pending flags in the same order as mScrollables, grown with them
+    private boolean[] mPendings;
+
+    public ScrollSyncCoordinator() {
+        mScrollables = new ArrayList<Scrollable>();
+        mPendings = new boolean[4];
+    }
+
+    /**
+     * Registers a Scrollable to be synchronized.
+     * Newly registered Scrollable is marked as pending,
+     * so it will be adjusted to the current header offset when it's applied.
+     * Registering the same Scrollable twice has no effect.
+     *
+     * @param scrollable Scrollable to register
+     */
+    public void register(Scrollable scrollable) {
+        if (scrollable == null || mScrollables.contains(scrollable)) {
+            return;
+        }
+        int index = mScrollables.size();
+        if (index == mPendings.length) {
+            boolean[] pendings = new boolean[index * 2];
+            System.arraycopy(mPendings, 0, pendings, 0, index);
+            mPendings = pendings;
+        }
+        mScrollables.add(scrollable);
+        mPendings[index] = scrollable != mActiveScrollable;
+    }
+
+    /**
+     * Unregisters the Scrollable.
+     * This should be called when the view of the Scrollable is destroyed.
+     *
+     * @param scrollable Scrollable to unregister
+     */
+    public void unregister(Scrollable scrollable) {
+        int index = mScrollables.indexOf(scrollable);
+        if (index < 0) {
+            return;
+        }
+        mScrollables.remove(index);
+        System.arraycopy(mPendings, index + 1, mPendings, index, mScrollables.size() - index);
+        if (mActiveScrollable == scrollable) {
+            mActiveScrollable = null;
+        }
+    }
+
+    /**
+     * Sets the canonical header offset.
+     * This doesn't scroll any Scrollables but marks them except the active one as pending.
+     *
+     * @param headerOffset how much the header is scrolled out, 0 means the header is fully shown
+     */
+    public void setHeaderOffset(int headerOffset) {
+        if (mHeaderOffset == headerOffset) {
+            return;
+        }
+        mHeaderOffset = headerOffset;
+        for (int i = 0; i < mScrollables.size(); i++) {
+            mPendings[i] = mScrollables.get(i) != mActiveScrollable;
+        }
+    }
+
+    public int getHeaderOffset() {
+        return mHeaderOffset;
+    }
+
+    /**
+     * Sets the Scrollable that is currently visible and drives the header,
+     * and applies its pending scroll position.
+     * The Scrollable is registered if it's not registered yet.
+     *
+     * @param scrollable active Scrollable
+     */
+    public void setActiveScrollable(Scrollable scrollable) {
+        register(scrollable);
+        mActiveScrollable = scrollable;
+        applyPendingScroll(scrollable);
+    }
+
+    public Scrollable getActiveScrollable() {
+        return mActiveScrollable;
+    }
+
+    /**
+     * Returns whether the Scrollable has not been adjusted to the current header offset.
+     *
+     * @param scrollable target Scrollable
+     * @return true if the Scrollable is registered and pending
+     */
+    public boolean isPending(Scrollable scrollable) {
+        int index = mScrollables.indexOf(scrollable);
+        return 0 <= index && mPendings[index];
+    }
+
+    /**
+     * Scrolls the Scrollable to the target position if it's pending.
+     * If the Scrollable is not laid out yet, it will be scrolled after the layout.
+     * Call this when the page becomes visible, e.g. when it's being swiped in.
+     *
+     * @param scrollable target Scrollable
+     */
+    public void applyPendingScroll(final Scrollable scrollable) {
+        final int index = mScrollables.indexOf(scrollable);
+        if (index < 0 || !mPendings[index]) {
+            return;
+        }
+        mPendings[index] = false;
+        if (scrollable instanceof View) {
+            LayoutReadyScheduler.schedule((View) scrollable, new Runnable() {
+                @Override
+                public void run() {
+                    scrollToTarget(scrollable);
+                }
+            });
+            return;
+        }
+        scrollToTarget(scrollable);
+    }
+
+    /**
+     * Returns the scroll position that the Scrollable should have with the header offset.
+     * Default implementation is for the header that scrolls out with the contents:
+     * the contents should be at the top when the header is fully shown,
+     * and should be scrolled at least the header offset when the header is scrolled out.
+     * Override this to change the policy.
+     *
+     * @param currentScrollY current scroll position of the Scrollable
+     * @param headerOffset   canonical header offset
+     * @return target scroll position
+     */
+    protected int getTargetScrollY(int currentScrollY, int headerOffset) {
+        if (headerOffset <= 0) {
+            return 0;
+        }
+        return Math.max(currentScrollY, headerOffset);
+    }
+
+    private void scrollToTarget(Scrollable scrollable) {
+        // Scrollable might be unregistered while waiting for the layout
+        if (!mScrollables.contains(scrollable)) {
+            return;
+        }
+        int currentScrollY = scrollable.getCurrentScrollY();
+        int targetScrollY = getTargetScrollY(currentScrollY, mHeaderOffset);
+        if (targetScrollY != currentScrollY) {
+            scrollable.scrollVerticallyTo(targetScrollY);
+        }
+    }
+}
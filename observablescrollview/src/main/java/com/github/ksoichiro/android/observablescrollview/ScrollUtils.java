@@ -60,6 +60,8 @@ public final class ScrollUtils {
      * Add an OnGlobalLayoutListener for the view.
      * This is just a convenience method for using {@code ViewTreeObserver.OnGlobalLayoutListener()}.
      * This also handles removing listener when onGlobalLayout is called.
+     * If you schedule many tasks at a time, e.g. when creating a screen,
+     * consider using {@link LayoutReadyScheduler} that shares one listener among them.
      *
      * @param view     the target view to add global layout listener
      * @param runnable runnable to be executed after the view is laid out
@@ -83,6 +85,8 @@ public final class ScrollUtils {
      * Mix two colors.
      * {@code toColor} will be {@code toAlpha/1} percent,
      * and {@code fromColor} will be {@code (1-toAlpha)/1} percent.
+     * This doesn't allocate any objects, but if you call this with the same colors
+     * in every scroll callback, consider to use {@link ColorRamp}.
      *
      * @param fromColor first color to be mixed
      * @param toColor   second color to be mixed
@@ -90,13 +94,19 @@ public final class ScrollUtils {
      * @return mixed color value in ARGB. Alpha is fixed value (255).
      */
     public static int mixColors(int fromColor, int toColor, float toAlpha) {
-        float[] fromCmyk = ScrollUtils.cmykFromRgb(fromColor);
-        float[] toCmyk = ScrollUtils.cmykFromRgb(toColor);
-        float[] result = new float[4];
-        for (int i = 0; i < 4; i++) {
-            result[i] = Math.min(1, fromCmyk[i] * (1 - toAlpha) + toCmyk[i] * toAlpha);
-        }
-        return 0xff000000 + (0x00ffffff & ScrollUtils.rgbFromCmyk(result));
+        float fromBlack = blackFromRgb(fromColor);
+        float toBlack = blackFromRgb(toColor);
+        float cyan = mixCmyk(
+                cmykFromRgbComponent((0xff0000 & fromColor) >> 16, fromBlack),
+                cmykFromRgbComponent((0xff0000 & toColor) >> 16, toBlack), toAlpha);
+        float magenta = mixCmyk(
+                cmykFromRgbComponent((0xff00 & fromColor) >> 8, fromBlack),
+                cmykFromRgbComponent((0xff00 & toColor) >> 8, toBlack), toAlpha);
+        float yellow = mixCmyk(
+                cmykFromRgbComponent(0xff & fromColor, fromBlack),
+                cmykFromRgbComponent(0xff & toColor, toBlack), toAlpha);
+        float black = mixCmyk(fromBlack, toBlack, toAlpha);
+        return 0xff000000 + (0x00ffffff & ScrollUtils.rgbFromCmyk(cyan, magenta, yellow, black));
     }
 
     /**
@@ -106,20 +116,26 @@ public final class ScrollUtils {
      * @return CMYK array
      */
     public static float[] cmykFromRgb(int rgbColor) {
-        int red = (0xff0000 & rgbColor) >> 16;
-        int green = (0xff00 & rgbColor) >> 8;
-        int blue = (0xff & rgbColor);
-        float black = Math.min(1.0f - red / 255.0f, Math.min(1.0f - green / 255.0f, 1.0f - blue / 255.0f));
-        float cyan = 1.0f;
-        float magenta = 1.0f;
-        float yellow = 1.0f;
-        if (black != 1.0f) {
-            // black 1.0 causes zero divide
-            cyan = (1.0f - (red / 255.0f) - black) / (1.0f - black);
-            magenta = (1.0f - (green / 255.0f) - black) / (1.0f - black);
-            yellow = (1.0f - (blue / 255.0f) - black) / (1.0f - black);
-        }
-        return new float[]{cyan, magenta, yellow, black};
+        return cmykFromRgb(rgbColor, new float[4]);
+    }
+
+    /**
+     * Convert RGB color to CMYK color and write it to the given array.
+     * This is the same as {@link #cmykFromRgb(int)} but doesn't allocate a new array,
+     * so it can be used in the scroll callbacks with a reused buffer.
+     * This method doesn't check if cmyk is not null or have 4 elements in array.
+     *
+     * @param rgbColor target color
+     * @param cmyk     array to write the CMYK color in this order: cyan, magenta, yellow, black
+     * @return the cmyk array
+     */
+    public static float[] cmykFromRgb(int rgbColor, float[] cmyk) {
+        float black = blackFromRgb(rgbColor);
+        cmyk[0] = cmykFromRgbComponent((0xff0000 & rgbColor) >> 16, black);
+        cmyk[1] = cmykFromRgbComponent((0xff00 & rgbColor) >> 8, black);
+        cmyk[2] = cmykFromRgbComponent(0xff & rgbColor, black);
+        cmyk[3] = black;
+        return cmyk;
     }
 
     /**
@@ -131,13 +147,32 @@ public final class ScrollUtils {
      * @return ARGB color. Alpha is fixed value (255).
      */
     public static int rgbFromCmyk(float[] cmyk) {
-        float cyan = cmyk[0];
-        float magenta = cmyk[1];
-        float yellow = cmyk[2];
-        float black = cmyk[3];
+        return rgbFromCmyk(cmyk[0], cmyk[1], cmyk[2], cmyk[3]);
+    }
+
+    private static int rgbFromCmyk(float cyan, float magenta, float yellow, float black) {
         int red = (int) ((1.0f - Math.min(1.0f, cyan * (1.0f - black) + black)) * 255);
         int green = (int) ((1.0f - Math.min(1.0f, magenta * (1.0f - black) + black)) * 255);
         int blue = (int) ((1.0f - Math.min(1.0f, yellow * (1.0f - black) + black)) * 255);
         return ((0xff & red) << 16) + ((0xff & green) << 8) + (0xff & blue);
     }
+
+    private static float blackFromRgb(int rgbColor) {
+        int red = (0xff0000 & rgbColor) >> 16;
+        int green = (0xff00 & rgbColor) >> 8;
+        int blue = (0xff & rgbColor);
+        return Math.min(1.0f - red / 255.0f, Math.min(1.0f - green / 255.0f, 1.0f - blue / 255.0f));
+    }
+
+    private static float cmykFromRgbComponent(int component, float black) {
+        if (black == 1.0f) {
+            // black 1.0 causes zero divide
+            return 1.0f;
+        }
+        return (1.0f - (component / 255.0f) - black) / (1.0f - black);
+    }
+
+    private static float mixCmyk(float from, float to, float toAlpha) {
+        return Math.min(1, from * (1 - toAlpha) + to * toAlpha);
+    }
 }
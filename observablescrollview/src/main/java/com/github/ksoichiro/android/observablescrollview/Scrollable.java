@@ -16,6 +16,7 @@
 
 package com.github.ksoichiro.android.observablescrollview;
 
+import android.view.View;
 import android.view.ViewGroup;
 
 /**
@@ -45,6 +46,25 @@ public interface Scrollable {
      */
     int getCurrentScrollY();
 
+    /**
+     * Returns the maximum Y that the scrollable view can be scrolled to.
+     * For the widgets that have adapters, this is estimated from the heights of the items
+     * that have been laid out, and it will be more accurate as the view is scrolled.
+     * This value is updated before the callbacks are notified,
+     * so it is cheap to call this in {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}.
+     *
+     * @return maximum Y pixel, or 0 if the view can't be scrolled
+     */
+    int getMaxScrollY();
+
+    /**
+     * Returns the scroll progress of the scrollable view.
+     * This is the current Y divided by {@link #getMaxScrollY()}.
+     *
+     * @return progress from 0.0f (top) to 1.0f (bottom)
+     */
+    float getScrollProgress();
+
     /**
      * Sets a touch motion event delegation ViewGroup.
      * This is used to pass motion events back to parent view.
@@ -53,4 +73,104 @@ public interface Scrollable {
      * @param viewGroup ViewGroup object to dispatch motion events
      */
     void setTouchInterceptionViewGroup(ViewGroup viewGroup);
+
+    /**
+     * Sets a listener to be notified when the view is approaching the end of its contents.
+     * The remaining distance is estimated with {@link #getMaxScrollY()},
+     * so this works without {@link ObservableScrollViewCallbacks}.
+     *
+     * @param listener listener to set
+     * @see #setApproachingEndLookahead(int, int)
+     */
+    void setOnApproachingEndListener(OnApproachingEndListener listener);
+
+    /**
+     * Sets the lookahead for {@link OnApproachingEndListener}.
+     * The listener is notified when the remaining distance becomes less than
+     * {@code pixels}, or the distance that will be scrolled in {@code millis}
+     * at the current scroll velocity, whichever is greater.
+     * This makes fast flings notified earlier than slow scrolls.
+     *
+     * @param pixels lookahead in pixels
+     * @param millis lookahead in milliseconds
+     */
+    void setApproachingEndLookahead(int pixels, int millis);
+
+    /**
+     * Adds a listener to be notified when the scroll position crosses one of the boundaries.
+     * Crossings are detected by comparing the scroll position with the region
+     * that the previous position was in, so the listener is called only when
+     * the position actually moves across the boundaries.
+     * The initial region is decided by {@link #getCurrentScrollY()}.
+     *
+     * @param boundaries scroll positions to observe. They will be sorted in ascending order
+     *                   and the indices passed to the listener are the ones in the sorted array
+     * @param listener   listener to add
+     */
+    void addOnBoundaryCrossedListener(int[] boundaries, OnBoundaryCrossedListener listener);
+
+    /**
+     * Removes the listener and its boundaries.
+     *
+     * @param listener listener to remove
+     */
+    void removeOnBoundaryCrossedListener(OnBoundaryCrossedListener listener);
+
+    /**
+     * Sets a listener to be notified with {@link ScrollEvent} when the scroll position is changed.
+     * The event has the delta, the velocity and the phase of the scroll,
+     * and it is filled in by the widget without allocation in every scroll change.
+     * The touch events are handled in the same way as when {@link ObservableScrollViewCallbacks} is set,
+     * so this can be used instead of it.
+     *
+     * @param listener listener to set
+     */
+    void setOnScrollEventListener(OnScrollEventListener listener);
+
+    /**
+     * Sets an exporter to write the samples of the scroll changes to.
+     * The samples are consumed in the background thread,
+     * so this costs the UI thread only a few stores for each scroll change.
+     *
+     * @param exporter exporter to set, or null to stop exporting
+     */
+    void setScrollSampleExporter(ScrollSampleExporter exporter);
+
+    /**
+     * Sets a listener to be notified when the scroll phase is changed.
+     * ListView, GridView and RecyclerView report their own scroll states,
+     * and the phases of the other widgets are estimated from the touch events
+     * and the scroll changes, so they become {@link ScrollPhase#IDLE}
+     * shortly after the scroll stops.
+     * This works without {@link ObservableScrollViewCallbacks}.
+     *
+     * @param listener listener to set
+     */
+    void setOnScrollPhaseChangedListener(OnScrollPhaseChangedListener listener);
+
+    /**
+     * Returns the current scroll phase.
+     *
+     * @return current scroll phase
+     */
+    ScrollPhase getScrollPhase();
+
+    /**
+     * Adds a view that is animated with the scroll position of this widget,
+     * e.g. a view translated or faded in {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}.
+     * The view is rendered into a hardware layer from the down motion event
+     * until the scroll settles, so its alpha and translation can be changed
+     * without drawing its contents again in each frame.
+     * This has no effect before Android 3.0.
+     *
+     * @param view view to be animated
+     */
+    void addAnimatedView(View view);
+
+    /**
+     * Removes the animated view and restores its layer type.
+     *
+     * @param view view to remove
+     */
+    void removeAnimatedView(View view);
 }
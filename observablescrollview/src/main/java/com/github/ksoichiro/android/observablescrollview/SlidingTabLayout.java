@@ -14,10 +14,11 @@
  * limitations under the License.
  */
 
-package com.google.samples.apps.iosched.ui.widget;
+package com.github.ksoichiro.android.observablescrollview;
 
 import android.content.Context;
 import android.graphics.Typeface;
+import android.os.Build;
 import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
@@ -41,16 +42,20 @@ import android.widget.TextView;
  * <p>
  * The colors can be customized in two ways. The first and simplest is to provide an array of colors
  * via {@link #setSelectedIndicatorColors(int...)}. The
- * alternative is via the {@link com.google.samples.apps.iosched.ui.widget.SlidingTabLayout.TabColorizer} interface which provides you complete control over
+ * alternative is via the {@link TabColorizer} interface which provides you complete control over
  * which color is used for any individual position.
  * <p>
  * The views used as tabs can be customized by calling {@link #setCustomTabView(int, int)},
  * providing the layout ID of your custom layout.
+ * <p>
+ * This is based on SlidingTabLayout in google/iosched: https://github.com/google/iosched
+ * The positions of the tabs and the colors of the indicator are cached on layout,
+ * so scrolling the ViewPager doesn't look up or measure the tabs.
  */
 public class SlidingTabLayout extends HorizontalScrollView {
     /**
      * Allows complete control over the colors drawn in the tab layout. Set with
-     * {@link #setCustomTabColorizer(com.google.samples.apps.iosched.ui.widget.SlidingTabLayout.TabColorizer)}.
+     * {@link #setCustomTabColorizer(TabColorizer)}.
      */
     public interface TabColorizer {
 
@@ -100,11 +105,13 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     /**
-     * Set the custom {@link com.google.samples.apps.iosched.ui.widget.SlidingTabLayout.TabColorizer} to be used.
+     * Set the custom {@link TabColorizer} to be used.
      *
      * If you only require simple custmisation then you can use
      * {@link #setSelectedIndicatorColors(int...)} to achieve
      * similar effects.
+     *
+     * The colors are cached, so set the colorizer again if the colors it returns are changed.
      */
     public void setCustomTabColorizer(TabColorizer tabColorizer) {
         mTabStrip.setCustomTabColorizer(tabColorizer);
@@ -123,7 +130,7 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     /**
-     * Set the {@link android.support.v4.view.ViewPager.OnPageChangeListener}. When using {@link com.google.samples.apps.iosched.ui.widget.SlidingTabLayout} you are
+     * Set the {@link android.support.v4.view.ViewPager.OnPageChangeListener}. When using {@link SlidingTabLayout} you are
      * required to set any {@link android.support.v4.view.ViewPager.OnPageChangeListener} through this method. This is so
      * that the layout can update it's scroll position correctly.
      *
@@ -174,7 +181,9 @@ public class SlidingTabLayout extends HorizontalScrollView {
         getContext().getTheme().resolveAttribute(android.R.attr.selectableItemBackground,
                 outValue, true);
         textView.setBackgroundResource(outValue.resourceId);
-        textView.setAllCaps(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            textView.setAllCaps(true);
+        }
 
         int padding = (int) (TAB_VIEW_PADDING_DIPS * getResources().getDisplayMetrics().density);
         textView.setPadding(padding, padding, padding, padding);
@@ -239,22 +248,20 @@ public class SlidingTabLayout extends HorizontalScrollView {
     }
 
     private void scrollToTab(int tabIndex, int positionOffset) {
-        final int tabStripChildCount = mTabStrip.getChildCount();
-        if (tabStripChildCount == 0 || tabIndex < 0 || tabIndex >= tabStripChildCount) {
+        // Use the edges cached on the last layout of the tab strip
+        final int tabCount = mTabStrip.getTabCount();
+        if (tabCount == 0 || tabIndex < 0 || tabIndex >= tabCount) {
             return;
         }
 
-        View selectedChild = mTabStrip.getChildAt(tabIndex);
-        if (selectedChild != null) {
-            int targetScrollX = selectedChild.getLeft() + positionOffset;
+        int targetScrollX = mTabStrip.getTabLeft(tabIndex) + positionOffset;
 
-            if (tabIndex > 0 || positionOffset > 0) {
-                // If we're not at the first child and are mid-scroll, make sure we obey the offset
-                targetScrollX -= mTitleOffset;
-            }
-
-            scrollTo(targetScrollX, 0);
+        if (tabIndex > 0 || positionOffset > 0) {
+            // If we're not at the first child and are mid-scroll, make sure we obey the offset
+            targetScrollX -= mTitleOffset;
         }
+
+        scrollTo(targetScrollX, 0);
     }
 
     private class InternalViewPagerListener implements ViewPager.OnPageChangeListener {
@@ -262,17 +269,14 @@ public class SlidingTabLayout extends HorizontalScrollView {
 
         @Override
         public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-            int tabStripChildCount = mTabStrip.getChildCount();
-            if ((tabStripChildCount == 0) || (position < 0) || (position >= tabStripChildCount)) {
+            int tabCount = mTabStrip.getTabCount();
+            if ((tabCount == 0) || (position < 0) || (position >= tabCount)) {
                 return;
             }
 
             mTabStrip.onViewPagerPageChanged(position, positionOffset);
 
-            View selectedTitle = mTabStrip.getChildAt(position);
-            int extraOffset = (selectedTitle != null)
-                    ? (int) (positionOffset * selectedTitle.getWidth())
-                    : 0;
+            int extraOffset = (int) (positionOffset * mTabStrip.getTabWidth(position));
             scrollToTab(position, extraOffset);
 
             if (mViewPagerPageChangeListener != null) {
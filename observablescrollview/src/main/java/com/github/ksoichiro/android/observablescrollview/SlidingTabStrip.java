@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package com.google.samples.apps.iosched.ui.widget;
+package com.github.ksoichiro.android.observablescrollview;
 
 import android.R;
 import android.content.Context;
@@ -26,6 +26,14 @@ import android.util.TypedValue;
 import android.view.View;
 import android.widget.LinearLayout;
 
+/**
+ * Tab strip for {@link SlidingTabLayout}.
+ * This is based on SlidingTabStrip in google/iosched: https://github.com/google/iosched
+ * <p/>
+ * The edges of the tabs and the colors of the indicator are cached when it's laid out
+ * or the colors are changed, so drawing the indicator while the ViewPager is scrolled
+ * doesn't allocate any objects or look up the child views.
+ */
 class SlidingTabStrip extends LinearLayout {
 
     private static final int DEFAULT_BOTTOM_BORDER_THICKNESS_DIPS = 0;
@@ -33,6 +41,11 @@ class SlidingTabStrip extends LinearLayout {
     private static final int SELECTED_INDICATOR_THICKNESS_DIPS = 3;
     private static final int DEFAULT_SELECTED_INDICATOR_COLOR = 0xFF33B5E5;
 
+    /**
+     * Number of the colors blended between two adjacent tabs.
+     */
+    private static final int BLEND_STEPS = 64;
+
     private final int mBottomBorderThickness;
     private final Paint mBottomBorderPaint;
 
@@ -47,6 +60,17 @@ class SlidingTabStrip extends LinearLayout {
     private SlidingTabLayout.TabColorizer mCustomTabColorizer;
     private final SimpleTabColorizer mDefaultTabColorizer;
 
+    // Caches updated on layout
+    private int mTabCount;
+    private int[] mTabLefts = new int[0];
+    private int[] mTabRights = new int[0];
+
+    // Caches updated when the colors or the number of the tabs are changed.
+    // mBlendedColors[i] is null if the colors of tab i and i + 1 are the same.
+    private boolean mColorsDirty = true;
+    private int[] mIndicatorColors = new int[0];
+    private int[][] mBlendedColors = new int[0][];
+
     SlidingTabStrip(Context context) {
         this(context, null);
     }
@@ -59,7 +83,7 @@ class SlidingTabStrip extends LinearLayout {
 
         TypedValue outValue = new TypedValue();
         context.getTheme().resolveAttribute(R.attr.colorForeground, outValue, true);
-        final int themeForegroundColor =  outValue.data;
+        final int themeForegroundColor = outValue.data;
 
         mDefaultBottomBorderColor = setColorAlpha(themeForegroundColor,
                 DEFAULT_BOTTOM_BORDER_COLOR_ALPHA);
@@ -77,6 +101,7 @@ class SlidingTabStrip extends LinearLayout {
 
     void setCustomTabColorizer(SlidingTabLayout.TabColorizer customTabColorizer) {
         mCustomTabColorizer = customTabColorizer;
+        mColorsDirty = true;
         invalidate();
     }
 
@@ -84,6 +109,7 @@ class SlidingTabStrip extends LinearLayout {
         // Make sure that the custom colorizer is removed
         mCustomTabColorizer = null;
         mDefaultTabColorizer.setIndicatorColors(colors);
+        mColorsDirty = true;
         invalidate();
     }
 
@@ -93,32 +119,78 @@ class SlidingTabStrip extends LinearLayout {
         invalidate();
     }
 
+    /**
+     * Returns the left edge of the tab cached on the last layout.
+     *
+     * @param position position of the tab
+     * @return left edge of the tab in this strip
+     */
+    int getTabLeft(int position) {
+        return mTabLefts[position];
+    }
+
+    /**
+     * Returns the width of the tab cached on the last layout.
+     *
+     * @param position position of the tab
+     * @return width of the tab
+     */
+    int getTabWidth(int position) {
+        return mTabRights[position] - mTabLefts[position];
+    }
+
+    /**
+     * Returns the number of the tabs cached on the last layout.
+     *
+     * @return number of the tabs that are laid out
+     */
+    int getTabCount() {
+        return mTabCount;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        final int childCount = getChildCount();
+        if (mTabLefts.length < childCount) {
+            mTabLefts = new int[childCount];
+            mTabRights = new int[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            mTabLefts[i] = child.getLeft();
+            mTabRights[i] = child.getRight();
+        }
+        if (mTabCount != childCount) {
+            mTabCount = childCount;
+            mColorsDirty = true;
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         final int height = getHeight();
-        final int childCount = getChildCount();
-        final SlidingTabLayout.TabColorizer tabColorizer = mCustomTabColorizer != null
-                ? mCustomTabColorizer
-                : mDefaultTabColorizer;
+        final int tabCount = mTabCount;
 
         // Thick colored underline below the current selection
-        if (childCount > 0) {
-            View selectedTitle = getChildAt(mSelectedPosition);
-            int left = selectedTitle.getLeft();
-            int right = selectedTitle.getRight();
-            int color = tabColorizer.getIndicatorColor(mSelectedPosition);
-
-            if (mSelectionOffset > 0f && mSelectedPosition < (getChildCount() - 1)) {
-                int nextColor = tabColorizer.getIndicatorColor(mSelectedPosition + 1);
-                if (color != nextColor) {
-                    color = blendColors(nextColor, color, mSelectionOffset);
+        if (tabCount > 0 && mSelectedPosition < tabCount) {
+            if (mColorsDirty) {
+                updateIndicatorColors();
+            }
+            int left = mTabLefts[mSelectedPosition];
+            int right = mTabRights[mSelectedPosition];
+            int color = mIndicatorColors[mSelectedPosition];
+
+            if (mSelectionOffset > 0f && mSelectedPosition < (tabCount - 1)) {
+                int[] blendedColors = mBlendedColors[mSelectedPosition];
+                if (blendedColors != null) {
+                    color = blendedColors[(int) (mSelectionOffset * (BLEND_STEPS - 1) + 0.5f)];
                 }
 
                 // Draw the selection partway between the tabs
-                View nextTitle = getChildAt(mSelectedPosition + 1);
-                left = (int) (mSelectionOffset * nextTitle.getLeft() +
+                left = (int) (mSelectionOffset * mTabLefts[mSelectedPosition + 1] +
                         (1.0f - mSelectionOffset) * left);
-                right = (int) (mSelectionOffset * nextTitle.getRight() +
+                right = (int) (mSelectionOffset * mTabRights[mSelectedPosition + 1] +
                         (1.0f - mSelectionOffset) * right);
             }
 
@@ -129,7 +201,38 @@ class SlidingTabStrip extends LinearLayout {
         }
 
         // Thin underline along the entire bottom edge
-        canvas.drawRect(0, height - mBottomBorderThickness, getWidth(), height, mBottomBorderPaint);
+        if (0 < mBottomBorderThickness) {
+            canvas.drawRect(0, height - mBottomBorderThickness, getWidth(), height, mBottomBorderPaint);
+        }
+    }
+
+    private void updateIndicatorColors() {
+        mColorsDirty = false;
+        final SlidingTabLayout.TabColorizer tabColorizer = mCustomTabColorizer != null
+                ? mCustomTabColorizer
+                : mDefaultTabColorizer;
+        final int tabCount = mTabCount;
+        if (mIndicatorColors.length < tabCount) {
+            mIndicatorColors = new int[tabCount];
+            mBlendedColors = new int[tabCount][];
+        }
+        for (int i = 0; i < tabCount; i++) {
+            mIndicatorColors[i] = tabColorizer.getIndicatorColor(i);
+        }
+        for (int i = 0; i < tabCount - 1; i++) {
+            int color = mIndicatorColors[i];
+            int nextColor = mIndicatorColors[i + 1];
+            if (color == nextColor) {
+                mBlendedColors[i] = null;
+                continue;
+            }
+            if (mBlendedColors[i] == null) {
+                mBlendedColors[i] = new int[BLEND_STEPS];
+            }
+            for (int step = 0; step < BLEND_STEPS; step++) {
+                mBlendedColors[i][step] = blendColors(nextColor, color, (float) step / (BLEND_STEPS - 1));
+            }
+        }
     }
 
     /**
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+import com.nineoldandroids.animation.ValueAnimator;
+import com.nineoldandroids.view.ViewHelper;
+
+import java.util.Arrays;
+
+/**
+ * A panel that contains a Scrollable and slides up and down over the background contents.
+ * <p/>
+ * The panel is dragged while the Scrollable is scrolled to the top,
+ * and it sticks to one of the anchors when it's released.
+ * The panel is moved only with its translation: its height is extended once
+ * when measured so that the bottom is not revealed even if the panel slides
+ * above its original position, and it's not laid out while sliding.
+ * Other views that should move with the panel can be updated with {@link PanelSlideListener}.
+ * <p/>
+ * This layout handles touch events with {@link TouchInterceptionFrameLayout.TouchInterceptionListener}
+ * by itself, so don't call {@link #setScrollInterceptionListener(TouchInterceptionListener)}.
+ */
+public class SlidingUpPanelLayout extends TouchInterceptionFrameLayout {
+    /**
+     * The panel is not moving.
+     */
+    public static final int STATE_IDLE = 0;
+
+    /**
+     * The panel is being dragged by the user.
+     */
+    public static final int STATE_DRAGGING = 1;
+
+    /**
+     * The panel is moving to an anchor with animation.
+     */
+    public static final int STATE_SETTLING = 2;
+
+    private static final long DEFAULT_ANIMATION_DURATION = 200;
+
+    /**
+     * Callbacks for SlidingUpPanelLayout.
+     */
+    public interface PanelSlideListener {
+        /**
+         * Called when the panel moved.
+         *
+         * @param translationY translation of the panel
+         */
+        void onPanelSlide(float translationY);
+
+        /**
+         * Called when the state of the panel is changed.
+         *
+         * @param state one of {@link #STATE_IDLE}, {@link #STATE_DRAGGING} and {@link #STATE_SETTLING}
+         */
+        void onPanelStateChanged(int state);
+    }
+
+    private Scrollable mScrollable;
+    private PanelSlideListener mPanelSlideListener;
+    private View mToggleView;
+    private int[] mAnchors = new int[]{0};
+    private int mMinTranslationY;
+    private int mMaxTranslationY;
+    private int mSlidingSlop;
+    private float mTranslationY;
+    private int mState = STATE_IDLE;
+    private float mScrollYOnDownMotion;
+    private float mInitialTranslationY;
+    private boolean mMoved;
+    private final Rect mToggleViewRect = new Rect();
+    private ValueAnimator mAnimator;
+    private boolean mAnimationCanceled;
+
+    public SlidingUpPanelLayout(Context context) {
+        super(context);
+        init();
+    }
+
+    public SlidingUpPanelLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public SlidingUpPanelLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    /**
+     * Sets the Scrollable in this panel.
+     * The panel is dragged only when the Scrollable can't scroll up anymore.
+     *
+     * @param scrollable Scrollable in this panel
+     */
+    public void setScrollable(Scrollable scrollable) {
+        mScrollable = scrollable;
+    }
+
+    public void setPanelSlideListener(PanelSlideListener listener) {
+        mPanelSlideListener = listener;
+    }
+
+    /**
+     * Sets the view that toggles the panel when it's tapped,
+     * e.g. the header of the panel.
+     *
+     * @param view view to toggle the panel
+     */
+    public void setToggleView(View view) {
+        mToggleView = view;
+    }
+
+    /**
+     * Sets the translations that the panel sticks to when it's released.
+     * The range that the panel can be dragged is also set to the minimum and the maximum of them,
+     * so call {@link #setSlideRange(int, int)} after this if you need a wider range.
+     *
+     * @param anchors translations of the panel, sorted or not
+     */
+    public void setAnchors(int... anchors) {
+        if (anchors == null || anchors.length == 0) {
+            throw new IllegalArgumentException("anchors must have 1 or more translations");
+        }
+        mAnchors = anchors.clone();
+        Arrays.sort(mAnchors);
+        setSlideRange(mAnchors[0], mAnchors[mAnchors.length - 1]);
+    }
+
+    /**
+     * Sets the range of the translation that the panel can be dragged.
+     *
+     * @param minTranslationY minimum translation. Negative value slides the panel above its position
+     * @param maxTranslationY maximum translation
+     */
+    public void setSlideRange(int minTranslationY, int maxTranslationY) {
+        boolean heightChanged = Math.min(0, minTranslationY) != Math.min(0, mMinTranslationY);
+        mMinTranslationY = minTranslationY;
+        mMaxTranslationY = maxTranslationY;
+        if (heightChanged) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Sets the distance that the panel should be dragged
+     * to move to the next anchor when it's released.
+     *
+     * @param slop distance in pixels
+     */
+    public void setSlidingSlop(int slop) {
+        mSlidingSlop = slop;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public float getPanelTranslationY() {
+        return mTranslationY;
+    }
+
+    /**
+     * Moves the panel without animation.
+     *
+     * @param translationY translation of the panel
+     */
+    public void slideTo(float translationY) {
+        cancelAnimation();
+        applyTranslationY(translationY);
+        setState(STATE_IDLE);
+    }
+
+    /**
+     * Moves the panel with animation.
+     * The animator is reused, so the animation is restarted
+     * from the current position if it's called while moving.
+     *
+     * @param translationY translation of the panel
+     */
+    public void smoothSlideTo(float translationY) {
+        cancelAnimation();
+        if (mTranslationY == translationY) {
+            setState(STATE_IDLE);
+            return;
+        }
+        mAnimator.setFloatValues(mTranslationY, translationY);
+        setState(STATE_SETTLING);
+        mAnimator.start();
+    }
+
+    /**
+     * Moves the panel to the next anchor.
+     * If the panel is at the bottom anchor, it moves to the one above,
+     * otherwise it moves to the bottom anchor.
+     */
+    public void toggle() {
+        int bottom = mAnchors[mAnchors.length - 1];
+        if (mTranslationY == bottom && 1 < mAnchors.length) {
+            smoothSlideTo(mAnchors[mAnchors.length - 2]);
+        } else {
+            smoothSlideTo(bottom);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Extend the height once here instead of changing it while sliding,
+        // so that the bottom of the panel is not revealed while it's above its position.
+        int extra = Math.max(0, -mMinTranslationY);
+        if (0 < extra && MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            heightMeasureSpec = MeasureSpec.makeMeasureSpec(
+                    MeasureSpec.getSize(heightMeasureSpec) + extra, MeasureSpec.getMode(heightMeasureSpec));
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    private void init() {
+        mSlidingSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        mAnimator = ValueAnimator.ofFloat(0, 1);
+        mAnimator.setDuration(DEFAULT_ANIMATION_DURATION);
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                applyTranslationY((Float) animation.getAnimatedValue());
+            }
+        });
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mAnimationCanceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (!mAnimationCanceled) {
+                    setState(STATE_IDLE);
+                }
+                mAnimationCanceled = false;
+            }
+        });
+        setScrollInterceptionListener(mInterceptionListener);
+    }
+
+    private void cancelAnimation() {
+        if (mAnimator.isStarted()) {
+            mAnimator.cancel();
+        }
+    }
+
+    private void applyTranslationY(float translationY) {
+        if (mTranslationY == translationY) {
+            return;
+        }
+        mTranslationY = translationY;
+        ViewHelper.setTranslationY(this, translationY);
+        if (mPanelSlideListener != null) {
+            mPanelSlideListener.onPanelSlide(translationY);
+        }
+    }
+
+    private void setState(int state) {
+        if (mState == state) {
+            return;
+        }
+        mState = state;
+        if (mPanelSlideListener != null) {
+            mPanelSlideListener.onPanelStateChanged(state);
+        }
+    }
+
+    private void stickToAnchor() {
+        float movedDistanceY = mTranslationY - mInitialTranslationY;
+        if (movedDistanceY == 0) {
+            setState(STATE_IDLE);
+            return;
+        }
+        // Move to the next anchor in the direction of the drag if dragged enough,
+        // otherwise move back to the anchor in the opposite direction.
+        boolean down = 0 < movedDistanceY;
+        boolean enough = mSlidingSlop < Math.abs(movedDistanceY);
+        smoothSlideTo(down == enough ? findAnchorBelow(mTranslationY) : findAnchorAbove(mTranslationY));
+    }
+
+    private int findAnchorBelow(float translationY) {
+        for (int i = 0; i < mAnchors.length; i++) {
+            if (translationY <= mAnchors[i]) {
+                return mAnchors[i];
+            }
+        }
+        return mAnchors[mAnchors.length - 1];
+    }
+
+    private int findAnchorAbove(float translationY) {
+        for (int i = mAnchors.length - 1; 0 <= i; i--) {
+            if (mAnchors[i] <= translationY) {
+                return mAnchors[i];
+            }
+        }
+        return mAnchors[0];
+    }
+
+    private TouchInterceptionListener mInterceptionListener = new TouchInterceptionListener() {
+        @Override
+        public boolean shouldInterceptTouchEvent(MotionEvent ev, boolean moving, float diffX, float diffY) {
+            return mMinTranslationY < (int) mTranslationY
+                    || (moving && mScrollable != null && mScrollable.getCurrentScrollY() - diffY < 0);
+        }
+
+        @Override
+        public void onDownMotionEvent(MotionEvent ev) {
+            cancelAnimation();
+            mScrollYOnDownMotion = mScrollable == null ? 0 : mScrollable.getCurrentScrollY();
+            mInitialTranslationY = mTranslationY;
+        }
+
+        @Override
+        public void onMoveMotionEvent(MotionEvent ev, float diffX, float diffY) {
+            mMoved = true;
+            setState(STATE_DRAGGING);
+            // diffY is in the screen coordinates from the down motion,
+            // so it's not affected by the translation of this layout.
+            float translationY = mInitialTranslationY - mScrollYOnDownMotion + diffY;
+            applyTranslationY(ScrollUtils.getFloat(translationY, mMinTranslationY, mMaxTranslationY));
+        }
+
+        @Override
+        public void onUpOrCancelMotionEvent(MotionEvent ev) {
+            if (!mMoved) {
+                if (mToggleView != null) {
+                    mToggleView.getHitRect(mToggleViewRect);
+                    if (mToggleViewRect.contains((int) ev.getX(), (int) ev.getY())) {
+                        toggle();
+                    }
+                }
+            } else {
+                stickToAnchor();
+            }
+            mMoved = false;
+        }
+    };
+}
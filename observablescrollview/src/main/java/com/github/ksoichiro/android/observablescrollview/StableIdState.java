@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.Parcel;
+import android.util.SparseIntArray;
+
+import java.util.Arrays;
+
+/**
+ * Scroll state keyed by the stable IDs of the items.
+ * <p/>
+ * Position-keyed state is broken if the data set is changed while the process is dead,
+ * so the widgets save the ID of the first visible item (anchor), its offset,
+ * and the heights of the measured items keyed by their IDs.
+ * On restore, the widgets find the anchor in the new data set and lay out from it.
+ * <p/>
+ * IDs are kept sorted with their heights in primitive arrays,
+ * so this can be written to the parcel compactly and looked up by binary search.
+ */
+final class StableIdState {
+    final long anchorId;
+    final int anchorOffset;
+    final long[] ids;
+    final int[] heights;
+
+    /**
+     * Creates the state.
+     *
+     * @param anchorId     ID of the first visible item
+     * @param anchorOffset top of the first visible item
+     * @param ids          IDs of the measured items, this array is sorted
+     * @param heights      heights of the measured items in the same order as ids
+     */
+    StableIdState(long anchorId, int anchorOffset, long[] ids, int[] heights) {
+        this.anchorId = anchorId;
+        this.anchorOffset = anchorOffset;
+        this.ids = ids;
+        this.heights = heights;
+        sort();
+    }
+
+    StableIdState(Parcel in) {
+        anchorId = in.readLong();
+        anchorOffset = in.readInt();
+        ids = in.createLongArray();
+        heights = in.createIntArray();
+    }
+
+    void writeToParcel(Parcel out) {
+        out.writeLong(anchorId);
+        out.writeInt(anchorOffset);
+        out.writeLongArray(ids);
+        out.writeIntArray(heights);
+    }
+
+    /**
+     * Puts the saved height of the item to the heights keyed by the new positions.
+     *
+     * @param position position of the item in the new data set
+     * @param id       ID of the item
+     * @param out      heights keyed by positions
+     */
+    void putHeight(int position, long id, SparseIntArray out) {
+        int index = indexOf(id);
+        if (0 <= index) {
+            out.put(position, heights[index]);
+        }
+    }
+
+    private int indexOf(long id) {
+        int low = 0;
+        int high = ids.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id) {
+                low = mid + 1;
+            } else if (id < ids[mid]) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void sort() {
+        int n = ids.length;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (ids[i] < Integer.MIN_VALUE || Integer.MAX_VALUE < ids[i]) {
+                sortWideIds();
+                return;
+            }
+            // ID in the upper bits keeps the order, index in the lower bits
+            packed[i] = ids[i] << 32 | i;
+        }
+        Arrays.sort(packed);
+        int[] unsortedHeights = heights.clone();
+        for (int i = 0; i < n; i++) {
+            ids[i] = packed[i] >> 32;
+            heights[i] = unsortedHeights[(int) packed[i]];
+        }
+    }
+
+    /**
+     * Sorts the IDs that can't be packed with the indices.
+     */
+    private void sortWideIds() {
+        long[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        int[] sortedHeights = new int[heights.length];
+        for (int i = 0; i < ids.length; i++) {
+            sortedHeights[Arrays.binarySearch(sortedIds, ids[i])] = heights[i];
+        }
+        System.arraycopy(sortedIds, 0, ids, 0, ids.length);
+        System.arraycopy(sortedHeights, 0, heights, 0, heights.length);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Provides the sections and their header views
+ * to {@link StickyHeaderItemDecoration} and {@link StickyHeaderOverlay}.
+ */
+public interface StickyHeaderAdapter {
+    /**
+     * Returns the positions where the sections start.
+     * This is called only when the sticky header is created or invalidated,
+     * so it can be a field that is updated with the data set.
+     *
+     * @return positions of the first items of the sections in ascending order
+     */
+    public int[] getSectionPositions();
+
+    /**
+     * Returns the header view for the section.
+     * This is called only when the current section is changed,
+     * not for every frame.
+     *
+     * @param section     index of the section in {@link #getSectionPositions()}
+     * @param convertView header view that was returned before, or null. Reuse this if possible
+     * @param parent      parent view of the header
+     * @return header view bound to the section
+     */
+    public View getHeaderView(int section, View convertView, ViewGroup parent);
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * ItemDecoration that draws the header of the current section
+ * at the top of the RecyclerView.
+ * The header is pushed up by the header of the next section when it comes.
+ * <p/>
+ * The current section is found by binary search over the section positions,
+ * and the header view is bound and laid out only when the section is changed,
+ * so drawing in each frame doesn't inflate or bind views.
+ * <p/>
+ * Headers are only drawn, so they don't receive touch events.
+ */
+public class StickyHeaderItemDecoration extends RecyclerView.ItemDecoration {
+
+    private StickyHeaderAdapter mAdapter;
+    private int[] mSectionPositions;
+    private View mHeaderView;
+    private int mHeaderSection = -1;
+    private int mHeaderWidth;
+
+    public StickyHeaderItemDecoration(StickyHeaderAdapter adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Discards the sections and the header that have been bound.
+     * Call this when the sections are changed, e.g. when the data set of the adapter is changed.
+     */
+    public void invalidateHeaders() {
+        mSectionPositions = null;
+        mHeaderSection = -1;
+    }
+
+    /**
+     * Returns the section that the header is drawn for.
+     *
+     * @return index of the current section, or -1 if there are no headers drawn
+     */
+    public int getCurrentSection() {
+        return mHeaderSection;
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        super.onDrawOver(c, parent, state);
+        if (parent.getChildCount() == 0) {
+            return;
+        }
+        if (mSectionPositions == null) {
+            mSectionPositions = mAdapter.getSectionPositions();
+            if (mSectionPositions == null) {
+                return;
+            }
+        }
+        int firstVisiblePosition = parent.getChildPosition(parent.getChildAt(0));
+        int section = findSection(firstVisiblePosition);
+        if (section < 0) {
+            return;
+        }
+        View header = getHeaderView(section, parent);
+        int headerHeight = header.getHeight();
+
+        // Push the header up when the next section comes to the top.
+        int offsetY = 0;
+        if (section + 1 < mSectionPositions.length) {
+            View nextChild = findChild(parent, firstVisiblePosition, mSectionPositions[section + 1]);
+            if (nextChild != null) {
+                offsetY = Math.min(0, nextChild.getTop() - parent.getPaddingTop() - headerHeight);
+            }
+        }
+
+        c.save();
+        c.translate(parent.getPaddingLeft(), parent.getPaddingTop() + offsetY);
+        header.draw(c);
+        c.restore();
+    }
+
+    private View getHeaderView(int section, RecyclerView parent) {
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        if (section != mHeaderSection || mHeaderView == null) {
+            mHeaderView = mAdapter.getHeaderView(section, mHeaderView, parent);
+            mHeaderSection = section;
+            mHeaderWidth = -1;
+        }
+        if (width != mHeaderWidth) {
+            int heightSpec;
+            ViewGroup.LayoutParams lp = mHeaderView.getLayoutParams();
+            if (lp != null && 0 < lp.height) {
+                heightSpec = View.MeasureSpec.makeMeasureSpec(lp.height, View.MeasureSpec.EXACTLY);
+            } else {
+                heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            }
+            mHeaderView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY), heightSpec);
+            mHeaderView.layout(0, 0, mHeaderView.getMeasuredWidth(), mHeaderView.getMeasuredHeight());
+            mHeaderWidth = width;
+        }
+        return mHeaderView;
+    }
+
+    /**
+     * Returns the last section that starts at or before the position.
+     *
+     * @param position adapter position
+     * @return index of the section, or -1 if the position is before the first section
+     */
+    private int findSection(int position) {
+        int low = 0;
+        int high = mSectionPositions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mSectionPositions[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private static View findChild(RecyclerView parent, int firstVisiblePosition, int position) {
+        int index = position - firstVisiblePosition;
+        if (index < 0 || parent.getChildCount() <= index) {
+            // Not visible
+            return null;
+        }
+        // Children are usually laid out in the order of the positions,
+        // so try the expected index first.
+        View expected = parent.getChildAt(index);
+        if (parent.getChildPosition(expected) == position) {
+            return expected;
+        }
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            if (parent.getChildPosition(child) == position) {
+                return child;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Sticky section header for ObservableListView.
+ * <p/>
+ * ListView doesn't have ItemDecorations, so this puts the header view
+ * of the current section into the container that is placed over the ListView,
+ * e.g. a FrameLayout whose top is aligned to the top of the ListView.
+ * Call {@link #update()} in {@link ObservableScrollViewCallbacks#onScrollChanged(int, boolean, boolean)}.
+ * <p/>
+ * The current section is found by binary search over the section positions,
+ * and the header view is bound only when the section is changed.
+ * While the next section is coming, the header is pushed up by scrolling the container,
+ * which doesn't require layout.
+ */
+public class StickyHeaderOverlay {
+
+    private ObservableListView mListView;
+    private ViewGroup mContainer;
+    private StickyHeaderAdapter mAdapter;
+    private int[] mSectionPositions;
+    private View mHeaderView;
+    private int mHeaderSection = -1;
+
+    /**
+     * Creates a sticky header.
+     *
+     * @param listView  ListView to observe
+     * @param container container to put the header view, placed over the ListView
+     * @param adapter   adapter to provide the sections and their header views.
+     *                  Positions of the sections include the header views of the ListView
+     */
+    public StickyHeaderOverlay(ObservableListView listView, ViewGroup container, StickyHeaderAdapter adapter) {
+        mListView = listView;
+        mContainer = container;
+        mAdapter = adapter;
+    }
+
+    /**
+     * Discards the sections and the header that have been bound, and updates the header.
+     * Call this when the sections are changed, e.g. when the data set of the adapter is changed.
+     */
+    public void invalidateHeaders() {
+        mSectionPositions = null;
+        mHeaderSection = -1;
+        update();
+    }
+
+    /**
+     * Returns the section that the header is shown for.
+     *
+     * @return index of the current section, or -1 if the header is not shown
+     */
+    public int getCurrentSection() {
+        return mHeaderSection;
+    }
+
+    /**
+     * Updates the header with the current scroll position of the ListView.
+     */
+    public void update() {
+        if (mSectionPositions == null) {
+            mSectionPositions = mAdapter.getSectionPositions();
+        }
+        int firstVisiblePosition = mListView.getFirstVisiblePosition();
+        int section = -1;
+        if (mSectionPositions != null && 0 < mListView.getChildCount()) {
+            section = findSection(firstVisiblePosition);
+        }
+        if (section < 0) {
+            mHeaderSection = -1;
+            mContainer.setVisibility(View.INVISIBLE);
+            return;
+        }
+        if (section != mHeaderSection || mHeaderView == null) {
+            View headerView = mAdapter.getHeaderView(section, mHeaderView, mContainer);
+            if (headerView != mHeaderView) {
+                if (mHeaderView != null) {
+                    mContainer.removeView(mHeaderView);
+                }
+                mContainer.addView(headerView);
+                mHeaderView = headerView;
+            }
+            mHeaderSection = section;
+        }
+        mContainer.setVisibility(View.VISIBLE);
+
+        // Push the header up when the next section comes to the top.
+        int offsetY = 0;
+        if (section + 1 < mSectionPositions.length) {
+            // Children of ListView are laid out in the order of the positions
+            int index = mSectionPositions[section + 1] - firstVisiblePosition;
+            if (0 <= index && index < mListView.getChildCount()) {
+                int nextTop = mListView.getChildAt(index).getTop();
+                offsetY = Math.min(0, nextTop - mHeaderView.getBottom());
+            }
+        }
+        if (mContainer.getScrollY() != -offsetY) {
+            mContainer.scrollTo(0, -offsetY);
+        }
+    }
+
+    /**
+     * Returns the last section that starts at or before the position.
+     *
+     * @param position position in the ListView
+     * @return index of the section, or -1 if the position is before the first section
+     */
+    private int findSection(int position) {
+        int low = 0;
+        int high = mSectionPositions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mSectionPositions[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+}
@@ -24,6 +24,7 @@ import android.os.Build;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.widget.FrameLayout;
 
 /**
@@ -59,10 +60,20 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
 
         /**
          * Called if the move motion event is intercepted by this layout.
+         * The differences are calculated from all the samples batched in the event
+         * and smoothed, so they change evenly even if the number of the samples varies.
+         * They are the differences from the position where the listener received
+         * {@link #onDownMotionEvent(MotionEvent)}, in the screen coordinates,
+         * so they are not affected even if this layout is translated while it's dragged.
+         * If the touch prediction is enabled, diffY includes the distance that the pointer
+         * is predicted to move (see {@link #setTouchPrediction(long)}).
+         * This is also called with the last ACTION_UP event before
+         * {@link #onUpOrCancelMotionEvent(MotionEvent)}, so the differences end at the released position
+         * without the prediction.
          *
          * @param ev    motion event
-         * @param diffX difference between previous X and current X
-         * @param diffY difference between previous Y and current Y
+         * @param diffX difference between the initial X and current X
+         * @param diffY difference between the initial Y and current Y
          */
         void onMoveMotionEvent(MotionEvent ev, float diffX, float diffY);
 
@@ -74,13 +85,49 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
         void onUpOrCancelMotionEvent(MotionEvent ev);
     }
 
-    private boolean mIntercepting;
-    private boolean mDownMotionEventPended;
-    private boolean mBeganFromDownMotionEvent;
-    private boolean mChildrenEventsCanceled;
+    // States of the interception in a gesture
+    private static final int STATE_UNDECIDED = 0;
+    private static final int STATE_INTERCEPTING = 1;
+    private static final int STATE_PASSING_THROUGH = 2;
+    private static final int STATE_INTERCEPTING_LOCKED = 3;
+    private static final int STATE_PASSING_THROUGH_LOCKED = 4;
+
+    // Inputs to the states
+    private static final int INPUT_PASS = 0;
+    private static final int INPUT_INTERCEPT = 1;
+    private static final int INPUT_LOCK = 2;
+    private static final int INPUT_REEVALUATE = 3;
+
+    // Next states indexed by [current state][input]
+    private static final int[][] TRANSITIONS = {
+            // INPUT_PASS, INPUT_INTERCEPT, INPUT_LOCK, INPUT_REEVALUATE
+            {STATE_PASSING_THROUGH, STATE_INTERCEPTING, STATE_UNDECIDED, STATE_UNDECIDED},
+            {STATE_PASSING_THROUGH, STATE_INTERCEPTING, STATE_INTERCEPTING_LOCKED, STATE_INTERCEPTING},
+            {STATE_PASSING_THROUGH, STATE_INTERCEPTING, STATE_PASSING_THROUGH_LOCKED, STATE_PASSING_THROUGH},
+            {STATE_INTERCEPTING_LOCKED, STATE_INTERCEPTING_LOCKED, STATE_INTERCEPTING_LOCKED, STATE_INTERCEPTING},
+            {STATE_PASSING_THROUGH_LOCKED, STATE_PASSING_THROUGH_LOCKED, STATE_PASSING_THROUGH_LOCKED, STATE_PASSING_THROUGH},
+    };
+
+    // Whether the events are intercepted in each state
+    private static final boolean[] STATE_INTERCEPTS = {false, true, false, true, false};
+
+    // Whether the listener is not asked in each state
+    private static final boolean[] STATE_LOCKED = {false, false, false, true, true};
+
+    private int mState = STATE_UNDECIDED;
+    private boolean mLockAfterSlop;
+    private int mTouchSlop;
+    // Whether the listener has received ACTION_DOWN and not finished the motion
+    private boolean mListenerTracking;
+    // Whether the children have received ACTION_DOWN and not been canceled
+    private boolean mChildrenTracking;
     private PointF mInitialPoint;
     private MotionEvent mPendingDownMotionEvent;
     private TouchInterceptionListener mTouchInterceptionListener;
+    // Predictor fits the samples in the screen coordinates, and so does this filter.
+    private TouchSampleFilter mTouchSampleFilter = new TouchSampleFilter(true);
+    private TouchPredictor mTouchPredictor;
+    private long mTouchPredictionMillis;
 
     public TouchInterceptionFrameLayout(Context context) {
         super(context);
@@ -103,6 +150,89 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
         mTouchInterceptionListener = listener;
     }
 
+    /**
+     * Sets whether the decision of the interception is locked after the touch slop.
+     * If it's locked, {@link TouchInterceptionListener#shouldInterceptTouchEvent(MotionEvent, boolean, float, float)}
+     * is not called after the pointer moves beyond the touch slop,
+     * and the events are intercepted or passed to the children until the gesture finishes.
+     * This reduces the calls of the listener and the events generated to switch the receivers.
+     * Call {@link #reevaluateInterception()} if the decision should be changed in the gesture.
+     * It's not locked by default, and the listener is asked for every move motion event.
+     *
+     * @param lock true to lock the decision after the touch slop
+     */
+    public void setLockInterceptionAfterSlop(boolean lock) {
+        mLockAfterSlop = lock;
+        if (lock) {
+            mTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        }
+    }
+
+    /**
+     * Unlocks the decision of the interception for the next move motion event,
+     * e.g. when the dragged view reached the end and the children should scroll.
+     * The listener is asked again, and the new decision is locked again.
+     * This has no effect if the decision is not locked.
+     */
+    public void reevaluateInterception() {
+        mState = TRANSITIONS[mState][INPUT_REEVALUATE];
+    }
+
+    /**
+     * Returns the vertical velocity of the current (or the last) touch.
+     * This is calculated from all the samples of the motion events,
+     * so it can be used in {@link TouchInterceptionListener#onUpOrCancelMotionEvent(MotionEvent)}
+     * to decide the direction of the fling.
+     *
+     * @return velocity in pixels per second
+     */
+    public float getTouchVelocityY() {
+        return mTouchSampleFilter.getVelocityY();
+    }
+
+    /**
+     * Enables the prediction of the touch position to reduce the lag of the dragged views.
+     * The position is extrapolated from the recent samples by the given time,
+     * which is usually the time to the next frame (e.g. 16 at 60fps).
+     * The prediction is stopped when the pointer slows down, so the views don't overshoot
+     * at the end of the gesture.
+     * The predicted distance is included in diffY of
+     * {@link TouchInterceptionListener#onMoveMotionEvent(MotionEvent, float, float)}.
+     *
+     * @param lookaheadMillis time to predict ahead, or 0 to disable the prediction
+     */
+    public void setTouchPrediction(long lookaheadMillis) {
+        mTouchPredictionMillis = Math.max(0, lookaheadMillis);
+        if (0 < mTouchPredictionMillis && mTouchPredictor == null) {
+            mTouchPredictor = new TouchPredictor();
+        }
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        // Every event passes here only once, so feed the samples to the filter here
+        // rather than in onInterceptTouchEvent or onTouchEvent.
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchSampleFilter.reset(ev);
+                if (0 < mTouchPredictionMillis) {
+                    mTouchPredictor.reset(ev);
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                mTouchSampleFilter.add(ev);
+                if (0 < mTouchPredictionMillis) {
+                    mTouchPredictor.add(ev);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                // Filtered position trails the pointer, so let it catch up at the end
+                mTouchSampleFilter.finish(ev);
+                break;
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         if (mTouchInterceptionListener == null) {
@@ -116,11 +246,13 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
             case MotionEvent.ACTION_DOWN:
                 mInitialPoint = new PointF(ev.getX(), ev.getY());
                 mPendingDownMotionEvent = MotionEvent.obtainNoHistory(ev);
-                mDownMotionEventPended = true;
-                mIntercepting = mTouchInterceptionListener.shouldInterceptTouchEvent(ev, false, 0, 0);
-                mBeganFromDownMotionEvent = mIntercepting;
-                mChildrenEventsCanceled = false;
-                return mIntercepting;
+                mState = STATE_UNDECIDED;
+                boolean intercepting = decideInterception(ev, false, 0, 0);
+                // Children receive this event whether or not it's intercepted,
+                // but the listener receives it only if it's intercepted.
+                mListenerTracking = intercepting;
+                mChildrenTracking = true;
+                return intercepting;
             case MotionEvent.ACTION_MOVE:
                 // ACTION_MOVE will be passed suddenly, so initialize to avoid exception.
                 if (mInitialPoint == null) {
@@ -131,8 +263,12 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
                 // from the position of the ACTION_DOWN event occurred.
                 float diffX = ev.getX() - mInitialPoint.x;
                 float diffY = ev.getY() - mInitialPoint.y;
-                mIntercepting = mTouchInterceptionListener.shouldInterceptTouchEvent(ev, true, diffX, diffY);
-                return mIntercepting;
+                if (decideInterception(ev, true, diffX, diffY)) {
+                    // Children's touches are canceled by the framework.
+                    mChildrenTracking = false;
+                    return true;
+                }
+                return false;
         }
         return false;
     }
@@ -142,7 +278,7 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
         if (mTouchInterceptionListener != null) {
             switch (ev.getActionMasked()) {
                 case MotionEvent.ACTION_DOWN:
-                    if (mIntercepting) {
+                    if (STATE_INTERCEPTS[mState]) {
                         mTouchInterceptionListener.onDownMotionEvent(ev);
                         duplicateTouchEventForChildren(ev);
                         return true;
@@ -158,40 +294,40 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
                     // from the position of the ACTION_DOWN event occurred.
                     float diffX = ev.getX() - mInitialPoint.x;
                     float diffY = ev.getY() - mInitialPoint.y;
-                    mIntercepting = mTouchInterceptionListener.shouldInterceptTouchEvent(ev, true, diffX, diffY);
-                    if (mIntercepting) {
-                        // If this layout didn't receive ACTION_DOWN motion event,
+                    if (decideInterception(ev, true, diffX, diffY)) {
+                        // If the listener didn't receive ACTION_DOWN motion event,
                         // we should generate ACTION_DOWN event with current position.
-                        if (!mBeganFromDownMotionEvent) {
-                            mBeganFromDownMotionEvent = true;
+                        if (!mListenerTracking) {
+                            mListenerTracking = true;
 
                             MotionEvent event = MotionEvent.obtainNoHistory(mPendingDownMotionEvent);
                             event.setLocation(ev.getX(), ev.getY());
                             mTouchInterceptionListener.onDownMotionEvent(event);
 
                             mInitialPoint = new PointF(ev.getX(), ev.getY());
-                            diffX = diffY = 0;
+                            mTouchSampleFilter.setOrigin();
                         }
 
                         // Children's touches should be canceled
-                        if (!mChildrenEventsCanceled) {
-                            mChildrenEventsCanceled = true;
+                        if (mChildrenTracking) {
+                            mChildrenTracking = false;
                             duplicateTouchEventForChildren(obtainMotionEvent(ev, MotionEvent.ACTION_CANCEL));
                         }
 
-                        mTouchInterceptionListener.onMoveMotionEvent(ev, diffX, diffY);
-
-                        // If next mIntercepting become false,
-                        // then we should generate fake ACTION_DOWN event.
-                        // Therefore we set pending flag to true as if this is a down motion event.
-                        mDownMotionEventPended = true;
+                        float smoothedDiffY = mTouchSampleFilter.getDeltaY();
+                        if (0 < mTouchPredictionMillis) {
+                            smoothedDiffY += mTouchPredictor.predictDeltaY(mTouchPredictionMillis);
+                        }
+                        mTouchInterceptionListener.onMoveMotionEvent(ev, mTouchSampleFilter.getDeltaX(), smoothedDiffY);
 
                         // Whether or not this event is consumed by the listener,
                         // assume it consumed because we declared to intercept the event.
                         return true;
                     } else {
-                        if (mDownMotionEventPended) {
-                            mDownMotionEventPended = false;
+                        // If the children's touches have been canceled,
+                        // we should generate ACTION_DOWN event with current position.
+                        if (!mChildrenTracking) {
+                            mChildrenTracking = true;
                             MotionEvent event = MotionEvent.obtainNoHistory(mPendingDownMotionEvent);
                             event.setLocation(ev.getX(), ev.getY());
                             duplicateTouchEventForChildren(ev, event);
@@ -199,42 +335,58 @@ public class TouchInterceptionFrameLayout extends FrameLayout {
                             duplicateTouchEventForChildren(ev);
                         }
 
-                        // If next mIntercepting become true,
-                        // then we should generate fake ACTION_DOWN event.
-                        // Therefore we set beganFromDownMotionEvent flag to false
+                        // If the layout intercepts again,
+                        // then we should generate fake ACTION_DOWN event for the listener
                         // as if we haven't received a down motion event.
-                        mBeganFromDownMotionEvent = false;
-
-                        // Reserve children's click cancellation here if they've already canceled
-                        mChildrenEventsCanceled = false;
+                        mListenerTracking = false;
                     }
                     break;
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
-                    mBeganFromDownMotionEvent = false;
-                    if (mIntercepting) {
+                    if (STATE_INTERCEPTS[mState]) {
+                        if (mListenerTracking && ev.getActionMasked() == MotionEvent.ACTION_UP) {
+                            // Move to the position where the pointer is released
+                            mTouchInterceptionListener.onMoveMotionEvent(ev, mTouchSampleFilter.getDeltaX(),
+                                    mTouchSampleFilter.getDeltaY());
+                        }
                         mTouchInterceptionListener.onUpOrCancelMotionEvent(ev);
                     }
+                    mListenerTracking = false;
 
-                    // Children's touches should be canceled regardless of
+                    // Children's touches should be finished regardless of
                     // whether or not this layout intercepted the consecutive motion events.
-                    if (!mChildrenEventsCanceled) {
-                        mChildrenEventsCanceled = true;
-                        if (mDownMotionEventPended) {
-                            mDownMotionEventPended = false;
-                            MotionEvent event = MotionEvent.obtainNoHistory(mPendingDownMotionEvent);
-                            event.setLocation(ev.getX(), ev.getY());
-                            duplicateTouchEventForChildren(ev, event);
-                        } else {
-                            duplicateTouchEventForChildren(ev);
-                        }
+                    if (mChildrenTracking) {
+                        mChildrenTracking = false;
+                        duplicateTouchEventForChildren(ev);
                     }
+                    mState = STATE_UNDECIDED;
                     return true;
             }
         }
         return super.onTouchEvent(ev);
     }
 
+    /**
+     * Decides whether this layout intercepts the event and updates the state.
+     * The listener is asked only if the state is not locked.
+     *
+     * @param ev     motion event
+     * @param moving true if this event is ACTION_MOVE type
+     * @param diffX  difference between initial X and current X, if moving is true
+     * @param diffY  difference between initial Y and current Y, if moving is true
+     * @return true if this layout should intercept
+     */
+    private boolean decideInterception(MotionEvent ev, boolean moving, float diffX, float diffY) {
+        if (!STATE_LOCKED[mState]) {
+            boolean intercept = mTouchInterceptionListener.shouldInterceptTouchEvent(ev, moving, diffX, diffY);
+            mState = TRANSITIONS[mState][intercept ? INPUT_INTERCEPT : INPUT_PASS];
+            if (mLockAfterSlop && moving && (mTouchSlop < Math.abs(diffX) || mTouchSlop < Math.abs(diffY))) {
+                mState = TRANSITIONS[mState][INPUT_LOCK];
+            }
+        }
+        return STATE_INTERCEPTS[mState];
+    }
+
     private MotionEvent obtainMotionEvent(MotionEvent base, int action) {
         MotionEvent ev = MotionEvent.obtainNoHistory(base);
         ev.setAction(action);
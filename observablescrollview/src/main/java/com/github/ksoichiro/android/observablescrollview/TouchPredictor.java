@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.MotionEvent;
+
+/**
+ * Predicts the vertical position of the first pointer a short time ahead.
+ * <p/>
+ * The recent samples are kept in a ring buffer of primitives, and the position is
+ * extrapolated with the slope of the least squares line fitted to them.
+ * The samples are converted to the screen coordinates with the offset of the current event,
+ * because the views that handle the drag usually move with the pointer,
+ * and the pointer looks almost stopped in their own coordinates.
+ * The prediction should be added to the deltas of a {@link TouchSampleFilter}
+ * that also filters the screen coordinates.
+ * <p/>
+ * The prediction is clamped to the distance that the pointer actually moved
+ * in the same time just before the latest sample, and it's stopped when the pointer is slowing down
+ * to reverse or stop, so the dragged view doesn't overshoot at the end of the gesture.
+ */
+final class TouchPredictor {
+
+    /**
+     * Number of the samples to keep. This must be a power of 2.
+     */
+    private static final int CAPACITY = 16;
+    private static final int MASK = CAPACITY - 1;
+
+    /**
+     * Samples older than this (in milliseconds) are from another motion and not used for the fit.
+     */
+    private static final long MAX_SAMPLE_AGE = 50;
+
+    private final float[] mY = new float[CAPACITY];
+    private final long[] mTime = new long[CAPACITY];
+    private int mHead;
+    private int mCount;
+
+    /**
+     * Clears the samples and starts from the position of the event.
+     *
+     * @param ev motion event, usually ACTION_DOWN
+     */
+    void reset(MotionEvent ev) {
+        mHead = 0;
+        mCount = 0;
+        addSample(ev.getRawY(), ev.getEventTime());
+    }
+
+    /**
+     * Adds the historical samples and the current sample of the event.
+     *
+     * @param ev motion event, usually ACTION_MOVE
+     */
+    void add(MotionEvent ev) {
+        // All the samples in an event are in the same coordinates
+        float offsetY = ev.getRawY() - ev.getY();
+        final int historySize = ev.getHistorySize();
+        for (int i = 0; i < historySize; i++) {
+            addSample(ev.getHistoricalY(i) + offsetY, ev.getHistoricalEventTime(i));
+        }
+        addSample(ev.getRawY(), ev.getEventTime());
+    }
+
+    /**
+     * Returns the distance that the pointer is predicted to move from the latest sample.
+     *
+     * @param lookaheadMillis time to predict ahead of the latest sample
+     * @return predicted distance in pixels, or 0 if it can't be predicted
+     */
+    float predictDeltaY(long lookaheadMillis) {
+        if (mCount < 2 || lookaheadMillis <= 0) {
+            return 0;
+        }
+        final int last = (mHead - 1) & MASK;
+        final float lastY = mY[last];
+        final long lastTime = mTime[last];
+
+        // Fit y = slope * t + b with t and y relative to the latest sample
+        // to keep the sums small.
+        float sumT = 0;
+        float sumY = 0;
+        float sumTT = 0;
+        float sumTY = 0;
+        int n = 0;
+        float recentY = 0;
+        long recentAge = 0;
+        for (int i = 0; i < mCount; i++) {
+            int index = (last - i) & MASK;
+            long age = lastTime - mTime[index];
+            if (MAX_SAMPLE_AGE < age) {
+                break;
+            }
+            float t = -age;
+            float y = mY[index] - lastY;
+            sumT += t;
+            sumY += y;
+            sumTT += t * t;
+            sumTY += t * y;
+            n++;
+            if (recentAge < lookaheadMillis) {
+                // Find the sample at the lookahead before the latest sample
+                recentY = y;
+                recentAge = age;
+            }
+        }
+        if (n < 2 || recentAge <= 0) {
+            return 0;
+        }
+        float denominator = n * sumTT - sumT * sumT;
+        if (denominator <= 0) {
+            return 0;
+        }
+        float slope = (n * sumTY - sumT * sumY) / denominator;
+        float deltaY = slope * lookaheadMillis;
+        // Distance moved in the same time just before the latest sample
+        float recentDeltaY = -recentY * lookaheadMillis / recentAge;
+        if (deltaY * recentDeltaY <= 0) {
+            // The pointer stopped or reversed recently
+            return 0;
+        }
+        if (Math.abs(recentDeltaY) < Math.abs(deltaY)) {
+            return recentDeltaY;
+        }
+        return deltaY;
+    }
+
+    private void addSample(float y, long time) {
+        mY[mHead] = y;
+        mTime[mHead] = time;
+        mHead = (mHead + 1) & MASK;
+        if (mCount < CAPACITY) {
+            mCount++;
+        }
+    }
+}
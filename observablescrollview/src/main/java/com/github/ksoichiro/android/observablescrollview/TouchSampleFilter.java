@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.view.MotionEvent;
+
+/**
+ * Filters the position of the first pointer of the motion events with all of their samples.
+ * <p/>
+ * Touch panels report the samples at higher rate than the frame rate,
+ * and the motion events batch them in the history, so the number of the samples
+ * between two events varies from frame to frame.
+ * If only the latest samples are used, the deltas change with the number of the samples
+ * and the moving views look steppy.
+ * This class feeds the historical samples to an exponential filter
+ * weighted with the time between the samples, so the result doesn't depend on the batching.
+ * The samples are read from the events directly, and no events are copied.
+ * <p/>
+ * The samples are in the coordinates of the view that receives the events by default.
+ * If the view moves with the pointer (e.g. a layout translated while it's dragged),
+ * use the screen coordinates so that the deltas are not affected by the movement of the view.
+ */
+final class TouchSampleFilter {
+
+    /**
+     * Time constant of the filter in milliseconds.
+     * This is less than a frame so that the filtered position doesn't lag behind the pointer visibly.
+     */
+    private static final float TIME_CONSTANT = 8;
+
+    private final boolean mScreenCoordinates;
+    private float mRawX;
+    private float mRawY;
+    private float mX;
+    private float mY;
+    private float mOriginX;
+    private float mOriginY;
+    private float mVelocityX;
+    private float mVelocityY;
+    private long mTime;
+    private boolean mStarted;
+
+    TouchSampleFilter() {
+        this(false);
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param screenCoordinates true to filter the positions in the screen coordinates
+     *                          instead of the coordinates of the view
+     */
+    TouchSampleFilter(boolean screenCoordinates) {
+        mScreenCoordinates = screenCoordinates;
+    }
+
+    /**
+     * Starts filtering from the position of the event.
+     * The position becomes the origin of the deltas.
+     *
+     * @param ev motion event, usually ACTION_DOWN
+     */
+    void reset(MotionEvent ev) {
+        mRawX = mX = mOriginX = ev.getX() + getOffsetX(ev);
+        mRawY = mY = mOriginY = ev.getY() + getOffsetY(ev);
+        mVelocityX = mVelocityY = 0;
+        mTime = ev.getEventTime();
+        mStarted = true;
+    }
+
+    /**
+     * Stops filtering. The next event passed to {@link #add(MotionEvent)} starts filtering again.
+     */
+    void clear() {
+        mStarted = false;
+    }
+
+    /**
+     * Adds the historical samples and the current sample of the event.
+     * If this filter hasn't been started, it starts from this event.
+     *
+     * @param ev motion event, usually ACTION_MOVE
+     */
+    void add(MotionEvent ev) {
+        if (!mStarted) {
+            reset(ev);
+            return;
+        }
+        // All the samples in an event are in the same coordinates
+        final float offsetX = getOffsetX(ev);
+        final float offsetY = getOffsetY(ev);
+        final int historySize = ev.getHistorySize();
+        for (int i = 0; i < historySize; i++) {
+            addSample(ev.getHistoricalX(i) + offsetX, ev.getHistoricalY(i) + offsetY, ev.getHistoricalEventTime(i));
+        }
+        addSample(ev.getX() + offsetX, ev.getY() + offsetY, ev.getEventTime());
+    }
+
+    /**
+     * Adds the samples of the last event of the gesture
+     * and moves the filtered position to the last raw position,
+     * so that the deltas end at the position where the pointer is released.
+     *
+     * @param ev motion event, usually ACTION_UP
+     */
+    void finish(MotionEvent ev) {
+        add(ev);
+        mX = mRawX;
+        mY = mRawY;
+    }
+
+    /**
+     * Makes the current filtered position the origin of the deltas.
+     */
+    void setOrigin() {
+        mOriginX = mX;
+        mOriginY = mY;
+    }
+
+    /**
+     * Returns the filtered X from the origin.
+     *
+     * @return delta X in pixels
+     */
+    float getDeltaX() {
+        return mX - mOriginX;
+    }
+
+    /**
+     * Returns the filtered Y from the origin.
+     *
+     * @return delta Y in pixels
+     */
+    float getDeltaY() {
+        return mY - mOriginY;
+    }
+
+    /**
+     * Returns the filtered horizontal velocity.
+     *
+     * @return velocity in pixels per second
+     */
+    float getVelocityX() {
+        return mVelocityX;
+    }
+
+    /**
+     * Returns the filtered vertical velocity.
+     *
+     * @return velocity in pixels per second
+     */
+    float getVelocityY() {
+        return mVelocityY;
+    }
+
+    private float getOffsetX(MotionEvent ev) {
+        return mScreenCoordinates ? ev.getRawX() - ev.getX() : 0;
+    }
+
+    private float getOffsetY(MotionEvent ev) {
+        return mScreenCoordinates ? ev.getRawY() - ev.getY() : 0;
+    }
+
+    private void addSample(float x, float y, long time) {
+        long dt = time - mTime;
+        if (dt <= 0) {
+            // Samples at the same time: use the latest one without weighting
+            mX += x - mRawX;
+            mY += y - mRawY;
+        } else {
+            float alpha = dt / (dt + TIME_CONSTANT);
+            mVelocityX += alpha * ((x - mRawX) * 1000 / dt - mVelocityX);
+            mVelocityY += alpha * ((y - mRawY) * 1000 / dt - mVelocityY);
+            mX += alpha * (x - mX);
+            mY += alpha * (y - mY);
+            mTime = time;
+        }
+        mRawX = x;
+        mRawY = y;
+    }
+}
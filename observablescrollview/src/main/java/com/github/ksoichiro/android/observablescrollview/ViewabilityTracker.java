@@ -0,0 +1,384 @@
+/*
+ * Copyright 2014 Soichiro Kashima
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ksoichiro.android.observablescrollview;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Tracks the viewability of the items of ObservableListView and ObservableRecyclerView,
+ * and notifies the items that have been visible at least the minimum fraction
+ * for the minimum duration, e.g. for impression tracking.
+ * <p/>
+ * The widgets pass the tops and heights of the children that they read in each scroll change,
+ * so this doesn't iterate the children by itself.
+ * The visible items are always a contiguous range of positions,
+ * so their states are kept in primitive arrays indexed by the position modulo the capacity,
+ * which grows only when more items than ever become visible at once.
+ * The dwell timers are checked when the next item becomes due, not in every frame.
+ * <p/>
+ * Viewed items are batched and passed to the {@link Listener} in a background thread.
+ * An item is notified again after it's once scrolled out (or below the fraction) and viewed again.
+ */
+public class ViewabilityTracker {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long DEFAULT_BATCH_DELAY_MILLIS = 1000;
+    private static final int EMPTY = -1;
+    private static final long NOT_VIEWABLE = -1;
+
+    /**
+     * Listener called in the background thread with the viewed items.
+     */
+    public interface Listener {
+        /**
+         * Called with the items that have been viewed since the last call.
+         *
+         * @param positions adapter positions of the viewed items
+         * @param itemIds   IDs of the viewed items. For RecyclerView, these are
+         *                  {@link android.support.v7.widget.RecyclerView#NO_ID} if the adapter doesn't have stable IDs
+         * @param count     number of the viewed items
+         */
+        public void onItemsViewed(int[] positions, long[] itemIds, int count);
+    }
+
+    private final float mMinVisibleFraction;
+    private final long mMinVisibleMillis;
+    private final Listener mListener;
+    private long mBatchDelayMillis = DEFAULT_BATCH_DELAY_MILLIS;
+
+    private ObservableListView mListView;
+    private ObservableRecyclerView mRecyclerView;
+    private View mHost;
+
+    // States of the visible items indexed by (position & mMask)
+    private int mMask;
+    private int[] mPositions;
+    private long[] mItemIds;
+    private long[] mViewableSince;
+    private boolean[] mReported;
+
+    // Viewport of the current update
+    private int mViewportTop;
+    private int mViewportBottom;
+    private long mUpdateTime;
+
+    // Viewed items that are not passed to the listener yet
+    private int[] mPendingPositions = new int[INITIAL_CAPACITY];
+    private long[] mPendingItemIds = new long[INITIAL_CAPACITY];
+    private int mPendingCount;
+
+    private boolean mDwellCheckPosted;
+    private long mDwellCheckTime;
+    private boolean mFlushPosted;
+    private HandlerThread mThread;
+    private Handler mHandler;
+
+    private final Runnable mDwellCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mDwellCheckPosted = false;
+            checkDwellTimers(SystemClock.uptimeMillis());
+        }
+    };
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushPosted = false;
+            flush();
+        }
+    };
+
+    /**
+     * Creates a tracker.
+     *
+     * @param minVisibleFraction minimum visible fraction of the item, from 0.0f (exclusive) to 1.0f
+     * @param minVisibleMillis   minimum duration that the item should be visible
+     * @param listener           listener called in the background thread
+     */
+    public ViewabilityTracker(float minVisibleFraction, long minVisibleMillis, Listener listener) {
+        mMinVisibleFraction = minVisibleFraction;
+        mMinVisibleMillis = minVisibleMillis;
+        mListener = listener;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Sets the delay to batch the viewed items before passing them to the listener.
+     *
+     * @param millis delay in milliseconds
+     */
+    public void setBatchDelay(long millis) {
+        mBatchDelayMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Attaches this tracker to the ListView.
+     *
+     * @param listView target ListView
+     */
+    public void attachTo(ObservableListView listView) {
+        detach();
+        mListView = listView;
+        mHost = listView;
+        mListView.setViewabilityTracker(this);
+    }
+
+    /**
+     * Attaches this tracker to the RecyclerView.
+     *
+     * @param recyclerView target RecyclerView
+     */
+    public void attachTo(ObservableRecyclerView recyclerView) {
+        detach();
+        mRecyclerView = recyclerView;
+        mHost = recyclerView;
+        mRecyclerView.setViewabilityTracker(this);
+    }
+
+    /**
+     * Detaches this tracker from the widget.
+     * The items already viewed are passed to the listener, and the dwell timers are reset.
+     */
+    public void detach() {
+        if (mListView != null) {
+            mListView.setViewabilityTracker(null);
+            mListView = null;
+        }
+        if (mRecyclerView != null) {
+            mRecyclerView.setViewabilityTracker(null);
+            mRecyclerView = null;
+        }
+        if (mHost != null) {
+            mHost.removeCallbacks(mDwellCheckRunnable);
+            mHost.removeCallbacks(mFlushRunnable);
+            mHost = null;
+        }
+        mDwellCheckPosted = false;
+        mFlushPosted = false;
+        flush();
+        for (int i = 0; i <= mMask; i++) {
+            mPositions[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Detaches this tracker and stops the background thread.
+     * The viewed items that are not passed to the listener yet might be discarded.
+     * Call this when the tracker is no longer used.
+     */
+    public void release() {
+        detach();
+        if (mThread != null) {
+            mThread.quit();
+            mThread = null;
+            mHandler = null;
+        }
+    }
+
+    /**
+     * Called when the widget is detached from the window.
+     * The viewed items are passed to the listener and the background thread is stopped
+     * after it finishes them. The tracker stays attached to the widget,
+     * and the thread is started again when the next items are viewed.
+     */
+    void onHostDetachedFromWindow() {
+        if (mHost != null) {
+            mHost.removeCallbacks(mDwellCheckRunnable);
+            mHost.removeCallbacks(mFlushRunnable);
+        }
+        mDwellCheckPosted = false;
+        mFlushPosted = false;
+        flush();
+        if (mThread != null) {
+            final HandlerThread thread = mThread;
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    thread.quit();
+                }
+            });
+            mThread = null;
+            mHandler = null;
+        }
+    }
+
+    /**
+     * Starts an update with the visible range of the widget.
+     *
+     * @param firstVisiblePosition adapter position of the first visible child
+     * @param lastVisiblePosition  adapter position of the last visible child
+     * @param viewportTop          top of the visible area in the widget's coordinates
+     * @param viewportBottom       bottom of the visible area in the widget's coordinates
+     */
+    void beginUpdate(int firstVisiblePosition, int lastVisiblePosition, int viewportTop, int viewportBottom) {
+        int count = lastVisiblePosition - firstVisiblePosition + 1;
+        if (mMask + 1 < count) {
+            grow(count);
+        }
+        // Forget the items that are scrolled out
+        for (int i = 0; i <= mMask; i++) {
+            int position = mPositions[i];
+            if (position != EMPTY && (position < firstVisiblePosition || lastVisiblePosition < position)) {
+                mPositions[i] = EMPTY;
+            }
+        }
+        mViewportTop = viewportTop;
+        mViewportBottom = viewportBottom;
+        mUpdateTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Updates the visible fraction of the child.
+     * This should be called between {@link #beginUpdate(int, int, int, int)} and {@link #endUpdate()}.
+     *
+     * @param position adapter position of the child
+     * @param itemId   ID of the item
+     * @param top      top of the child
+     * @param height   height of the child
+     */
+    void updateItem(int position, long itemId, int top, int height) {
+        int i = position & mMask;
+        if (mPositions[i] != position || mItemIds[i] != itemId) {
+            mPositions[i] = position;
+            mItemIds[i] = itemId;
+            mViewableSince[i] = NOT_VIEWABLE;
+            mReported[i] = false;
+        }
+        int visibleHeight = Math.min(top + height, mViewportBottom) - Math.max(top, mViewportTop);
+        if (0 < height && mMinVisibleFraction * height <= visibleHeight) {
+            if (mViewableSince[i] == NOT_VIEWABLE) {
+                mViewableSince[i] = mUpdateTime;
+            }
+        } else {
+            mViewableSince[i] = NOT_VIEWABLE;
+            mReported[i] = false;
+        }
+    }
+
+    void endUpdate() {
+        checkDwellTimers(mUpdateTime);
+    }
+
+    private void checkDwellTimers(long now) {
+        long nextDue = Long.MAX_VALUE;
+        for (int i = 0; i <= mMask; i++) {
+            if (mPositions[i] == EMPTY || mReported[i] || mViewableSince[i] == NOT_VIEWABLE) {
+                continue;
+            }
+            long due = mViewableSince[i] + mMinVisibleMillis;
+            if (due <= now) {
+                mReported[i] = true;
+                addPending(mPositions[i], mItemIds[i]);
+            } else if (due < nextDue) {
+                nextDue = due;
+            }
+        }
+        if (mHost == null) {
+            return;
+        }
+        if (nextDue != Long.MAX_VALUE) {
+            // Checked again when the next item becomes due even if it's not scrolled.
+            // Reposted only when it becomes earlier, not in every scroll change.
+            if (!mDwellCheckPosted || nextDue < mDwellCheckTime) {
+                mHost.removeCallbacks(mDwellCheckRunnable);
+                mHost.postDelayed(mDwellCheckRunnable, nextDue - now);
+                mDwellCheckPosted = true;
+                mDwellCheckTime = nextDue;
+            }
+        } else if (mDwellCheckPosted) {
+            mHost.removeCallbacks(mDwellCheckRunnable);
+            mDwellCheckPosted = false;
+        }
+        if (0 < mPendingCount && !mFlushPosted) {
+            mHost.postDelayed(mFlushRunnable, mBatchDelayMillis);
+            mFlushPosted = true;
+        }
+    }
+
+    private void addPending(int position, long itemId) {
+        if (mPendingCount == mPendingPositions.length) {
+            int[] positions = new int[mPendingCount * 2];
+            long[] itemIds = new long[mPendingCount * 2];
+            System.arraycopy(mPendingPositions, 0, positions, 0, mPendingCount);
+            System.arraycopy(mPendingItemIds, 0, itemIds, 0, mPendingCount);
+            mPendingPositions = positions;
+            mPendingItemIds = itemIds;
+        }
+        mPendingPositions[mPendingCount] = position;
+        mPendingItemIds[mPendingCount] = itemId;
+        mPendingCount++;
+    }
+
+    private void flush() {
+        if (mPendingCount == 0) {
+            return;
+        }
+        // Copied once per batch, not per scroll change
+        final int count = mPendingCount;
+        final int[] positions = new int[count];
+        final long[] itemIds = new long[count];
+        System.arraycopy(mPendingPositions, 0, positions, 0, count);
+        System.arraycopy(mPendingItemIds, 0, itemIds, 0, count);
+        mPendingCount = 0;
+        if (mHandler == null) {
+            mThread = new HandlerThread("ViewabilityTracker", Process.THREAD_PRIORITY_BACKGROUND);
+            mThread.start();
+            mHandler = new Handler(mThread.getLooper());
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mListener.onItemsViewed(positions, itemIds, count);
+            }
+        });
+    }
+
+    private void allocate(int capacity) {
+        mMask = capacity - 1;
+        mPositions = new int[capacity];
+        mItemIds = new long[capacity];
+        mViewableSince = new long[capacity];
+        mReported = new boolean[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mPositions[i] = EMPTY;
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int[] positions = mPositions;
+        long[] itemIds = mItemIds;
+        long[] viewableSince = mViewableSince;
+        boolean[] reported = mReported;
+        int capacity = mMask + 1;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] != EMPTY) {
+                int j = positions[i] & mMask;
+                mPositions[j] = positions[i];
+                mItemIds[j] = itemIds[i];
+                mViewableSince[j] = viewableSince[i];
+                mReported[j] = reported[i];
+            }
+        }
+    }
+}